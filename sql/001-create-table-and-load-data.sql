@@ -1,13 +1,59 @@
 DROP TABLE IF EXISTS anime;
+DROP TABLE IF EXISTS anime_genre_count;
 
 CREATE TABLE anime
 (
     id    int unsigned AUTO_INCREMENT,
     name  VARCHAR(100) NOT NULL,
     genre VARCHAR(100) NOT NULL,
-    PRIMARY KEY (id)
+    PRIMARY KEY (id),
+    INDEX idx_anime_genre_id (genre, id)
 );
 
+-- ジャンルごとの件数。anime への INSERT / UPDATE / DELETE と同じトランザクションでトリガーが更新する
+CREATE TABLE anime_genre_count
+(
+    genre VARCHAR(100) NOT NULL,
+    count int unsigned NOT NULL,
+    PRIMARY KEY (genre)
+);
+
+CREATE TRIGGER anime_genre_count_after_insert
+    AFTER INSERT
+    ON anime
+    FOR EACH ROW
+    INSERT INTO anime_genre_count (genre, count)
+    VALUES (NEW.genre, 1)
+    ON DUPLICATE KEY UPDATE count = count + 1;
+
+CREATE TRIGGER anime_genre_count_after_update_old
+    AFTER UPDATE
+    ON anime
+    FOR EACH ROW
+    UPDATE anime_genre_count
+    SET count = count - 1
+    WHERE genre = OLD.genre
+      AND OLD.genre <> NEW.genre;
+
+CREATE TRIGGER anime_genre_count_after_update_new
+    AFTER UPDATE
+    ON anime
+    FOR EACH ROW
+    FOLLOWS anime_genre_count_after_update_old
+    INSERT INTO anime_genre_count (genre, count)
+    SELECT NEW.genre, 1
+    FROM DUAL
+    WHERE OLD.genre <> NEW.genre
+    ON DUPLICATE KEY UPDATE count = count + 1;
+
+CREATE TRIGGER anime_genre_count_after_delete
+    AFTER DELETE
+    ON anime
+    FOR EACH ROW
+    UPDATE anime_genre_count
+    SET count = count - 1
+    WHERE genre = OLD.genre;
+
 INSERT INTO anime (name, genre)
 VALUES ("鬼滅の刃", "ダークファンタジー");
 INSERT INTO anime (name, genre)
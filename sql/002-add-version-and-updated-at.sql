@@ -0,0 +1,4 @@
+-- 楽観的排他制御とETagに使う。更新のたびに version を1つ進め、updated_at を更新時刻にする
+ALTER TABLE anime
+    ADD COLUMN version    int unsigned NOT NULL DEFAULT 0,
+    ADD COLUMN updated_at DATETIME(6)  NOT NULL DEFAULT CURRENT_TIMESTAMP(6);
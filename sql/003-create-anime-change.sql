@@ -0,0 +1,51 @@
+-- 差分同期用の変更履歴。anime への INSERT / UPDATE / DELETE と同じトランザクションでトリガーが追記する
+-- 削除は name と genre を持たない行（トゥームストーン）として残す
+CREATE TABLE anime_change
+(
+    seq        bigint unsigned AUTO_INCREMENT,
+    anime_id   int unsigned NOT NULL,
+    type       VARCHAR(10)  NOT NULL,
+    name       VARCHAR(100),
+    genre      VARCHAR(100),
+    changed_at DATETIME(6)  NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    PRIMARY KEY (seq),
+    INDEX idx_anime_change_anime_id_seq (anime_id, seq)
+);
+
+-- 圧縮で消したトゥームストーンの最大のseq。これより前のトークンでは削除を取りこぼすため、全件から取り直してもらう
+CREATE TABLE anime_change_compaction
+(
+    id      tinyint unsigned NOT NULL,
+    horizon bigint unsigned  NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO anime_change_compaction (id, horizon)
+VALUES (1, 0);
+
+CREATE TRIGGER anime_change_after_insert
+    AFTER INSERT
+    ON anime
+    FOR EACH ROW
+    INSERT INTO anime_change (anime_id, type, name, genre)
+    VALUES (NEW.id, 'UPSERT', NEW.name, NEW.genre);
+
+CREATE TRIGGER anime_change_after_update
+    AFTER UPDATE
+    ON anime
+    FOR EACH ROW
+    INSERT INTO anime_change (anime_id, type, name, genre)
+    VALUES (NEW.id, 'UPSERT', NEW.name, NEW.genre);
+
+CREATE TRIGGER anime_change_after_delete
+    AFTER DELETE
+    ON anime
+    FOR EACH ROW
+    INSERT INTO anime_change (anime_id, type)
+    VALUES (OLD.id, 'DELETE');
+
+-- 既存の行も履歴に載せ、since=0 で全件を同期できるようにする
+INSERT INTO anime_change (anime_id, type, name, genre)
+SELECT id, 'UPSERT', name, genre
+FROM anime
+ORDER BY id;
@@ -0,0 +1,13 @@
+-- Idempotency-Key 付きの登録の結果。anime.idempotency.store=jdbc のときに使い、複数ノードで同じキーの再送を重複させない
+-- status が NULL の行は実行中で、実行したノードが落ちた場合は in-progress-timeout を過ぎると他のノードが引き継ぐ
+CREATE TABLE idempotency_key
+(
+    idempotency_key VARCHAR(255)      NOT NULL,
+    fingerprint     CHAR(32)          NOT NULL,
+    status          smallint unsigned,
+    location        VARCHAR(2048),
+    body            TEXT,
+    created_at      DATETIME(6)       NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    PRIMARY KEY (idempotency_key),
+    INDEX idx_idempotency_key_created_at (created_at)
+);
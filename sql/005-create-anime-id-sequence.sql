@@ -0,0 +1,12 @@
+-- anime.id-allocation.strategy=sequence のときに、アプリが anime の id をブロック単位で確保する採番表
+-- next_id はまだどのノードにも渡していない最小の id。確保したノードが再起動すると使わなかった分は欠番になる
+CREATE TABLE anime_id_sequence
+(
+    name    VARCHAR(64)     NOT NULL,
+    next_id bigint unsigned NOT NULL,
+    PRIMARY KEY (name)
+);
+
+INSERT INTO anime_id_sequence (name, next_id)
+SELECT 'anime', COALESCE(MAX(id), 0) + 1
+FROM anime;
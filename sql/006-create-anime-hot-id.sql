@@ -0,0 +1,10 @@
+-- 各ノードのキャッシュでアクセス頻度の高いアニメのid。起動直後のウォームアップで、これらのidからキャッシュを埋める
+-- score は記録したノードでの順位が高いほど大きい。複数のノードが記録した場合は後から記録した値で上書きする
+CREATE TABLE anime_hot_id
+(
+    anime_id    int unsigned NOT NULL,
+    score       int unsigned NOT NULL,
+    recorded_at DATETIME(6)  NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    PRIMARY KEY (anime_id),
+    INDEX idx_anime_hot_id_recorded_at (recorded_at)
+);
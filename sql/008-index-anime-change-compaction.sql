@@ -0,0 +1,6 @@
+-- 圧縮で、同じアニメの後の変更があるかを調べ終えたseq。次の圧縮はこれより後に追記された行だけを見る
+ALTER TABLE anime_change_compaction
+    ADD COLUMN superseded_through bigint unsigned NOT NULL DEFAULT 0;
+
+-- 期限切れのトゥームストーンを、消えずに残る UPSERT の行を読まずに探す
+CREATE INDEX idx_anime_change_type_changed_at ON anime_change (type, changed_at);
@@ -0,0 +1,119 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.UnitTestTutorialApplication;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+/**
+ * DBが遅くなった時の過負荷で、受付制御の有無によって応答時間のp99がどう変わるかを見る。
+ * 文ごとに20msかかるDBに接続プール8で、処理能力の数倍の256並列でリクエストを送る。
+ * 受付制御ありでは断られたリクエストもすぐに返るので、p99はプール待ちの時間で伸び続けない。
+ * ステータスごとの件数は結果に含まれないので、429/503の割合はメトリクス admission.rejected で確認する。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(256)
+public class AdmissionControlLoadBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"true", "false"})
+    public boolean admission;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient httpClient;
+
+    private String baseUrl;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.populate("admission", ROWS);
+        context = new SpringApplicationBuilder(UnitTestTutorialApplication.class)
+                .initializers(applicationContext -> ((GenericApplicationContext) applicationContext)
+                        .registerBean(SlowDatabaseInterceptor.class))
+                .properties(
+                        "server.port=0",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "anime.search.load-on-startup=false",
+                        "anime.cache.maximum-size=0",
+                        // H2には information_schema.innodb_trx がない
+                        "anime.changes.wait-for-open-transactions=false",
+                        "anime.admission.enabled=" + admission,
+                        "anime.admission.read.target-latency=40ms",
+                        "anime.admission.client.header=X-Client-Id",
+                        "spring.datasource.url=jdbc:h2:mem:admission;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.datasource.hikari.maximum-pool-size=8",
+                        "server.tomcat.threads.max=200")
+                .run();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port + "/api/anime/";
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getAnime() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + random.nextInt(1, ROWS + 1)))
+                .header("X-Client-Id", "client-" + random.nextInt(64))
+                .GET()
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * 文ごとに20ms待たせて、遅くなったMySQLの代わりにする。
+     */
+    @Intercepts({
+            @Signature(type = Executor.class, method = "query",
+                    args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+            @Signature(type = Executor.class, method = "update",
+                    args = {MappedStatement.class, Object.class})
+    })
+    public static class SlowDatabaseInterceptor implements Interceptor {
+
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            Thread.sleep(20);
+            return invocation.proceed();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.UnitTestTutorialApplication;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * サーブレット版とreactiveプロファイル版を同じH2インメモリDBで起動し、高い同時実行数でHTTPの応答時間を比べる。
+ * 接続プールを小さくしてあるので、プール待ちの間にスレッドを占有するかどうかの差が出る。
+ * reactive版はキャッシュを持たないので、サーブレット版もキャッシュを無効にして比べる。
+ * H2はプロセス内DBでネットワークの待ち時間がないため、実際のMySQLより差は小さく出る。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(256)
+public class AnimeApiLoadBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private static final int POOL_SIZE = 8;
+
+    @Param({"servlet", "reactive"})
+    public String stack;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient httpClient;
+
+    private String baseUrl;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.populate("load", ROWS);
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(UnitTestTutorialApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "anime.search.load-on-startup=false",
+                        "anime.cache.maximum-size=0",
+                        // H2には information_schema.innodb_trx がない
+                        "anime.changes.wait-for-open-transactions=false",
+                        "spring.datasource.url=jdbc:h2:mem:load;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                        "server.tomcat.threads.max=64",
+                        "spring.r2dbc.url=r2dbc:h2:mem:///load?options=MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.r2dbc.username=sa",
+                        "spring.r2dbc.password=",
+                        "spring.r2dbc.pool.max-size=" + POOL_SIZE);
+        if (stack.equals("reactive")) {
+            builder.profiles("reactive");
+        }
+        context = builder.run();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port + "/api/anime";
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getAnime() throws IOException, InterruptedException {
+        return send("/" + ThreadLocalRandom.current().nextInt(1, ROWS + 1));
+    }
+
+    @Benchmark
+    public int getAnimePage() throws IOException, InterruptedException {
+        return send("?after=" + ThreadLocalRandom.current().nextInt(0, ROWS) + "&limit=20");
+    }
+
+    private int send(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.form.AnimeForm;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AnimeFormValidationBenchmark {
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private final AnimeForm validForm = new AnimeForm("Your Name", "Romance");
+
+    private final AnimeForm invalidForm = new AnimeForm("", null);
+
+    @Benchmark
+    public Set<ConstraintViolation<AnimeForm>> validateValidForm() {
+        return validator.validate(validForm);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<AnimeForm>> validateInvalidForm() {
+        return validator.validate(invalidForm);
+    }
+}
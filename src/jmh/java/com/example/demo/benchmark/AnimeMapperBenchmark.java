@@ -0,0 +1,75 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entity.Anime;
+import com.example.demo.mapper.AnimeMapper;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnimeMapperBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private AnimeMapper animeMapper;
+
+    @Setup
+    public void setUp() throws SQLException {
+        animeMapper = BenchmarkDatabase.mapper("mapper", ROWS);
+    }
+
+    @Benchmark
+    public List<Anime> findAll() {
+        return animeMapper.findAll();
+    }
+
+    @Benchmark
+    public Optional<Anime> findById() {
+        return animeMapper.findById(randomId());
+    }
+
+    @Benchmark
+    public List<Anime> findByIds() {
+        int from = randomId();
+        return animeMapper.findByIds(IntStream.range(from, from + 20).boxed().collect(Collectors.toList()));
+    }
+
+    @Benchmark
+    public List<Anime> findPage() {
+        return animeMapper.findPage(randomId(), 21);
+    }
+
+    @Benchmark
+    public List<Anime> findPageByGenre() {
+        return animeMapper.findPageByGenre("Action", randomId(), 21);
+    }
+
+    @Benchmark
+    public Anime createAnime() {
+        Anime anime = new Anime("Anime", "Action");
+        animeMapper.createAnime(anime);
+        return anime;
+    }
+
+    @Benchmark
+    public int updateAnime() {
+        return animeMapper.updateAnime(new Anime(randomId(), "Anime", "Drama"));
+    }
+
+    private static int randomId() {
+        return ThreadLocalRandom.current().nextInt(1, ROWS + 1);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entity.Anime;
+import com.example.demo.search.AnimeSearchIndex;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * SampleTimeで計測し、結果のJSONにp99を含める。
+ * 名前はカタカナと漢字をランダムに組み合わせて作り、クエリには登録済みの名前の一部を使う。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnimeSearchIndexBenchmark {
+
+    private static final String KATAKANA = "アイウエオカキクケコサシスセソタチツテトナニヌネノハヒフヘホマミムメモラリルレロワン";
+
+    private static final String KANJI = "鬼滅刃呪術廻戦進撃巨人銀魂無限列車編魔法少女機動戦士宇宙海賊王国物語";
+
+    @Param({"1000000"})
+    public int size;
+
+    private final AnimeSearchIndex animeSearchIndex = new AnimeSearchIndex();
+
+    private final List<String> queries = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int id = 1; id <= size; id++) {
+            String name = randomText(random, KATAKANA, 4) + "の" + randomText(random, KANJI, 3) + " " + id % 100;
+            animeSearchIndex.put(new Anime(id, name, "Action"));
+            if (id % 1000 == 0) {
+                queries.add(name.substring(random.nextInt(3), 5 + random.nextInt(3)));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Integer> search() {
+        return animeSearchIndex.search(queries.get(ThreadLocalRandom.current().nextInt(queries.size())), 20);
+    }
+
+    private static String randomText(Random random, String characters, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(characters.charAt(random.nextInt(characters.length())));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entity.Anime;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnimeSerializationBenchmark {
+
+    @Param({"1", "100", "10000", "100000"})
+    public int size;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private List<Anime> animeList;
+
+    @Setup
+    public void setUp() {
+        animeList = IntStream.rangeClosed(1, size)
+                .mapToObj(id -> new Anime(id, "鬼滅の刃" + id, "ダークファンタジー"))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public byte[] serializeAnimeList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(animeList);
+    }
+}
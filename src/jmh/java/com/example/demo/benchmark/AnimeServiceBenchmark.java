@@ -0,0 +1,71 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.cache.AnimeCache;
+import com.example.demo.cache.InProcessAnimeCacheInvalidationChannel;
+import com.example.demo.entity.Anime;
+import com.example.demo.mapper.AnimeMapper;
+import com.example.demo.search.AnimeSearchIndex;
+import com.example.demo.service.AnimeIdAllocator;
+import com.example.demo.service.AnimeService;
+import com.example.demo.service.AnimeWriteBatcher;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AnimeServiceBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private AnimeService animeService;
+
+    @Setup
+    public void setUp() {
+        List<Anime> animeList = IntStream.rangeClosed(1, size)
+                .mapToObj(id -> new Anime(id, "Anime" + id, "Action"))
+                .collect(Collectors.toList());
+        AnimeCache animeCache = new AnimeCache(new InProcessAnimeCacheInvalidationChannel(), size, Duration.ofMinutes(10), Duration.ofSeconds(5));
+        AnimeMapper animeMapper = stubMapper(animeList);
+        animeService = new AnimeService(animeMapper, animeCache, new AnimeSearchIndex(), event -> {
+        }, new AnimeWriteBatcher(animeMapper, null, false, 1, 1, Duration.ZERO),
+                new AnimeIdAllocator(null, null, "auto-increment", 1));
+    }
+
+    @Benchmark
+    public Anime getAnime() {
+        return animeService.getAnime(ThreadLocalRandom.current().nextInt(1, size + 1));
+    }
+
+    @Benchmark
+    public List<Anime> getAllAnime() {
+        return animeService.getAllAnime();
+    }
+
+    static AnimeMapper stubMapper(List<Anime> animeList) {
+        Map<Integer, Anime> animeById = animeList.stream().collect(Collectors.toMap(Anime::getId, Function.identity()));
+        return (AnimeMapper) Proxy.newProxyInstance(AnimeMapper.class.getClassLoader(), new Class<?>[]{AnimeMapper.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findAll" -> animeList;
+                    case "findById" -> Optional.ofNullable(animeById.get((Integer) args[0]));
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entity.Anime;
+import com.example.demo.mapper.AnimeMapper;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * 存在確認のfindByIdを挟む更新・削除と、更新件数で存在を判定する1文の更新・削除の比較。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+public class AnimeWriteBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private AnimeMapper animeMapper;
+
+    @Setup
+    public void setUp() throws SQLException {
+        animeMapper = BenchmarkDatabase.mapper("write", ROWS);
+    }
+
+    @State(Scope.Thread)
+    public static class Row {
+
+        private Integer id;
+
+        @Setup
+        public void setUp(AnimeWriteBenchmark benchmark) {
+            recreate(benchmark.animeMapper);
+        }
+
+        void recreate(AnimeMapper animeMapper) {
+            Anime anime = new Anime("Anime", "Action");
+            animeMapper.createAnime(anime);
+            id = anime.getId();
+        }
+    }
+
+    @Benchmark
+    public int updateWithExistenceCheck() {
+        int id = ThreadLocalRandom.current().nextInt(1, ROWS + 1);
+        if (animeMapper.findById(id).isEmpty()) {
+            return 0;
+        }
+        return animeMapper.updateAnime(new Anime(id, "Anime", "Drama"));
+    }
+
+    @Benchmark
+    public int updateSingleStatement() {
+        int id = ThreadLocalRandom.current().nextInt(1, ROWS + 1);
+        return animeMapper.updateAnime(new Anime(id, "Anime", "Drama"));
+    }
+
+    @Benchmark
+    public int deleteWithExistenceCheck(Row row) {
+        int count = 0;
+        if (animeMapper.findById(row.id).isPresent()) {
+            count = animeMapper.deleteAnime(row.id);
+        }
+        row.recreate(animeMapper);
+        return count;
+    }
+
+    @Benchmark
+    public int deleteSingleStatement(Row row) {
+        int count = animeMapper.deleteAnime(row.id);
+        row.recreate(animeMapper);
+        return count;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.mapper.AnimeMapper;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcConnectionPool;
+
+/**
+ * ベンチマーク用のH2インメモリDB（MySQLモード）。AnimeMapper.xmlをそのまま読み込む。
+ * プロセス内DBのためネットワークの往復時間は含まれない。
+ */
+final class BenchmarkDatabase {
+
+    static final String[] GENRES = {"Action", "Adventure", "Comedy", "Drama", "Fantasy", "Romance", "Sci-Fi", "Sports"};
+
+    private BenchmarkDatabase() {
+    }
+
+    static SqlSessionFactory create(String name, int rows, Interceptor... interceptors) throws SQLException {
+        JdbcConnectionPool dataSource = populate(name, rows);
+        Configuration configuration = new Configuration(new Environment(name, new JdbcTransactionFactory(), dataSource));
+        configuration.addMapper(AnimeMapper.class);
+        for (Interceptor interceptor : interceptors) {
+            configuration.addInterceptor(interceptor);
+        }
+        return new SqlSessionFactoryBuilder().build(configuration);
+    }
+
+    /**
+     * テーブルを作り直してrows件のアニメを入れる。DBは最後の接続が閉じられても残る。
+     */
+    static JdbcConnectionPool populate(String name, int rows) throws SQLException {
+        JdbcConnectionPool dataSource = JdbcConnectionPool.create(
+                "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        dataSource.setMaxConnections(64);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS anime");
+            statement.execute("CREATE TABLE anime (id INT AUTO_INCREMENT PRIMARY KEY, "
+                    + "name VARCHAR(100) NOT NULL, genre VARCHAR(100) NOT NULL, "
+                    + "version INT NOT NULL DEFAULT 0, updated_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6))");
+            statement.execute("CREATE INDEX idx_anime_genre_id ON anime (genre, id)");
+            statement.execute("DROP TABLE IF EXISTS anime_genre_count");
+            statement.execute("CREATE TABLE anime_genre_count (genre VARCHAR(100) PRIMARY KEY, count INT NOT NULL)");
+            // 変更履歴はMySQLのトリガーで書くため、H2では空のまま読まれるだけ
+            statement.execute("DROP TABLE IF EXISTS anime_change");
+            statement.execute("CREATE TABLE anime_change (seq BIGINT AUTO_INCREMENT PRIMARY KEY, anime_id INT NOT NULL, "
+                    + "type VARCHAR(10) NOT NULL, name VARCHAR(100), genre VARCHAR(100), "
+                    + "changed_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6))");
+            statement.execute("DROP TABLE IF EXISTS anime_change_compaction");
+            statement.execute("CREATE TABLE anime_change_compaction (id TINYINT PRIMARY KEY, horizon BIGINT NOT NULL, "
+                    + "superseded_through BIGINT NOT NULL DEFAULT 0)");
+            statement.execute("INSERT INTO anime_change_compaction (id, horizon) VALUES (1, 0)");
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO anime (name, genre) VALUES (?, ?)")) {
+                for (int i = 1; i <= rows; i++) {
+                    insert.setString(1, "Anime" + i);
+                    insert.setString(2, GENRES[i % GENRES.length]);
+                    insert.addBatch();
+                    if (i % 1000 == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+        }
+        return dataSource;
+    }
+
+    static AnimeMapper mapper(String name, int rows, Interceptor... interceptors) throws SQLException {
+        return SqlSessionManager.newInstance(create(name, rows, interceptors)).getMapper(AnimeMapper.class);
+    }
+}
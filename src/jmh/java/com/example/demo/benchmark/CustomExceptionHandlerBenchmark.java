@@ -0,0 +1,58 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.controller.AnimeController;
+import com.example.demo.exception.CustomExceptionHandler;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.form.AnimeForm;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CustomExceptionHandlerBenchmark {
+
+    private final CustomExceptionHandler handler = new CustomExceptionHandler();
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/anime/3");
+
+    private MethodArgumentNotValidException validationException;
+
+    @Setup
+    public void setUp() {
+        Method registerAnime = Arrays.stream(AnimeController.class.getMethods())
+                .filter(method -> method.getName().equals("registerAnime"))
+                .findFirst()
+                .orElseThrow();
+        int formIndex = Arrays.asList(registerAnime.getParameterTypes()).indexOf(AnimeForm.class);
+        BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(new AnimeForm("", ""), "animeForm");
+        bindingResult.addError(new FieldError("animeForm", "name", "cannot be empty"));
+        bindingResult.addError(new FieldError("animeForm", "genre", "cannot be empty"));
+        validationException = new MethodArgumentNotValidException(new MethodParameter(registerAnime, formIndex), bindingResult);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, String>> handleNoResourceFound() {
+        return handler.handleNoResourceFound(new ResourceNotFoundException("resource not found"), request);
+    }
+
+    @Benchmark
+    public Map<String, String> handleValidationExceptions() {
+        return handler.handleValidationExceptions(validationException, request);
+    }
+}
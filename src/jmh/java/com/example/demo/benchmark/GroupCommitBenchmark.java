@@ -0,0 +1,121 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.cache.AnimeCache;
+import com.example.demo.cache.InProcessAnimeCacheInvalidationChannel;
+import com.example.demo.mapper.AnimeMapper;
+import com.example.demo.search.AnimeSearchIndex;
+import com.example.demo.service.AnimeIdAllocator;
+import com.example.demo.service.AnimeService;
+import com.example.demo.service.AnimeWriteBatcher;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 1件ずつの登録・更新を、1文1コミットで実行する今までの方法とグループコミットでまとめる方法で比べる。
+ * H2のインメモリDBは往復もディスクへの書き込みもないため、roundTripMicrosで1文ごとの往復時間を足す。
+ * トランザクションの開始とコミットの往復は足していないので、グループコミット側がやや有利に出る。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(64)
+public class GroupCommitBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"direct", "groupCommit"})
+    public String mode;
+
+    @Param({"0", "500"})
+    public int roundTripMicros;
+
+    private AnimeService animeService;
+
+    private AnimeWriteBatcher animeWriteBatcher;
+
+    @Setup
+    public void setUp() throws SQLException {
+        JdbcConnectionPool dataSource = BenchmarkDatabase.populate("group-commit", ROWS);
+        Configuration configuration = new Configuration(new Environment("group-commit", new SpringManagedTransactionFactory(), dataSource));
+        configuration.addMapper(AnimeMapper.class);
+        if (roundTripMicros > 0) {
+            configuration.addInterceptor(new RoundTripInterceptor(roundTripMicros));
+        }
+        // トランザクションの外では1文ごとにコミットされ、今までの1リクエスト1コミットと同じになる
+        AnimeMapper animeMapper = new SqlSessionTemplate(new SqlSessionFactoryBuilder().build(configuration))
+                .getMapper(AnimeMapper.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        animeWriteBatcher = new AnimeWriteBatcher(animeMapper, transactionTemplate, mode.equals("groupCommit"),
+                64, 1024, Duration.ofNanos(200_000));
+        AnimeCache animeCache = new AnimeCache(new InProcessAnimeCacheInvalidationChannel(), 0, Duration.ofMinutes(10), Duration.ofSeconds(5));
+        animeService = new AnimeService(animeMapper, animeCache, new AnimeSearchIndex(), event -> {
+        }, animeWriteBatcher, new AnimeIdAllocator(null, null, "auto-increment", 1));
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        animeWriteBatcher.destroy();
+    }
+
+    @Benchmark
+    public void registerAnime() {
+        animeService.registerAnime("Anime", "Action");
+    }
+
+    @Benchmark
+    public void updateAnime() {
+        animeService.updateAnime(ThreadLocalRandom.current().nextInt(1, ROWS + 1), "Anime", "Drama");
+    }
+
+    /**
+     * 文ごとに往復時間の分だけ待たせる。
+     */
+    @Intercepts({
+            @Signature(type = Executor.class, method = "query",
+                    args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+            @Signature(type = Executor.class, method = "update",
+                    args = {MappedStatement.class, Object.class})
+    })
+    public static class RoundTripInterceptor implements Interceptor {
+
+        private final long roundTripNanos;
+
+        RoundTripInterceptor(int roundTripMicros) {
+            this.roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+        }
+
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            TimeUnit.NANOSECONDS.sleep(roundTripNanos);
+            return invocation.proceed();
+        }
+    }
+}
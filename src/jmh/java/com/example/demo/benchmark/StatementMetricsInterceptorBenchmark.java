@@ -0,0 +1,50 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entity.Anime;
+import com.example.demo.mapper.AnimeMapper;
+import com.example.demo.metrics.StatementMetricsInterceptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * 同じfindByIdをインターセプターなし／ありで実行し、計測のオーバーヘッドを比較する。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class StatementMetricsInterceptorBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private AnimeMapper plainMapper;
+
+    private AnimeMapper instrumentedMapper;
+
+    @Setup
+    public void setUp() throws SQLException {
+        plainMapper = BenchmarkDatabase.mapper("plain", ROWS);
+        instrumentedMapper = BenchmarkDatabase.mapper("instrumented", ROWS, new StatementMetricsInterceptor(new SimpleMeterRegistry()));
+    }
+
+    @Benchmark
+    public Optional<Anime> findByIdWithoutInterceptor() {
+        return plainMapper.findById(ThreadLocalRandom.current().nextInt(1, ROWS + 1));
+    }
+
+    @Benchmark
+    public Optional<Anime> findByIdWithInterceptor() {
+        return instrumentedMapper.findById(ThreadLocalRandom.current().nextInt(1, ROWS + 1));
+    }
+}
@@ -2,12 +2,21 @@ package com.example.demo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 @SpringBootApplication
 public class UnitTestTutorialApplication {
 
+	/**
+	 * 起動時に記録するステップ数の上限。Beanごとに数ステップ記録されるので、Bean数に対して十分に大きくする。
+	 */
+	private static final int STARTUP_STEPS_CAPACITY = 10000;
+
 	public static void main(String[] args) {
-		SpringApplication.run(UnitTestTutorialApplication.class, args);
+		SpringApplication application = new SpringApplication(UnitTestTutorialApplication.class);
+		// 起動の各段階の所要時間を /actuator/startup で確認できるように記録する
+		application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS_CAPACITY));
+		application.run(args);
 	}
 
 }
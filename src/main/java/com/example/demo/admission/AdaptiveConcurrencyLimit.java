@@ -0,0 +1,92 @@
+package com.example.demo.admission;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * 同時に処理するリクエスト数の上限を、Mapperの文の実行時間からAIMDで調整する。
+ * 目標時間を超えた文があれば上限を一定割合で下げ、目標内で上限近くまで使われていれば少しずつ上げる。
+ * 下げるのは {@link #DECREASE_INTERVAL_NANOS} に1回までにして、1回の遅延で上限が底まで落ちないようにする。
+ * 文ごとに呼ばれるので、ロックを取らずにCASで更新する。
+ */
+class AdaptiveConcurrencyLimit {
+
+    private static final double DECREASE_FACTOR = 0.9;
+
+    private static final long DECREASE_INTERVAL_NANOS = Duration.ofMillis(100).toNanos();
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long targetLatencyNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * 上限をdoubleのビット列で持つ。
+     */
+    private final AtomicLong limit;
+
+    private final AtomicLong lastDecrease;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, Duration targetLatency) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.limit = new AtomicLong(Double.doubleToRawLongBits(Math.max(minLimit, Math.min(maxLimit, initialLimit))));
+        this.lastDecrease = new AtomicLong(System.nanoTime() - DECREASE_INTERVAL_NANOS);
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    void onSample(long latencyNanos, long now) {
+        if (latencyNanos > targetLatencyNanos) {
+            long last = lastDecrease.get();
+            // 同じ間隔の中で下げるのは、lastDecreaseを更新できた1つのスレッドだけ
+            if (now - last >= DECREASE_INTERVAL_NANOS && lastDecrease.compareAndSet(last, now)) {
+                update(current -> Math.max(minLimit, current * DECREASE_FACTOR));
+            }
+        } else if (inFlight.get() * 2 >= currentLimit()) {
+            update(current -> Math.min(maxLimit, current + 1 / current));
+        }
+    }
+
+    private void update(DoubleUnaryOperator function) {
+        while (true) {
+            long current = limit.get();
+            double next = function.applyAsDouble(Double.longBitsToDouble(current));
+            if (limit.compareAndSet(current, Double.doubleToRawLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    private double currentLimit() {
+        return Double.longBitsToDouble(limit.get());
+    }
+
+    int getLimit() {
+        return (int) currentLimit();
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+}
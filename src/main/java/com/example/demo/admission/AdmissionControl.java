@@ -0,0 +1,127 @@
+package com.example.demo.admission;
+
+import com.example.demo.exception.ServiceOverloadedException;
+import com.example.demo.exception.TooManyRequestsException;
+import com.example.demo.metrics.StatementLatencyListener;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.http.HttpServletRequest;
+import org.apache.ibatis.mapping.SqlCommandType;
+
+/**
+ * クライアントごとのトークンバケットと、読み取り・書き込みそれぞれの同時実行数の上限でリクエストを受け付けるか決める。
+ * 上限は、受け付けたリクエストを処理しているスレッドで実行されたSELECTとそれ以外の文の実行時間からそれぞれ調整する。
+ * スナップショットの作り直しや変更の取得など、バックグラウンドの文では調整しない。
+ * トークンバケットはクライアントを識別するヘッダーを指定した時だけ使う。
+ * 接続元のアドレスではロードバランサーやNATの後ろの全員が1つのバケットを分け合うことになるため。
+ */
+public class AdmissionControl implements StatementLatencyListener, MeterBinder {
+
+    private final AdaptiveConcurrencyLimit readLimit;
+
+    private final AdaptiveConcurrencyLimit writeLimit;
+
+    private final Cache<String, TokenBucket> buckets = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+
+    private final int bucketCapacity;
+
+    private final double refillPerSecond;
+
+    private final String clientHeader;
+
+    private final Duration retryAfter;
+
+    private final ThreadLocal<AdaptiveConcurrencyLimit> admitted = new ThreadLocal<>();
+
+    private final AtomicLong rejectedByClient = new AtomicLong();
+
+    private final AtomicLong rejectedByLimit = new AtomicLong();
+
+    public AdmissionControl(AdmissionProperties properties) {
+        this.readLimit = limit(properties.getRead());
+        this.writeLimit = limit(properties.getWrite());
+        this.bucketCapacity = properties.getClient().getCapacity();
+        this.refillPerSecond = properties.getClient().getRefillPerSecond();
+        this.clientHeader = properties.getClient().getHeader();
+        this.retryAfter = properties.getRetryAfter();
+    }
+
+    private static AdaptiveConcurrencyLimit limit(AdmissionProperties.Limit limit) {
+        return new AdaptiveConcurrencyLimit(limit.getInitialLimit(), limit.getMinLimit(), limit.getMaxLimit(), limit.getTargetLatency());
+    }
+
+    /**
+     * 受け付けたリクエストが使う上限を返す。処理が終わったら {@link #release} に渡すこと。
+     */
+    AdaptiveConcurrencyLimit admit(HttpServletRequest request) {
+        String client = clientId(request);
+        if (client != null) {
+            long now = System.nanoTime();
+            long wait = buckets.get(client, key -> new TokenBucket(bucketCapacity, refillPerSecond, now)).tryTake(now);
+            if (wait > 0) {
+                rejectedByClient.incrementAndGet();
+                throw new TooManyRequestsException("too many requests", Duration.ofNanos(wait));
+            }
+        }
+        AdaptiveConcurrencyLimit limit = isRead(request.getMethod()) ? readLimit : writeLimit;
+        if (!limit.tryAcquire()) {
+            rejectedByLimit.incrementAndGet();
+            throw new ServiceOverloadedException("service is overloaded", retryAfter);
+        }
+        admitted.set(limit);
+        return limit;
+    }
+
+    /**
+     * 受け付けた時と同じスレッドで呼ぶこと。
+     */
+    void release(AdaptiveConcurrencyLimit limit) {
+        admitted.remove();
+        limit.release();
+    }
+
+    @Override
+    public void onStatement(SqlCommandType commandType, long elapsedNanos) {
+        if (admitted.get() == null) {
+            return;
+        }
+        (commandType == SqlCommandType.SELECT ? readLimit : writeLimit).onSample(elapsedNanos, System.nanoTime());
+    }
+
+    /**
+     * ヘッダーを指定していない場合と、リクエストにヘッダーがない場合はnullを返し、トークンバケットを使わない。
+     */
+    private String clientId(HttpServletRequest request) {
+        return clientHeader == null ? null : request.getHeader(clientHeader);
+    }
+
+    private static boolean isRead(String method) {
+        return method.equals("GET") || method.equals("HEAD");
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindLimit(registry, "read", readLimit);
+        bindLimit(registry, "write", writeLimit);
+        FunctionCounter.builder("admission.rejected", rejectedByClient, AtomicLong::get)
+                .tag("reason", "client")
+                .register(registry);
+        FunctionCounter.builder("admission.rejected", rejectedByLimit, AtomicLong::get)
+                .tag("reason", "limit")
+                .register(registry);
+    }
+
+    private static void bindLimit(MeterRegistry registry, String type, AdaptiveConcurrencyLimit limit) {
+        Gauge.builder("admission.limit", limit, AdaptiveConcurrencyLimit::getLimit).tag("type", type).register(registry);
+        Gauge.builder("admission.in_flight", limit, AdaptiveConcurrencyLimit::getInFlight).tag("type", type).register(registry);
+    }
+}
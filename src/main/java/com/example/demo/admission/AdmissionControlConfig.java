@@ -0,0 +1,79 @@
+package com.example.demo.admission;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * /api 配下のハンドラーの前で受け付けるか決める。断った時の応答はCustomExceptionHandlerが作る。
+ */
+@Configuration
+@ConditionalOnProperty(name = "anime.admission.enabled", havingValue = "true")
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionControlConfig implements WebMvcConfigurer {
+
+    private final AdmissionProperties properties;
+
+    public AdmissionControlConfig(AdmissionProperties properties) {
+        this.properties = properties;
+    }
+
+    @Bean
+    public AdmissionControl admissionControl() {
+        return new AdmissionControl(properties);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdmissionControlInterceptor(admissionControl())).addPathPatterns("/api/**");
+    }
+
+    static class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+
+        private static final String ADMITTED = AdmissionControlInterceptor.class.getName() + ".ADMITTED";
+
+        private final AdmissionControl admissionControl;
+
+        AdmissionControlInterceptor(AdmissionControl admissionControl) {
+            this.admissionControl = admissionControl;
+        }
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            // 非同期処理の完了で戻ってきたディスパッチは、最初のディスパッチで受け付け済み
+            if (request.getDispatcherType() == DispatcherType.ASYNC) {
+                return true;
+            }
+            request.setAttribute(ADMITTED, admissionControl.admit(request));
+            return true;
+        }
+
+        /**
+         * SSEのように非同期で続くレスポンスは枠を持ち続けないよう、ハンドラーを抜けた時点で返す。
+         */
+        @Override
+        public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            release(request);
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+            release(request);
+        }
+
+        private void release(HttpServletRequest request) {
+            Object admitted = request.getAttribute(ADMITTED);
+            if (admitted instanceof AdaptiveConcurrencyLimit limit) {
+                request.removeAttribute(ADMITTED);
+                admissionControl.release(limit);
+            }
+        }
+    }
+}
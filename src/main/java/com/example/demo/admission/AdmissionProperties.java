@@ -0,0 +1,143 @@
+package com.example.demo.admission;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "anime.admission")
+public class AdmissionProperties {
+
+    private Limit read = new Limit(50, 4, 200, Duration.ofMillis(50));
+
+    private Limit write = new Limit(20, 2, 100, Duration.ofMillis(100));
+
+    private Client client = new Client();
+
+    /**
+     * 同時実行数の上限で断った時に返すRetry-After。
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    public Limit getRead() {
+        return read;
+    }
+
+    public void setRead(Limit read) {
+        this.read = read;
+    }
+
+    public Limit getWrite() {
+        return write;
+    }
+
+    public void setWrite(Limit write) {
+        this.write = write;
+    }
+
+    public Client getClient() {
+        return client;
+    }
+
+    public void setClient(Client client) {
+        this.client = client;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public void setRetryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+    public static class Limit {
+
+        private int initialLimit;
+
+        private int minLimit;
+
+        private int maxLimit;
+
+        /**
+         * この時間を超える文があれば上限を下げる。
+         */
+        private Duration targetLatency;
+
+        public Limit() {
+        }
+
+        Limit(int initialLimit, int minLimit, int maxLimit, Duration targetLatency) {
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.targetLatency = targetLatency;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public Duration getTargetLatency() {
+            return targetLatency;
+        }
+
+        public void setTargetLatency(Duration targetLatency) {
+            this.targetLatency = targetLatency;
+        }
+    }
+
+    public static class Client {
+
+        private int capacity = 100;
+
+        private double refillPerSecond = 50;
+
+        /**
+         * クライアントを識別するヘッダー。指定しなければクライアントごとの制限は行わない。
+         */
+        private String header;
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public double getRefillPerSecond() {
+            return refillPerSecond;
+        }
+
+        public void setRefillPerSecond(double refillPerSecond) {
+            this.refillPerSecond = refillPerSecond;
+        }
+
+        public String getHeader() {
+            return header;
+        }
+
+        public void setHeader(String header) {
+            this.header = header;
+        }
+    }
+}
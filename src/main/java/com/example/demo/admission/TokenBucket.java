@@ -0,0 +1,35 @@
+package com.example.demo.admission;
+
+/**
+ * クライアントごとのリクエスト数を制限するトークンバケット。
+ */
+class TokenBucket {
+
+    private final double capacity;
+
+    private final double tokensPerNano;
+
+    private double tokens;
+
+    private long lastRefill;
+
+    TokenBucket(int capacity, double tokensPerSecond, long now) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefill = now;
+    }
+
+    /**
+     * トークンを1つ取り、取れた時は0を返す。取れなかった時は次の1つが貯まるまでのナノ秒を返す。
+     */
+    synchronized long tryTake(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.demo.cache;
+
+import com.example.demo.entity.Anime;
+import com.example.demo.event.AnimeChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * findByIdの結果を保持するキャッシュ。
+ * 存在しないidの結果も短いTTLで保持し、同じidへの404でDBに問い合わせ続けないようにする。
+ */
+@Component
+public class AnimeCache implements MeterBinder {
+
+    private final Cache<Integer, Optional<Anime>> cache;
+
+    private final AnimeCacheInvalidationChannel invalidationChannel;
+
+    public AnimeCache(AnimeCacheInvalidationChannel invalidationChannel,
+                      @Value("${anime.cache.maximum-size:10000}") long maximumSize,
+                      @Value("${anime.cache.ttl:10m}") Duration ttl,
+                      @Value("${anime.cache.negative-ttl:5s}") Duration negativeTtl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new AnimeExpiry(ttl, negativeTtl))
+                .recordStats()
+                .build();
+        this.invalidationChannel = invalidationChannel;
+        invalidationChannel.subscribe(this::evict);
+    }
+
+    public Optional<Anime> get(Integer id, Function<Integer, Optional<Anime>> loader) {
+        return cache.get(id, loader);
+    }
+
+    /**
+     * キャッシュになければnullを返す。
+     */
+    public Optional<Anime> getIfPresent(Integer id) {
+        return cache.getIfPresent(id);
+    }
+
+    public Map<Integer, Optional<Anime>> getAll(Collection<Integer> ids,
+                                                Function<List<Integer>, Map<Integer, Optional<Anime>>> loader) {
+        return cache.getAll(ids, keys -> {
+            List<Integer> missingIds = new ArrayList<>();
+            keys.forEach(missingIds::add);
+            return loader.apply(missingIds);
+        });
+    }
+
+    public void invalidate(Collection<Integer> ids) {
+        if (!ids.isEmpty()) {
+            invalidationChannel.publish(List.copyOf(ids));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAnimeChanged(AnimeChangedEvent event) {
+        invalidate(event.getIds());
+    }
+
+    /**
+     * アクセス頻度の高い順に、存在するアニメのidを最大limit件返す。
+     */
+    public List<Integer> hottestIds(int limit) {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.hottest(limit).entrySet().stream()
+                        .filter(entry -> entry.getValue().isPresent())
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toList()))
+                .orElse(List.of());
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "anime");
+    }
+
+    private void evict(Collection<Integer> ids) {
+        cache.invalidateAll(ids);
+    }
+
+    private static class AnimeExpiry implements Expiry<Integer, Optional<Anime>> {
+
+        private final long ttlNanos;
+
+        private final long negativeTtlNanos;
+
+        AnimeExpiry(Duration ttl, Duration negativeTtl) {
+            this.ttlNanos = ttl.toNanos();
+            this.negativeTtlNanos = negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(Integer key, Optional<Anime> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Integer key, Optional<Anime> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Integer key, Optional<Anime> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.demo.cache;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * 複数ノード間でキャッシュの無効化を伝える経路。
+ * 複数ノード構成ではメッセージブローカー等を使った実装を{@code @Primary}で登録する。
+ */
+public interface AnimeCacheInvalidationChannel {
+
+    void publish(Collection<Integer> ids);
+
+    void subscribe(Consumer<Collection<Integer>> listener);
+}
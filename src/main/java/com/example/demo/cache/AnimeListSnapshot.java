@@ -0,0 +1,156 @@
+package com.example.demo.cache;
+
+import com.example.demo.entity.Anime;
+import com.example.demo.mapper.AnimeMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+/**
+ * 全件取得のレスポンスをJSONとgzipのバイト列で保持するスナップショット。
+ * AnimeCacheInvalidationChannelで無効化を受け取るとバージョンを進め、バックグラウンドで作り直す。
+ * 他のノードの書き込みも同じ経路で届く。
+ * 作り直しが終わるまでは前のスナップショットを返し、全件の読み込みをリクエストに待たせない。
+ * 呼び出したスレッドで作るのは、まだ1度も作っていない時だけ。
+ * バックグラウンドの作り直しに失敗した場合は、次に取得された時にもう一度バックグラウンドで作り直す。
+ * レプリカの遅れを拾わないよう、AnimeServiceを通さずプライマリから読む。
+ */
+@Component
+@Profile("!reactive")
+public class AnimeListSnapshot implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AnimeListSnapshot.class);
+
+    private final AnimeMapper animeMapper;
+
+    private final ObjectWriter listWriter;
+
+    private final Executor rebuilder;
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final AtomicBoolean rebuildFailed = new AtomicBoolean();
+
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public AnimeListSnapshot(AnimeMapper animeMapper, ObjectMapper objectMapper,
+                             AnimeCacheInvalidationChannel invalidationChannel) {
+        this(animeMapper, objectMapper, invalidationChannel, rebuilder());
+    }
+
+    AnimeListSnapshot(AnimeMapper animeMapper, ObjectMapper objectMapper,
+                      AnimeCacheInvalidationChannel invalidationChannel, Executor rebuilder) {
+        this.animeMapper = animeMapper;
+        this.listWriter = objectMapper.writerFor(
+                TypeFactory.defaultInstance().constructCollectionType(List.class, Anime.class));
+        this.rebuilder = rebuilder;
+        invalidationChannel.subscribe(ids -> invalidate());
+    }
+
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return rebuild();
+        }
+        if (rebuildFailed.compareAndSet(true, false)) {
+            rebuilder.execute(this::rebuildInBackground);
+        }
+        return current;
+    }
+
+    public void invalidate() {
+        version.incrementAndGet();
+        rebuilder.execute(this::rebuildInBackground);
+    }
+
+    /**
+     * 呼び出したスレッドで作り直し、それまでの変更をすべて含むスナップショットを返す。
+     */
+    public Snapshot refresh() {
+        version.incrementAndGet();
+        return rebuild();
+    }
+
+    @Override
+    public void destroy() {
+        if (rebuilder instanceof ThreadPoolExecutor executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void rebuildInBackground() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("failed to rebuild the anime list snapshot, serving the previous one", e);
+            rebuildFailed.set(true);
+        }
+    }
+
+    private synchronized Snapshot rebuild() {
+        // 問い合わせ中に変更が入った場合は次の作り直しで拾えるよう、先にバージョンを読む
+        long target = version.get();
+        Snapshot current = snapshot;
+        if (current != null && current.version() == target) {
+            return current;
+        }
+        Snapshot built;
+        try {
+            built = Snapshot.of(target, listWriter.writeValueAsBytes(animeMapper.findAll()));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        snapshot = built;
+        return built;
+    }
+
+    private static ThreadPoolExecutor rebuilder() {
+        // 作り直し待ちは1つあれば足りる。溢れた分は次の作り直しにまとまる
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1), runnable -> {
+            Thread thread = new Thread(runnable, "anime-list-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * エンコード済みの全件一覧。ETagは内容から計算するため、同じ一覧を持つインスタンス間で一致する。
+     */
+    public record Snapshot(long version, byte[] json, byte[] gzip, String etag, String gzipEtag) {
+
+        public static Snapshot of(long version, byte[] json) {
+            String hash = DigestUtils.md5DigestAsHex(json);
+            return new Snapshot(version, json, gzip(json), "\"" + hash + "\"", "\"" + hash + "-gzip\"");
+        }
+
+        private static byte[] gzip(byte[] json) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(json.length / 4, 64));
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+    }
+}
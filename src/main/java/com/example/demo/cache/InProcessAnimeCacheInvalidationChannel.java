@@ -0,0 +1,23 @@
+package com.example.demo.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.springframework.stereotype.Component;
+
+@Component
+public class InProcessAnimeCacheInvalidationChannel implements AnimeCacheInvalidationChannel {
+
+    private final List<Consumer<Collection<Integer>>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(Collection<Integer> ids) {
+        listeners.forEach(listener -> listener.accept(ids));
+    }
+
+    @Override
+    public void subscribe(Consumer<Collection<Integer>> listener) {
+        listeners.add(listener);
+    }
+}
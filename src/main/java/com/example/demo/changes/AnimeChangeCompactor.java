@@ -0,0 +1,55 @@
+package com.example.demo.changes;
+
+import com.example.demo.service.AnimeChangeService;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * anime_change をバックグラウンドで定期的に圧縮する。
+ */
+@Component
+@Profile("!reactive")
+public class AnimeChangeCompactor implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AnimeChangeCompactor.class);
+
+    private final AnimeChangeService animeChangeService;
+
+    private final ScheduledExecutorService compactor;
+
+    public AnimeChangeCompactor(AnimeChangeService animeChangeService,
+                                @Value("${anime.changes.compaction-interval:1m}") Duration compactionInterval) {
+        this.animeChangeService = animeChangeService;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "anime-change-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = compactionInterval.toMillis();
+        compactor.scheduleWithFixedDelay(this::compact, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        compactor.shutdownNow();
+    }
+
+    private void compact() {
+        try {
+            int removed = animeChangeService.compact();
+            if (removed > 0) {
+                log.info("anime change log compacted: {} entries removed", removed);
+            }
+        } catch (RuntimeException e) {
+            log.warn("failed to compact anime change log", e);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.demo.changes;
+
+import com.example.demo.entity.AnimeChange;
+import com.example.demo.event.AnimeChangedEvent;
+import com.example.demo.exception.ChangesExpiredException;
+import com.example.demo.service.AnimeChangeService;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * anime_change を1本のループで読み、購読中の全員にServer-Sent Eventsで配る。
+ * 購読者の数に関わらず、読み込みは変更の件数に比例する。
+ * 他のインスタンスでの変更は定期的な読み込みで、このインスタンスでの変更はコミット直後に拾う。
+ * 定期的な読み込みは購読者がいる間だけ行う。
+ */
+@Component
+@Profile("!reactive")
+public class AnimeChangeStream implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AnimeChangeStream.class);
+
+    private static final int READ_LIMIT = 500;
+
+    private static final long HEARTBEAT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(15);
+
+    private final AnimeChangeService animeChangeService;
+
+    private final long timeoutMillis;
+
+    private final long pollIntervalMillis;
+
+    private final ScheduledExecutorService poller;
+
+    private final AtomicReference<ScheduledFuture<?>> polling = new AtomicReference<>();
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    // 送り済みの変更をまだ送っていない購読者
+    private final Queue<Subscription> pending = new ConcurrentLinkedQueue<>();
+
+    // これ以下のseqは落ち着いており、全員に送り済み
+    private long cursor = -1;
+
+    // cursorより後で、まだ落ち着いていないが送り済みのseq
+    private final NavigableSet<Long> sentUnsettled = new TreeSet<>();
+
+    private long lastSentNanos = System.nanoTime();
+
+    public AnimeChangeStream(AnimeChangeService animeChangeService,
+                             @Value("${anime.changes.poll-interval:1s}") Duration pollInterval,
+                             @Value("${anime.changes.stream-timeout:30m}") Duration streamTimeout) {
+        this.animeChangeService = animeChangeService;
+        this.timeoutMillis = streamTimeout.toMillis();
+        this.pollIntervalMillis = pollInterval.toMillis();
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "anime-change-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * sinceより後の送り済みの変更を送ってから購読者に加える。sinceを省略した場合は今後の変更だけを送る。
+     * 呼び出したスレッドでは410を返すために圧縮の位置だけを読み、送り済みの変更の読み込みと送信は読み込みのスレッドで行う。
+     */
+    public SseEmitter subscribe(Long since) {
+        if (since != null) {
+            animeChangeService.requireRetained(since);
+        }
+        SseEmitter emitter = newEmitter();
+        emitter.onCompletion(() -> remove(emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> remove(emitter));
+        pending.add(new Subscription(emitter, since));
+        startPolling();
+        poller.execute(this::poll);
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAnimeChanged(AnimeChangedEvent event) {
+        if (!emitters.isEmpty()) {
+            poller.execute(this::poll);
+        }
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    int subscribers() {
+        return emitters.size();
+    }
+
+    synchronized void poll() {
+        try {
+            initialize();
+            boolean settledPrefix = true;
+            long from = cursor;
+            List<AnimeChange> changes;
+            do {
+                changes = animeChangeService.findChanges(from, READ_LIMIT);
+                for (AnimeChange change : changes) {
+                    long seq = change.getSeq();
+                    if (!sentUnsettled.contains(seq)) {
+                        broadcast(change);
+                    }
+                    if (settledPrefix && change.isSettled()) {
+                        cursor = seq;
+                    } else {
+                        settledPrefix = false;
+                        sentUnsettled.add(seq);
+                    }
+                    from = seq;
+                }
+            } while (changes.size() == READ_LIMIT);
+            sentUnsettled.headSet(cursor, true).clear();
+            admitPending();
+            heartbeat();
+            stopPollingIfIdle();
+        } catch (ChangesExpiredException e) {
+            // 止まっている間に削除の履歴が消えた。購読者には接続し直してもらい、410で全件の取り直しを促す
+            log.warn("anime change stream fell behind the compacted change log, closing {} subscribers", emitters.size());
+            emitters.forEach(SseEmitter::complete);
+            emitters.clear();
+            pending.forEach(subscription -> subscription.emitter().complete());
+            pending.clear();
+            cursor = -1;
+            sentUnsettled.clear();
+            stopPollingIfIdle();
+        } catch (RuntimeException e) {
+            log.warn("failed to read anime changes", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        poller.shutdownNow();
+        emitters.forEach(SseEmitter::complete);
+        pending.forEach(subscription -> subscription.emitter().complete());
+    }
+
+    private void startPolling() {
+        if (polling.get() != null) {
+            return;
+        }
+        ScheduledFuture<?> scheduled = poller.scheduleWithFixedDelay(
+                this::poll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        if (!polling.compareAndSet(null, scheduled)) {
+            scheduled.cancel(false);
+        }
+    }
+
+    /**
+     * 購読者がいなくなったら定期的な読み込みを止める。次に購読された時は最新の位置から読み直す。
+     */
+    private void stopPollingIfIdle() {
+        if (!emitters.isEmpty() || !pending.isEmpty()) {
+            return;
+        }
+        ScheduledFuture<?> scheduled = polling.getAndSet(null);
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        cursor = -1;
+        sentUnsettled.clear();
+        // 止める間に購読された場合は、その購読が止める前の読み込みを見ているかもしれないので始め直す
+        if (!pending.isEmpty()) {
+            startPolling();
+        }
+    }
+
+    private void remove(SseEmitter emitter) {
+        emitters.remove(emitter);
+        pending.removeIf(subscription -> subscription.emitter() == emitter);
+    }
+
+    /**
+     * 今回のpollで配った分までを送り、追いついた購読者から配る対象に加える。
+     */
+    private void admitPending() {
+        Subscription subscription;
+        while ((subscription = pending.poll()) != null) {
+            SseEmitter emitter = subscription.emitter();
+            try {
+                if (subscription.since() == null || catchUp(emitter, subscription.since())) {
+                    emitters.add(emitter);
+                }
+            } catch (ChangesExpiredException e) {
+                // 再接続すると410になり、全件の取り直しを促せる
+                emitter.complete();
+            } catch (RuntimeException e) {
+                log.warn("failed to catch up a subscriber of anime changes", e);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void initialize() {
+        if (cursor < 0) {
+            cursor = animeChangeService.latestSeq();
+        }
+    }
+
+    /**
+     * 1回に送るのはREAD_LIMIT件まで。それで追いつかない場合はすぐに再接続するよう伝えて閉じ、
+     * 再接続のLast-Event-IDから続きを送る。1つの購読者のためにレスポンスへ溜める量と、他の購読者を待たせる時間を抑える。
+     */
+    private boolean catchUp(SseEmitter emitter, long since) {
+        long last = sentUnsettled.isEmpty() ? cursor : Math.max(cursor, sentUnsettled.last());
+        if (since >= last) {
+            return true;
+        }
+        List<AnimeChange> changes = animeChangeService.findChanges(since, READ_LIMIT);
+        for (AnimeChange change : changes) {
+            long seq = change.getSeq();
+            if (seq > last) {
+                return true;
+            }
+            // まだ配っていない行は、購読者に加えた後のpollで届く
+            if ((seq <= cursor || sentUnsettled.contains(seq)) && !send(emitter, change)) {
+                return false;
+            }
+        }
+        if (changes.size() < READ_LIMIT || changes.get(changes.size() - 1).getSeq() == last) {
+            return true;
+        }
+        try {
+            emitter.send(SseEmitter.event().reconnectTime(0).comment("more changes, reconnect with Last-Event-ID"));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+        return false;
+    }
+
+    private void broadcast(AnimeChange change) {
+        for (SseEmitter emitter : emitters) {
+            if (!send(emitter, change)) {
+                emitters.remove(emitter);
+            }
+        }
+        lastSentNanos = System.nanoTime();
+    }
+
+    private void heartbeat() {
+        if (emitters.isEmpty() || System.nanoTime() - lastSentNanos < HEARTBEAT_INTERVAL_NANOS) {
+            return;
+        }
+        // 切れた接続はここで書き込みに失敗して外れる
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+                emitters.remove(emitter);
+            }
+        }
+        lastSentNanos = System.nanoTime();
+    }
+
+    private record Subscription(SseEmitter emitter, Long since) {
+    }
+
+    private static boolean send(SseEmitter emitter, AnimeChange change) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(change.getSeq()))
+                    .name("change")
+                    .data(change, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+}
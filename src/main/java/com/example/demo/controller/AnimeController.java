@@ -1,54 +1,316 @@
 package com.example.demo.controller;
 
+import com.example.demo.cache.AnimeListSnapshot;
+import com.example.demo.changes.AnimeChangeStream;
+import com.example.demo.dto.AnimeBatchItemResult;
+import com.example.demo.dto.AnimeBulkResult;
+import com.example.demo.dto.AnimeChangePage;
+import com.example.demo.dto.AnimeMultiGetResult;
+import com.example.demo.dto.AnimePage;
 import com.example.demo.entity.Anime;
+import com.example.demo.entity.GenreCount;
+import com.example.demo.exception.InvalidRequestException;
+import com.example.demo.exception.PreconditionFailedException;
 import com.example.demo.form.AnimeForm;
+import com.example.demo.form.AnimeUpdateForm;
+import com.example.demo.form.GenreChangeForm;
+import com.example.demo.idempotency.IdempotentRequests;
+import com.example.demo.search.AnimeSearchIndex;
+import com.example.demo.service.AnimeBatchService;
+import com.example.demo.service.AnimeChangeService;
 import com.example.demo.service.AnimeService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping(path = "/api/anime")
 public class AnimeController {
 
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private static final Pattern VERSION_ETAG = Pattern.compile("\"(\\d{1,9})\"");
+
     private final AnimeService animeService;
 
-    public AnimeController(AnimeService animeService) {
+    private final AnimeBatchService animeBatchService;
+
+    private final AnimeListSnapshot animeListSnapshot;
+
+    private final AnimeChangeService animeChangeService;
+
+    private final AnimeChangeStream animeChangeStream;
+
+    private final IdempotentRequests idempotentRequests;
+
+    private final Validator validator;
+
+    private final ObjectWriter animeWriter;
+
+    private final int defaultPageLimit;
+
+    private final int maxPageLimit;
+
+    private final int maxMultiGetIds;
+
+    private final int maxBatchItems;
+
+    public AnimeController(AnimeService animeService,
+                           AnimeBatchService animeBatchService,
+                           AnimeListSnapshot animeListSnapshot,
+                           AnimeChangeService animeChangeService,
+                           AnimeChangeStream animeChangeStream,
+                           IdempotentRequests idempotentRequests,
+                           Validator validator,
+                           ObjectMapper objectMapper,
+                           @Value("${anime.page.default-limit:20}") int defaultPageLimit,
+                           @Value("${anime.page.max-limit:100}") int maxPageLimit,
+                           @Value("${anime.multi-get.max-ids:100}") int maxMultiGetIds,
+                           @Value("${anime.batch.max-items:1000}") int maxBatchItems) {
         this.animeService = animeService;
+        this.animeBatchService = animeBatchService;
+        this.animeListSnapshot = animeListSnapshot;
+        this.animeChangeService = animeChangeService;
+        this.animeChangeStream = animeChangeStream;
+        this.idempotentRequests = idempotentRequests;
+        this.validator = validator;
+        this.animeWriter = objectMapper.writerFor(Anime.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.defaultPageLimit = defaultPageLimit;
+        this.maxPageLimit = maxPageLimit;
+        this.maxMultiGetIds = maxMultiGetIds;
+        this.maxBatchItems = maxBatchItems;
     }
 
     @GetMapping
-    public List<Anime> getAllAnime() {
-        return animeService.getAllAnime();
+    public ResponseEntity<byte[]> getAllAnime(@RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // ETagを付けて返すとIf-None-Matchが一致した場合は304になる
+        AnimeListSnapshot.Snapshot snapshot = animeListSnapshot.current();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(acceptEncoding)) {
+            return response.eTag(snapshot.gzipEtag())
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(snapshot.gzip());
+        }
+        return response.eTag(snapshot.etag()).body(snapshot.json());
+    }
+
+    /**
+     * Accept-Encodingのgzipか*のq値が0より大きい場合にgzipを返す。gzipの指定があれば*より優先する。
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].strip().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].strip();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).strip());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip")) {
+                gzip = quality;
+            } else if (name.equals("*")) {
+                any = quality;
+            }
+        }
+        double quality = gzip != null ? gzip : any != null ? any : 0;
+        return quality > 0;
+    }
+
+    @GetMapping(params = {"after", "!genre"})
+    public AnimePage getAnimePage(@RequestParam(name = "after", defaultValue = "0") Integer after,
+                                  @RequestParam(name = "limit", required = false) Integer limit) {
+        return animeService.getAnimePage(after, pageLimit(limit));
+    }
+
+    @GetMapping(params = "genre")
+    public AnimePage getAnimePageByGenre(@RequestParam("genre") String genre,
+                                         @RequestParam(name = "after", defaultValue = "0") Integer after,
+                                         @RequestParam(name = "limit", required = false) Integer limit) {
+        return animeService.getAnimePageByGenre(genre, after, pageLimit(limit));
+    }
+
+    @GetMapping(path = "search")
+    public List<Anime> searchAnime(@RequestParam("q") String query,
+                                   @RequestParam(name = "limit", required = false) Integer limit) {
+        String stripped = query.strip();
+        if (stripped.codePointCount(0, stripped.length()) < AnimeSearchIndex.MIN_QUERY_LENGTH) {
+            throw new InvalidRequestException("q must be at least " + AnimeSearchIndex.MIN_QUERY_LENGTH + " characters");
+        }
+        return animeService.searchAnime(stripped, pageLimit(limit));
+    }
+
+    @GetMapping(path = "genres")
+    public List<GenreCount> getGenreCounts() {
+        return animeService.getGenreCounts();
+    }
+
+    @GetMapping(path = "changes")
+    public AnimeChangePage getChanges(@RequestParam(name = "since", required = false) Long since,
+                                      @RequestParam(name = "limit", required = false) Integer limit) {
+        if (since != null && since < 0) {
+            throw new InvalidRequestException("since must not be negative");
+        }
+        return animeChangeService.getChanges(since, pageLimit(limit));
+    }
+
+    @GetMapping(path = "changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(name = "since", required = false) Long since,
+                                    @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        // 再接続したブラウザは最後に受け取ったイベントのidを送ってくる
+        Long from = lastEventId != null ? lastEventId : since;
+        if (from != null && from < 0) {
+            throw new InvalidRequestException("since must not be negative");
+        }
+        return animeChangeStream.subscribe(from);
+    }
+
+    @GetMapping(params = "ids")
+    public AnimeMultiGetResult getAnimeList(@RequestParam("ids") List<Integer> ids) {
+        if (ids.stream().distinct().count() > maxMultiGetIds) {
+            throw new InvalidRequestException("ids must not exceed " + maxMultiGetIds);
+        }
+        return animeService.getAnimeList(ids);
+    }
+
+    @GetMapping(path = "export", produces = APPLICATION_NDJSON_VALUE)
+    public void exportAnime(HttpServletResponse response) throws IOException {
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        OutputStream out = response.getOutputStream();
+        animeService.exportAnime(anime -> {
+            try {
+                animeWriter.writeValue(out, anime);
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
     }
 
     @GetMapping(path = "{animeId}")
-    public Anime getAnime(@PathVariable("animeId") Integer id) {
-        return animeService.getAnime(id);
+    public ResponseEntity<Anime> getAnime(@PathVariable("animeId") Integer id) {
+        Anime anime = animeService.getAnime(id);
+        if (anime.getVersion() == null) {
+            return ResponseEntity.ok(anime);
+        }
+        return ResponseEntity.ok().eTag(etag(anime.getVersion())).body(anime);
     }
 
     @PostMapping
-    public ResponseEntity<String> registerAnime(@Valid @RequestBody AnimeForm animeForm) {
-        animeService.registerAnime(animeForm.getName(), animeForm.getGenre());
-        URI url = UriComponentsBuilder.fromUriString("http://localhost:8080")
-                .path("api/anime/")
-                .build()
-                .toUri();
-        return ResponseEntity.created(url).body("anime successfully created");
+    public ResponseEntity<String> registerAnime(@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+                                                @Valid @RequestBody AnimeForm animeForm) {
+        if (idempotencyKey == null) {
+            return createAnime(animeForm);
+        }
+        // 再送には最初のレスポンスを返し、AnimeServiceは呼ばない
+        return idempotentRequests.execute(idempotencyKey,
+                IdempotentRequests.fingerprint(animeForm.getName(), animeForm.getGenre()),
+                () -> createAnime(animeForm));
+    }
+
+    @PostMapping(path = "batch")
+    public List<AnimeBatchItemResult> registerAnimeBatch(@RequestBody List<AnimeForm> animeForms) {
+        checkBatchSize(animeForms.size());
+        AnimeBatchItemResult[] results = new AnimeBatchItemResult[animeForms.size()];
+        List<Integer> validIndexes = new ArrayList<>();
+        List<Anime> validAnime = new ArrayList<>();
+        for (int i = 0; i < animeForms.size(); i++) {
+            Map<String, String> errors = validate(animeForms.get(i));
+            if (errors.isEmpty()) {
+                validIndexes.add(i);
+                validAnime.add(new Anime(animeForms.get(i).getName(), animeForms.get(i).getGenre()));
+            } else {
+                results[i] = AnimeBatchItemResult.rejected(i, errors);
+            }
+        }
+        List<Integer> ids = animeBatchService.registerAnimeBatch(validAnime);
+        for (int i = 0; i < validIndexes.size(); i++) {
+            results[validIndexes.get(i)] = ids.get(i) == null
+                    ? AnimeBatchItemResult.failed(validIndexes.get(i))
+                    : AnimeBatchItemResult.created(validIndexes.get(i), ids.get(i));
+        }
+        return List.of(results);
+    }
+
+    @PatchMapping
+    public AnimeBulkResult updateAnimeBatch(@RequestBody List<AnimeUpdateForm> animeForms) {
+        checkBatchSize(animeForms.size());
+        List<AnimeBatchItemResult> errors = new ArrayList<>();
+        List<Anime> validAnime = new ArrayList<>();
+        for (int i = 0; i < animeForms.size(); i++) {
+            Map<String, String> formErrors = validate(animeForms.get(i));
+            if (formErrors.isEmpty()) {
+                AnimeUpdateForm animeForm = animeForms.get(i);
+                validAnime.add(new Anime(animeForm.getId(), animeForm.getName(), animeForm.getGenre()));
+            } else {
+                errors.add(AnimeBatchItemResult.rejected(i, formErrors));
+            }
+        }
+        return animeBatchService.updateAnimeBatch(validAnime).withErrors(errors);
+    }
+
+    @PatchMapping(path = "genres")
+    public AnimeBulkResult changeGenre(@Valid @RequestBody GenreChangeForm genreChangeForm) {
+        int affected = animeBatchService.changeGenre(genreChangeForm.getFrom(), genreChangeForm.getTo());
+        return new AnimeBulkResult(affected, List.of());
     }
 
     @PatchMapping(path = "{animeId}")
-    public ResponseEntity<String> updateAnime(@PathVariable("animeId") Integer id, @Valid @RequestBody AnimeForm animeForm) {
-        animeService.updateAnime(id, animeForm.getName(), animeForm.getGenre());
+    public ResponseEntity<String> updateAnime(@PathVariable("animeId") Integer id,
+                                              @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              @Valid @RequestBody AnimeForm animeForm) {
         URI url = UriComponentsBuilder.fromUriString("http://localhost:8080")
                 .path("api/anime/" + id)
                 .build()
                 .toUri();
-        return ResponseEntity.created(url).body("anime successfully updated");
+        if (ifMatch == null || ifMatch.strip().equals("*")) {
+            animeService.updateAnime(id, animeForm.getName(), animeForm.getGenre());
+            return ResponseEntity.created(url).body("anime successfully updated");
+        }
+        int version = animeService.updateAnimeIfMatch(id, animeForm.getName(), animeForm.getGenre(), ifMatchVersion(ifMatch));
+        return ResponseEntity.created(url).eTag(etag(version)).body("anime successfully updated");
     }
 
     @DeleteMapping(path = "{animeId}")
@@ -60,4 +322,58 @@ public class AnimeController {
                 .toUri();
         return ResponseEntity.created(url).body("anime successfully deleted");
     }
+
+    @DeleteMapping(params = "ids")
+    public AnimeBulkResult deleteAnimeBatch(@RequestParam("ids") List<Integer> ids) {
+        checkBatchSize(ids.size());
+        return animeBatchService.deleteAnimeBatch(ids);
+    }
+
+    private void checkBatchSize(int size) {
+        if (size > maxBatchItems) {
+            throw new InvalidRequestException("batch must not exceed " + maxBatchItems + " items");
+        }
+    }
+
+    private ResponseEntity<String> createAnime(AnimeForm animeForm) {
+        animeService.registerAnime(animeForm.getName(), animeForm.getGenre());
+        URI url = UriComponentsBuilder.fromUriString("http://localhost:8080")
+                .path("api/anime/")
+                .build()
+                .toUri();
+        return ResponseEntity.created(url).body("anime successfully created");
+    }
+
+    private Map<String, String> validate(AnimeForm animeForm) {
+        Map<String, String> errors = new TreeMap<>();
+        if (animeForm == null) {
+            errors.put("anime", "cannot be empty");
+            return errors;
+        }
+        Set<ConstraintViolation<AnimeForm>> violations = validator.validate(animeForm);
+        violations.forEach(violation -> errors.put(violation.getPropertyPath().toString(), violation.getMessage()));
+        return errors;
+    }
+
+    private static String etag(int version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * If-Matchは強い比較なので、弱いETagや複数の値は一致しないものとして412にする。
+     */
+    private static int ifMatchVersion(String ifMatch) {
+        Matcher matcher = VERSION_ETAG.matcher(ifMatch.strip());
+        if (!matcher.matches()) {
+            throw new PreconditionFailedException("resource has been modified");
+        }
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    private int pageLimit(Integer limit) {
+        if (limit == null || limit < 1) {
+            return defaultPageLimit;
+        }
+        return Math.min(limit, maxPageLimit);
+    }
 }
@@ -0,0 +1,17 @@
+package com.example.demo.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * レプリカから読んでよいメソッドに付ける。
+ * レプリカを設定していない時は何もしないので、トランザクションを張らずに済む。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReplicaRead {
+}
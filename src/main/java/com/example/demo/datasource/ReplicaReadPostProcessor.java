@@ -0,0 +1,29 @@
+package com.example.demo.datasource;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+
+/**
+ * {@link ReplicaRead} の付いたメソッドの実行中だけ、接続をレプリカから取るようにする。
+ */
+public class ReplicaReadPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+    public ReplicaReadPostProcessor() {
+        MethodInterceptor interceptor = invocation -> {
+            if (ReplicaRouting.isReplicaPreferred()) {
+                return invocation.proceed();
+            }
+            ReplicaRouting.preferReplica();
+            try {
+                return invocation.proceed();
+            } finally {
+                ReplicaRouting.clear();
+            }
+        };
+        this.advisor = new DefaultPointcutAdvisor(AnnotationMatchingPointcut.forMethodAnnotation(ReplicaRead.class), interceptor);
+        setBeforeExistingAdvisors(true);
+        setProxyTargetClass(true);
+    }
+}
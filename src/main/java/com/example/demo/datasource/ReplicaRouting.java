@@ -0,0 +1,39 @@
+package com.example.demo.datasource;
+
+/**
+ * 現在のスレッドの読み取りをどこへ向けるか。
+ * レプリカを選べるのは {@link ReplicaRead} の実行中で、書き込んだばかりのクライアントのリクエストでない時だけ。
+ */
+public final class ReplicaRouting {
+
+    private static final ThreadLocal<Boolean> REPLICA_PREFERRED = new ThreadLocal<>();
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private ReplicaRouting() {
+    }
+
+    static void preferReplica() {
+        REPLICA_PREFERRED.set(Boolean.TRUE);
+    }
+
+    static boolean isReplicaPreferred() {
+        return REPLICA_PREFERRED.get() != null;
+    }
+
+    static void clear() {
+        REPLICA_PREFERRED.remove();
+    }
+
+    static void requirePrimary() {
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+    }
+
+    static void clearPrimaryRequired() {
+        PRIMARY_REQUIRED.remove();
+    }
+
+    public static boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get() != null;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.demo.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * {@link ReplicaRead} の実行中と読み取り専用トランザクションの接続をレプリカから、それ以外をプライマリから取る。
+ * トランザクション開始時には読み取り専用かどうかがまだ分からないので、
+ * LazyConnectionDataSourceProxyで包んで最初の文を発行する時に接続を取る。
+ *
+ * <p>レプリカは一定間隔で接続を確認し、応答しないものは回復するまで使わない。
+ * 接続の取得に失敗した時もそのレプリカを外し、その場でプライマリから取り直す。
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private final DataSource primary;
+
+    private final List<DataSource> replicas;
+
+    /**
+     * レプリカごとの状態。1なら使える。
+     */
+    private final AtomicIntegerArray healthy;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final ScheduledExecutorService healthChecker;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration healthCheckInterval) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.healthy = new AtomicIntegerArray(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            healthy.set(i, 1);
+        }
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = healthCheckInterval.toMillis();
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!useReplica()) {
+            return primary.getConnection();
+        }
+        int replica = nextHealthyReplica();
+        if (replica < 0) {
+            return primary.getConnection();
+        }
+        try {
+            return replicas.get(replica).getConnection();
+        } catch (SQLException e) {
+            markDown(replica, e);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * プライマリ、レプリカの順に振り分け先を返す。
+     */
+    public List<DataSource> getTargetDataSources() {
+        List<DataSource> targets = new ArrayList<>(replicas.size() + 1);
+        targets.add(primary);
+        targets.addAll(replicas);
+        return targets;
+    }
+
+    private static boolean useReplica() {
+        if (ReplicaRouting.isPrimaryRequired()) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        }
+        return ReplicaRouting.isReplicaPreferred();
+    }
+
+    private int nextHealthyReplica() {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int replica = (start + i) % replicas.size();
+            if (healthy.get(replica) == 1) {
+                return replica;
+            }
+        }
+        return -1;
+    }
+
+    void checkReplicas() {
+        for (int i = 0; i < replicas.size(); i++) {
+            try (Connection connection = replicas.get(i).getConnection()) {
+                if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    if (healthy.getAndSet(i, 1) == 0) {
+                        log.info("replica {} is back in rotation", i);
+                    }
+                } else {
+                    markDown(i, null);
+                }
+            } catch (SQLException e) {
+                markDown(i, e);
+            }
+        }
+    }
+
+    private void markDown(int replica, SQLException cause) {
+        if (healthy.getAndSet(replica, 0) == 1) {
+            log.warn("replica {} is out of rotation, reading from primary", replica, cause);
+        }
+    }
+
+    boolean isHealthy(int replica) {
+        return healthy.get(replica) == 1;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        healthChecker.shutdownNow();
+        for (DataSource dataSource : replicas) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.demo.diagnostics;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 1つのHTTPリクエストの中で実行された文と引数の組を数える。
+ */
+final class RequestStatementTracker {
+
+    private static final ThreadLocal<RequestStatementTracker> CURRENT = new ThreadLocal<>();
+
+    private final String requestUri;
+
+    private final Map<List<Object>, Integer> counts = new HashMap<>();
+
+    private RequestStatementTracker(String requestUri) {
+        this.requestUri = requestUri;
+    }
+
+    static void begin(String requestUri) {
+        CURRENT.set(new RequestStatementTracker(requestUri));
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    static RequestStatementTracker current() {
+        return CURRENT.get();
+    }
+
+    String getRequestUri() {
+        return requestUri;
+    }
+
+    /**
+     * 同じ文と引数の組が2回目に実行された時だけtrueを返す。
+     */
+    boolean recordAndCheckRepeated(String statementId, List<Object> parameters) {
+        return counts.merge(List.of(statementId, parameters), 1, Integer::sum) == 2;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.diagnostics;
+
+import java.io.IOException;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * 同じ文の繰り返しを検出するため、リクエストごとに実行した文と引数を記録する。
+ * 文ごとにSQLの組み立てと引数の取り出しが増えるので、調査する時だけ有効にする。
+ */
+@Component
+@ConditionalOnProperty(name = "anime.diagnostics.repeated-statements", havingValue = "true")
+public class RequestStatementTrackingFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestStatementTracker.begin(request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestStatementTracker.end();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.demo.diagnostics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * 閾値を超えた文と、1リクエスト内で同じ引数のまま繰り返された文を記録する。
+ * 遅い文のEXPLAINはリクエストを待たせないよう別スレッド・別コネクションで取得する。
+ * 繰り返しの検出は RequestStatementTrackingFilter が有効な時だけ行う。
+ * 引数の値は include-parameters が true の時だけ記録に残し、EXPLAINにはそれによらず使う。
+ */
+@Component
+@Profile("!reactive")
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class StatementDiagnosticsInterceptor implements Interceptor, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementDiagnosticsInterceptor.class);
+
+    private static final String APPLICATION_PACKAGE = "com.example.demo.";
+
+    private final DataSource dataSource;
+
+    private final StatementFindingLog findingLog;
+
+    private final long thresholdNanos;
+
+    private final boolean explain;
+
+    private final boolean includeParameters;
+
+    private final ThreadPoolExecutor explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(100), new ThreadPoolExecutor.DiscardPolicy());
+
+    public StatementDiagnosticsInterceptor(DataSource dataSource,
+                                           StatementFindingLog findingLog,
+                                           @Value("${anime.diagnostics.slow-statement-threshold:200ms}") Duration threshold,
+                                           @Value("${anime.diagnostics.explain:true}") boolean explain,
+                                           @Value("${anime.diagnostics.include-parameters:false}") boolean includeParameters) {
+        this.dataSource = dataSource;
+        this.findingLog = findingLog;
+        this.thresholdNanos = threshold.toNanos();
+        this.explain = explain;
+        this.includeParameters = includeParameters;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
+        Object parameter = invocation.getArgs()[1];
+        RequestStatementTracker tracker = RequestStatementTracker.current();
+        BoundSql boundSql = null;
+        List<Object> parameters = null;
+        if (tracker != null) {
+            boundSql = mappedStatement.getBoundSql(parameter);
+            parameters = parameterValues(mappedStatement.getConfiguration(), boundSql, parameter);
+            if (tracker.recordAndCheckRepeated(mappedStatement.getId(), parameters)) {
+                findingLog.add(new StatementFinding(StatementFinding.Type.REPEATED, Instant.now(), mappedStatement.getId(),
+                        boundSql.getSql(), recorded(parameters), 0, tracker.getRequestUri(), callPath(), null));
+            }
+        }
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            if (elapsed >= thresholdNanos) {
+                if (boundSql == null) {
+                    boundSql = mappedStatement.getBoundSql(parameter);
+                    parameters = parameterValues(mappedStatement.getConfiguration(), boundSql, parameter);
+                }
+                recordSlow(mappedStatement.getId(), boundSql.getSql(), parameters, elapsed, tracker);
+            }
+        }
+    }
+
+    private void recordSlow(String statementId, String sql, List<Object> parameters, long elapsedNanos,
+                            RequestStatementTracker tracker) {
+        StatementFinding finding = new StatementFinding(StatementFinding.Type.SLOW, Instant.now(), statementId,
+                sql, recorded(parameters), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                tracker == null ? null : tracker.getRequestUri(), callPath(), null);
+        if (!explain) {
+            findingLog.add(finding);
+            return;
+        }
+        explainExecutor.execute(() -> findingLog.add(finding.withExplain(explain(sql, parameters))));
+    }
+
+    private List<Object> recorded(List<Object> parameters) {
+        return includeParameters ? parameters : null;
+    }
+
+    private List<Map<String, Object>> explain(String sql, List<Object> parameters) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            List<Map<String, Object>> rows = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                while (resultSet.next()) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                        row.put(metaData.getColumnLabel(column), resultSet.getObject(column));
+                    }
+                    rows.add(row);
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            log.warn("EXPLAIN failed: {}", sql, e);
+            return List.of(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    private static List<Object> parameterValues(Configuration configuration, BoundSql boundSql, Object parameter) {
+        List<Object> values = new ArrayList<>(boundSql.getParameterMappings().size());
+        MetaObject metaObject = null;
+        for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+            String property = parameterMapping.getProperty();
+            if (boundSql.hasAdditionalParameter(property)) {
+                values.add(boundSql.getAdditionalParameter(property));
+            } else if (parameter == null) {
+                values.add(null);
+            } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameter.getClass())) {
+                values.add(parameter);
+            } else {
+                if (metaObject == null) {
+                    metaObject = configuration.newMetaObject(parameter);
+                }
+                values.add(metaObject.getValue(property));
+            }
+        }
+        return values;
+    }
+
+    private static List<String> callPath() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE))
+                .filter(frame -> !frame.getClassName().equals(StatementDiagnosticsInterceptor.class.getName()))
+                .filter(frame -> !frame.getClassName().contains("$$"))
+                .map(frame -> frame.getClassName().substring(APPLICATION_PACKAGE.length())
+                        + "." + frame.getMethodName() + ":" + frame.getLineNumber())
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public void destroy() {
+        explainExecutor.shutdownNow();
+    }
+}
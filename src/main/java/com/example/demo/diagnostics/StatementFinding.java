@@ -0,0 +1,77 @@
+package com.example.demo.diagnostics;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public class StatementFinding {
+
+    public enum Type {
+        SLOW,
+        REPEATED
+    }
+
+    private final Type type;
+    private final Instant timestamp;
+    private final String statementId;
+    private final String sql;
+    private final List<Object> parameters;
+    private final long elapsedMillis;
+    private final String requestUri;
+    private final List<String> callPath;
+    private final List<Map<String, Object>> explain;
+
+    public StatementFinding(Type type, Instant timestamp, String statementId, String sql, List<Object> parameters,
+                            long elapsedMillis, String requestUri, List<String> callPath,
+                            List<Map<String, Object>> explain) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.statementId = statementId;
+        this.sql = sql;
+        this.parameters = parameters;
+        this.elapsedMillis = elapsedMillis;
+        this.requestUri = requestUri;
+        this.callPath = callPath;
+        this.explain = explain;
+    }
+
+    public StatementFinding withExplain(List<Map<String, Object>> explain) {
+        return new StatementFinding(type, timestamp, statementId, sql, parameters, elapsedMillis, requestUri, callPath, explain);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public String getStatementId() {
+        return statementId;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public String getRequestUri() {
+        return requestUri;
+    }
+
+    public List<String> getCallPath() {
+        return callPath;
+    }
+
+    public List<Map<String, Object>> getExplain() {
+        return explain;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.demo.diagnostics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 直近の検出結果だけを保持するリングバッファ。
+ */
+@Component
+public class StatementFindingLog {
+
+    private final Deque<StatementFinding> findings;
+
+    private final int capacity;
+
+    public StatementFindingLog(@Value("${anime.diagnostics.buffer-size:200}") int capacity) {
+        this.findings = new ArrayDeque<>(capacity);
+        this.capacity = capacity;
+    }
+
+    public synchronized void add(StatementFinding finding) {
+        if (findings.size() == capacity) {
+            findings.removeFirst();
+        }
+        findings.addLast(finding);
+    }
+
+    public synchronized List<StatementFinding> findings() {
+        List<StatementFinding> latestFirst = new ArrayList<>(findings);
+        Collections.reverse(latestFirst);
+        return latestFirst;
+    }
+
+    public synchronized void clear() {
+        findings.clear();
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.diagnostics;
+
+import java.util.List;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+@Component
+@Endpoint(id = "statements")
+public class StatementFindingsEndpoint {
+
+    private final StatementFindingLog findingLog;
+
+    public StatementFindingsEndpoint(StatementFindingLog findingLog) {
+        this.findingLog = findingLog;
+    }
+
+    @ReadOperation
+    public List<StatementFinding> findings(@Nullable StatementFinding.Type type) {
+        List<StatementFinding> findings = findingLog.findings();
+        if (type == null) {
+            return findings;
+        }
+        return findings.stream().filter(finding -> finding.getType() == type).toList();
+    }
+
+    @DeleteOperation
+    public void clear() {
+        findingLog.clear();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.Map;
+import java.util.Objects;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AnimeBatchItemResult {
+    private final int index;
+    private final Integer id;
+    private final Map<String, String> errors;
+
+    private AnimeBatchItemResult(int index, Integer id, Map<String, String> errors) {
+        this.index = index;
+        this.id = id;
+        this.errors = errors;
+    }
+
+    public static AnimeBatchItemResult created(int index, Integer id) {
+        return new AnimeBatchItemResult(index, id, null);
+    }
+
+    public static AnimeBatchItemResult rejected(int index, Map<String, String> errors) {
+        return new AnimeBatchItemResult(index, null, errors);
+    }
+
+    /**
+     * 正しい要素だったが、同じチャンクの登録に失敗して登録されなかった。再送すれば登録し直せる。
+     */
+    public static AnimeBatchItemResult failed(int index) {
+        return new AnimeBatchItemResult(index, null, Map.of("anime", "registration failed"));
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AnimeBatchItemResult that = (AnimeBatchItemResult) o;
+        return index == that.index
+                && Objects.equals(id, that.id)
+                && Objects.equals(errors, that.errors);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(index, id, errors);
+    }
+}
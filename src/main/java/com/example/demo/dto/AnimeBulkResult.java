@@ -0,0 +1,54 @@
+package com.example.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import java.util.Objects;
+
+public class AnimeBulkResult {
+    private final int affected;
+    private final List<Integer> notFound;
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private final List<AnimeBatchItemResult> errors;
+
+    public AnimeBulkResult(int affected, List<Integer> notFound) {
+        this(affected, notFound, List.of());
+    }
+
+    public AnimeBulkResult(int affected, List<Integer> notFound, List<AnimeBatchItemResult> errors) {
+        this.affected = affected;
+        this.notFound = notFound;
+        this.errors = errors;
+    }
+
+    public AnimeBulkResult withErrors(List<AnimeBatchItemResult> errors) {
+        return new AnimeBulkResult(affected, notFound, errors);
+    }
+
+    public int getAffected() {
+        return affected;
+    }
+
+    public List<Integer> getNotFound() {
+        return notFound;
+    }
+
+    public List<AnimeBatchItemResult> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AnimeBulkResult that = (AnimeBulkResult) o;
+        return affected == that.affected
+                && Objects.equals(notFound, that.notFound)
+                && Objects.equals(errors, that.errors);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(affected, notFound, errors);
+    }
+}
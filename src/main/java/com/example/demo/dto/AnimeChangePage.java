@@ -0,0 +1,45 @@
+package com.example.demo.dto;
+
+import com.example.demo.entity.AnimeChange;
+import java.util.List;
+import java.util.Objects;
+
+public class AnimeChangePage {
+    private final List<AnimeChange> changes;
+    private final long next;
+    private final boolean hasMore;
+
+    public AnimeChangePage(List<AnimeChange> changes, long next, boolean hasMore) {
+        this.changes = changes;
+        this.next = next;
+        this.hasMore = hasMore;
+    }
+
+    public List<AnimeChange> getChanges() {
+        return changes;
+    }
+
+    public long getNext() {
+        return next;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AnimeChangePage that = (AnimeChangePage) o;
+        return next == that.next
+                && hasMore == that.hasMore
+                && Objects.equals(changes, that.changes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(changes, next, hasMore);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.dto;
+
+import com.example.demo.entity.Anime;
+import java.util.List;
+import java.util.Objects;
+
+public class AnimeMultiGetResult {
+    private final List<Anime> items;
+    private final List<Integer> missing;
+
+    public AnimeMultiGetResult(List<Anime> items, List<Integer> missing) {
+        this.items = items;
+        this.missing = missing;
+    }
+
+    public List<Anime> getItems() {
+        return items;
+    }
+
+    public List<Integer> getMissing() {
+        return missing;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AnimeMultiGetResult that = (AnimeMultiGetResult) o;
+        return Objects.equals(items, that.items)
+                && Objects.equals(missing, that.missing);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(items, missing);
+    }
+}
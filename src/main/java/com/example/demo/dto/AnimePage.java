@@ -0,0 +1,38 @@
+package com.example.demo.dto;
+
+import com.example.demo.entity.Anime;
+import java.util.List;
+import java.util.Objects;
+
+public class AnimePage {
+    private final List<Anime> items;
+    private final Integer nextCursor;
+
+    public AnimePage(List<Anime> items, Integer nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Anime> getItems() {
+        return items;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AnimePage animePage = (AnimePage) o;
+        return Objects.equals(items, animePage.items)
+                && Objects.equals(nextCursor, animePage.nextCursor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(items, nextCursor);
+    }
+}
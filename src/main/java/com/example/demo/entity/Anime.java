@@ -1,11 +1,26 @@
 package com.example.demo.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.time.LocalDateTime;
 import java.util.Objects;
 
 public class Anime {
     private Integer id;
     private String name;
     private String genre;
+    // 楽観的排他制御用。ETagとして返すためレスポンスの本文には含めない
+    @JsonIgnore
+    private Integer version;
+    @JsonIgnore
+    private LocalDateTime updatedAt;
+
+    public Anime(Integer id, String name, String genre, Integer version, LocalDateTime updatedAt) {
+        this.id = id;
+        this.name = name;
+        this.genre = genre;
+        this.version = version;
+        this.updatedAt = updatedAt;
+    }
 
     public Anime(Integer id, String name, String genre) {
         this.id = id;
@@ -33,15 +48,27 @@ public class Anime {
         return genre;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
     @Override
     public String toString() {
         return "Anime{" +
                 "id=" + id +
                 ", name='" + name + '\'' +
                 ", genre='" + genre + '\'' +
+                ", version=" + version +
                 '}';
     }
 
+    /**
+     * 内容で比較する。versionとupdatedAtは行の更新履歴なので比較に含めない。
+     */
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
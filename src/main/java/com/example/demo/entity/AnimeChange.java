@@ -0,0 +1,91 @@
+package com.example.demo.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.Objects;
+
+/**
+ * anime_change の1行。削除はnameとgenreを持たないトゥームストーンになる。
+ */
+public class AnimeChange {
+
+    public enum Type {
+        UPSERT,
+        DELETE
+    }
+
+    private Long seq;
+    private Type type;
+    private Integer id;
+    private String name;
+    private String genre;
+    // 追記から一定時間が過ぎ、これより小さいseqの行が後からコミットされることはないとみなせるか
+    @JsonIgnore
+    private boolean settled;
+
+    public AnimeChange(Long seq, Type type, Integer id, String name, String genre, boolean settled) {
+        this.seq = seq;
+        this.type = type;
+        this.id = id;
+        this.name = name;
+        this.genre = genre;
+        this.settled = settled;
+    }
+
+    public AnimeChange() {
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public boolean isSettled() {
+        return settled;
+    }
+
+    @Override
+    public String toString() {
+        return "AnimeChange{" +
+                "seq=" + seq +
+                ", type=" + type +
+                ", id=" + id +
+                ", name='" + name + '\'' +
+                ", genre='" + genre + '\'' +
+                ", settled=" + settled +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AnimeChange that = (AnimeChange) o;
+        return settled == that.settled
+                && Objects.equals(seq, that.seq)
+                && type == that.type
+                && Objects.equals(id, that.id)
+                && Objects.equals(name, that.name)
+                && Objects.equals(genre, that.genre);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(seq, type, id, name, genre, settled);
+    }
+}
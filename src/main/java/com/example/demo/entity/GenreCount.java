@@ -0,0 +1,47 @@
+package com.example.demo.entity;
+
+import java.util.Objects;
+
+public class GenreCount {
+    private String genre;
+    private Long count;
+
+    public GenreCount(String genre, Long count) {
+        this.genre = genre;
+        this.count = count;
+    }
+
+    public GenreCount() {
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public Long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "GenreCount{" +
+                "genre='" + genre + '\'' +
+                ", count=" + count +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        GenreCount that = (GenreCount) o;
+        return Objects.equals(genre, that.genre)
+                && Objects.equals(count, that.count);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(genre, count);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.entity;
+
+/**
+ * 採番表から確保したidの範囲。end はブロックの次のid（範囲に含まない）で、確保した時にDBから設定される。
+ */
+public class IdBlock {
+    private int size;
+    private long end;
+
+    public IdBlock(int size) {
+        this.size = size;
+    }
+
+    public IdBlock() {
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getStart() {
+        return end - size;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.event;
+
+import com.example.demo.entity.Anime;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+public class AnimeChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+
+    private final List<Anime> anime;
+
+    public AnimeChangedEvent(Type type, List<Anime> anime) {
+        this.type = type;
+        this.anime = List.copyOf(anime);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public List<Anime> getAnime() {
+        return anime;
+    }
+
+    public List<Integer> getIds() {
+        return anime.stream()
+                .map(Anime::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+        return "AnimeChangedEvent{" +
+                "type=" + type +
+                ", anime=" + anime +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AnimeChangedEvent that = (AnimeChangedEvent) o;
+        return type == that.type
+                && Objects.equals(anime, that.anime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, anime);
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.demo.exception;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -12,6 +15,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 @RestControllerAdvice
+@Profile("!reactive")
 public class CustomExceptionHandler {
 
     @ExceptionHandler(value = ResourceNotFoundException.class)
@@ -25,6 +29,73 @@ public class CustomExceptionHandler {
         return new ResponseEntity(body, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(value = InvalidRequestException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidRequest(InvalidRequestException e, HttpServletRequest request) {
+        Map<String, String> body = Map.of(
+                "timestamp", ZonedDateTime.now().toString(),
+                "status", String.valueOf(HttpStatus.BAD_REQUEST.value()),
+                "error", HttpStatus.BAD_REQUEST.getReasonPhrase(),
+                "message", e.getMessage(),
+                "path", request.getRequestURI());
+        return new ResponseEntity(body, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(value = PreconditionFailedException.class)
+    public ResponseEntity<Map<String, String>> handlePreconditionFailed(PreconditionFailedException e, HttpServletRequest request) {
+        Map<String, String> body = Map.of(
+                "timestamp", ZonedDateTime.now().toString(),
+                "status", String.valueOf(HttpStatus.PRECONDITION_FAILED.value()),
+                "error", HttpStatus.PRECONDITION_FAILED.getReasonPhrase(),
+                "message", e.getMessage(),
+                "path", request.getRequestURI());
+        return new ResponseEntity(body, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(value = ChangesExpiredException.class)
+    public ResponseEntity<Map<String, String>> handleChangesExpired(ChangesExpiredException e, HttpServletRequest request) {
+        Map<String, String> body = Map.of(
+                "timestamp", ZonedDateTime.now().toString(),
+                "status", String.valueOf(HttpStatus.GONE.value()),
+                "error", HttpStatus.GONE.getReasonPhrase(),
+                "message", e.getMessage(),
+                "path", request.getRequestURI());
+        return new ResponseEntity(body, HttpStatus.GONE);
+    }
+
+    @ExceptionHandler(value = IdempotencyKeyReusedException.class)
+    public ResponseEntity<Map<String, String>> handleIdempotencyKeyReused(IdempotencyKeyReusedException e, HttpServletRequest request) {
+        Map<String, String> body = Map.of(
+                "timestamp", ZonedDateTime.now().toString(),
+                "status", String.valueOf(HttpStatus.UNPROCESSABLE_ENTITY.value()),
+                "error", HttpStatus.UNPROCESSABLE_ENTITY.getReasonPhrase(),
+                "message", e.getMessage(),
+                "path", request.getRequestURI());
+        return new ResponseEntity(body, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @ExceptionHandler(value = TooManyRequestsException.class)
+    public ResponseEntity<Map<String, String>> handleTooManyRequests(TooManyRequestsException e, HttpServletRequest request) {
+        return rejected(HttpStatus.TOO_MANY_REQUESTS, e.getMessage(), e.getRetryAfter(), request);
+    }
+
+    @ExceptionHandler(value = ServiceOverloadedException.class)
+    public ResponseEntity<Map<String, String>> handleServiceOverloaded(ServiceOverloadedException e, HttpServletRequest request) {
+        return rejected(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e.getRetryAfter(), request);
+    }
+
+    private ResponseEntity<Map<String, String>> rejected(HttpStatus status, String message, Duration retryAfter, HttpServletRequest request) {
+        Map<String, String> body = Map.of(
+                "timestamp", ZonedDateTime.now().toString(),
+                "status", String.valueOf(status.value()),
+                "error", status.getReasonPhrase(),
+                "message", message,
+                "path", request.getRequestURI());
+        long seconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(seconds))
+                .body(body);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public Map<String, String> handleValidationExceptions(MethodArgumentNotValidException ex, HttpServletRequest request) {
         Map<String, String> errors = new HashMap<>();
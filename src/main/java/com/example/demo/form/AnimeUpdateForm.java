@@ -0,0 +1,25 @@
+package com.example.demo.form;
+
+import javax.validation.constraints.NotNull;
+
+public class AnimeUpdateForm extends AnimeForm {
+
+    @NotNull(message = "cannot be empty")
+    private Integer id;
+
+    public AnimeUpdateForm(Integer id, String name, String genre) {
+        super(name, genre);
+        this.id = id;
+    }
+
+    public AnimeUpdateForm() {
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.form;
+
+import javax.validation.constraints.NotBlank;
+
+public class GenreChangeForm {
+
+    @NotBlank(message = "cannot be empty")
+    private String from;
+
+    @NotBlank(message = "cannot be empty")
+    private String to;
+
+    public GenreChangeForm(String from, String to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public GenreChangeForm() {
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.idempotency;
+
+import com.example.demo.mapper.IdempotencyKeyMapper;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * idempotency_key テーブルにレスポンスを保存し、複数ノードで共有する。
+ * 実行前に主キーで行を入れることで、別のノードに届いた同じキーの再送を実行させない。
+ * 期限切れの行はバックグラウンドで古い順に消す。
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "anime.idempotency.store", havingValue = "jdbc")
+public class DatabaseIdempotencyStore implements IdempotencyStore, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseIdempotencyStore.class);
+
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    private final IdempotencyKeyMapper idempotencyKeyMapper;
+
+    private final long ttlMicros;
+
+    private final long inProgressMicros;
+
+    private final ScheduledExecutorService purger;
+
+    public DatabaseIdempotencyStore(IdempotencyKeyMapper idempotencyKeyMapper,
+                                    @Value("${anime.idempotency.ttl:24h}") Duration ttl,
+                                    @Value("${anime.idempotency.in-progress-timeout:1m}") Duration inProgressTimeout,
+                                    @Value("${anime.idempotency.purge-interval:10m}") Duration purgeInterval) {
+        this.idempotencyKeyMapper = idempotencyKeyMapper;
+        this.ttlMicros = TimeUnit.NANOSECONDS.toMicros(ttl.toNanos());
+        this.inProgressMicros = TimeUnit.NANOSECONDS.toMicros(inProgressTimeout.toNanos());
+        this.purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "anime-idempotency-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = purgeInterval.toMillis();
+        purger.scheduleWithFixedDelay(this::purge, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Optional<IdempotentResponse> find(String key) {
+        return Optional.ofNullable(idempotencyKeyMapper.findResponse(key, ttlMicros));
+    }
+
+    @Override
+    public boolean reserve(String key, String fingerprint) {
+        if (idempotencyKeyMapper.insertKey(key, fingerprint) == 1) {
+            return true;
+        }
+        // 期限切れの行と、実行したノードが落ちて残った実行中の行は引き継ぐ
+        return idempotencyKeyMapper.deleteStaleKey(key, ttlMicros, inProgressMicros) == 1
+                && idempotencyKeyMapper.insertKey(key, fingerprint) == 1;
+    }
+
+    @Override
+    public void save(String key, IdempotentResponse response) {
+        idempotencyKeyMapper.saveResponse(key, response);
+    }
+
+    @Override
+    public void release(String key) {
+        idempotencyKeyMapper.deleteInProgressKey(key);
+    }
+
+    @Override
+    public void destroy() {
+        purger.shutdownNow();
+    }
+
+    private void purge() {
+        try {
+            int removed;
+            do {
+                removed = idempotencyKeyMapper.deleteExpiredKeys(ttlMicros, PURGE_BATCH_SIZE);
+            } while (removed == PURGE_BATCH_SIZE && !Thread.currentThread().isInterrupted());
+        } catch (RuntimeException e) {
+            log.warn("failed to purge expired idempotency keys", e);
+        }
+    }
+}
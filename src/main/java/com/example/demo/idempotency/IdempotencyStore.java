@@ -0,0 +1,27 @@
+package com.example.demo.idempotency;
+
+import java.util.Optional;
+
+/**
+ * Idempotency-Key ごとの最初のレスポンスを保存する場所。
+ * 既定はノード内のメモリに保存し、anime.idempotency.store=jdbc のときはDBのテーブルに保存して複数ノードで共有する。
+ */
+public interface IdempotencyStore {
+
+    /**
+     * 保存済みで期限内のレスポンスを返す。実行中のキーは含まない。
+     */
+    Optional<IdempotentResponse> find(String key);
+
+    /**
+     * 実行の前に呼び、キーを実行中にする。他のノードが同じキーを実行中か実行済みの場合はfalseを返す。
+     */
+    boolean reserve(String key, String fingerprint);
+
+    void save(String key, IdempotentResponse response);
+
+    /**
+     * 実行に失敗したキーを外し、同じキーで再送できるようにする。
+     */
+    void release(String key);
+}
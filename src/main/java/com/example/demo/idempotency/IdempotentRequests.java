@@ -0,0 +1,158 @@
+package com.example.demo.idempotency;
+
+import com.example.demo.exception.IdempotencyKeyReusedException;
+import com.example.demo.exception.InvalidRequestException;
+import com.example.demo.exception.ServiceOverloadedException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Idempotency-Key 付きのリクエストを1回だけ実行し、再送には最初のレスポンスをそのまま返す。
+ * 同じノードに同時に来た同じキーは最初の実行の結果を待ち、別のノードで実行中のキーは保存されるまで待つ。
+ * 成功したレスポンスだけを保存し、例外になった場合はキーを外して再送で実行し直せるようにする。
+ * 実行とレスポンスの保存は別のトランザクションなので、保存の前にノードが落ちた場合の再送は実行し直される。
+ */
+@Component
+@Profile("!reactive")
+public class IdempotentRequests {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotentRequests.class);
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    private final IdempotencyStore store;
+
+    private final Duration waitTimeout;
+
+    private final ConcurrentHashMap<String, CompletableFuture<IdempotentResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotentRequests(IdempotencyStore store,
+                              @Value("${anime.idempotency.wait-timeout:10s}") Duration waitTimeout) {
+        this.store = store;
+        this.waitTimeout = waitTimeout;
+    }
+
+    /**
+     * リクエストの内容から、キーの使い回しを見分けるためのハッシュを作る。
+     */
+    public static String fingerprint(String... values) {
+        return DigestUtils.md5DigestAsHex(String.join("\u0000", values).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * keyで最初の呼び出しならactionを実行し、そうでなければ保存したレスポンスを返す。
+     * 同じキーが別の内容のリクエストで使われた場合は実行せずに例外にする。
+     */
+    public ResponseEntity<String> execute(String key, String fingerprint, Supplier<ResponseEntity<String>> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidRequestException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        CompletableFuture<IdempotentResponse> call = new CompletableFuture<>();
+        CompletableFuture<IdempotentResponse> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            return replay(await(running, deadline), fingerprint);
+        }
+        try {
+            while (true) {
+                // 前の実行が保存してから inFlight を外すので、ここで保存済みのレスポンスが見える
+                Optional<IdempotentResponse> stored = store.find(key);
+                if (stored.isPresent()) {
+                    call.complete(stored.get());
+                    return replay(stored.get(), fingerprint);
+                }
+                if (store.reserve(key, fingerprint)) {
+                    return run(key, fingerprint, action, call);
+                }
+                sleepUntilNextPoll(deadline);
+            }
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private ResponseEntity<String> run(String key, String fingerprint, Supplier<ResponseEntity<String>> action,
+                                       CompletableFuture<IdempotentResponse> call) {
+        ResponseEntity<String> result;
+        try {
+            result = action.get();
+        } catch (RuntimeException | Error e) {
+            store.release(key);
+            throw e;
+        }
+        IdempotentResponse response = IdempotentResponse.of(fingerprint, result);
+        if (!result.getStatusCode().is2xxSuccessful()) {
+            store.release(key);
+            call.complete(response);
+            return result;
+        }
+        try {
+            store.save(key, response);
+        } catch (RuntimeException e) {
+            // 実行は済んでいるので、保存できなくても結果は返す
+            log.warn("failed to save the response for an idempotency key", e);
+        }
+        call.complete(response);
+        return result;
+    }
+
+    private static ResponseEntity<String> replay(IdempotentResponse response, String fingerprint) {
+        if (!response.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyReusedException("Idempotency-Key has been used for a different request");
+        }
+        return response.toReplay();
+    }
+
+    private static IdempotentResponse await(CompletableFuture<IdempotentResponse> running, long deadline) {
+        try {
+            return running.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new ServiceOverloadedException("timed out waiting for a request with the same Idempotency-Key", RETRY_AFTER);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("interrupted while waiting for a request with the same Idempotency-Key", RETRY_AFTER);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void sleepUntilNextPoll(long deadline) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw new ServiceOverloadedException("timed out waiting for a request with the same Idempotency-Key", RETRY_AFTER);
+        }
+        try {
+            Thread.sleep(Math.min(POLL_INTERVAL_MILLIS, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("interrupted while waiting for a request with the same Idempotency-Key", RETRY_AFTER);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.idempotency;
+
+import java.net.URI;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Idempotency-Key に対して保存した最初のレスポンス。
+ * fingerprint は最初のリクエストの内容のハッシュで、同じキーを別の内容で使い回していないかを調べる。
+ */
+public record IdempotentResponse(String fingerprint, int status, String location, String body) {
+
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    static IdempotentResponse of(String fingerprint, ResponseEntity<String> response) {
+        URI location = response.getHeaders().getLocation();
+        return new IdempotentResponse(fingerprint, response.getStatusCodeValue(),
+                location != null ? location.toString() : null, response.getBody());
+    }
+
+    ResponseEntity<String> toReplay() {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(status).header(REPLAYED_HEADER, "true");
+        if (location != null) {
+            builder.location(URI.create(location));
+        }
+        return builder.body(body);
+    }
+}
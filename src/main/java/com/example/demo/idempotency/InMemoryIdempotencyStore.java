@@ -0,0 +1,47 @@
+package com.example.demo.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * ノード内のメモリにレスポンスを保存する。件数の上限を超えた分とTTLを過ぎた分は捨てる。
+ * 同じノードでの同時実行は IdempotentRequests が待たせるので、実行中の状態は持たない。
+ */
+@Component
+@ConditionalOnProperty(name = "anime.idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, IdempotentResponse> responses;
+
+    public InMemoryIdempotencyStore(@Value("${anime.idempotency.maximum-size:10000}") long maximumSize,
+                                    @Value("${anime.idempotency.ttl:24h}") Duration ttl) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public Optional<IdempotentResponse> find(String key) {
+        return Optional.ofNullable(responses.getIfPresent(key));
+    }
+
+    @Override
+    public boolean reserve(String key, String fingerprint) {
+        return true;
+    }
+
+    @Override
+    public void save(String key, IdempotentResponse response) {
+        responses.put(key, response);
+    }
+
+    @Override
+    public void release(String key) {
+    }
+}
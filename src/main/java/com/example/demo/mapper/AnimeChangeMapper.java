@@ -0,0 +1,32 @@
+package com.example.demo.mapper;
+
+import com.example.demo.entity.AnimeChange;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface AnimeChangeMapper {
+
+    List<AnimeChange> findChanges(@Param("since") long since, @Param("limit") int limit, @Param("settleMicros") long settleMicros,
+                                  @Param("waitForOpenTransactions") boolean waitForOpenTransactions);
+
+    long findLatestSeq();
+
+    long findCompactionHorizon();
+
+    long findSupersededThrough();
+
+    List<Long> findSupersedingSeqs(@Param("after") long after, @Param("ageMicros") long ageMicros, @Param("limit") int limit);
+
+    List<Long> findSupersededSeqs(@Param("after") long after, @Param("through") long through);
+
+    List<Long> findExpiredTombstoneSeqs(@Param("ageMicros") long ageMicros, @Param("limit") int limit);
+
+    int deleteChanges(@Param("seqs") List<Long> seqs);
+
+    int raiseSupersededThrough(@Param("seq") long seq);
+
+    int raiseCompactionHorizon(@Param("seq") long seq);
+}
@@ -0,0 +1,16 @@
+package com.example.demo.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface AnimeHotIdMapper {
+
+    List<Integer> findHotIds(@Param("limit") int limit, @Param("retentionMicros") long retentionMicros);
+
+    int recordHotIds(@Param("ids") List<Integer> ids);
+
+    int deleteExpiredHotIds(@Param("retentionMicros") long retentionMicros);
+}
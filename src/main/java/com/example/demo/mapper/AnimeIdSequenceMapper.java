@@ -0,0 +1,10 @@
+package com.example.demo.mapper;
+
+import com.example.demo.entity.IdBlock;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface AnimeIdSequenceMapper {
+
+    int leaseIdBlock(IdBlock block);
+}
@@ -1,8 +1,12 @@
 package com.example.demo.mapper;
 
 import com.example.demo.entity.Anime;
+import com.example.demo.entity.GenreCount;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,11 +15,39 @@ public interface AnimeMapper {
 
     List<Anime> findAll();
 
+    Cursor<Anime> findAllAsCursor();
+
+    List<Anime> findPage(@Param("after") Integer after, @Param("limit") int limit);
+
+    List<Anime> findPageByGenre(@Param("genre") String genre, @Param("after") Integer after, @Param("limit") int limit);
+
+    List<GenreCount> findGenreCounts();
+
     Optional<Anime> findById(Integer id);
 
+    List<Anime> findByIds(@Param("ids") Collection<Integer> ids);
+
     void createAnime(Anime anime);
 
-    void updateAnime(Anime anime);
+    void createAnimeBatch(List<Anime> animeList);
+
+    void createAnimeWithId(Anime anime);
+
+    void createAnimeBatchWithIds(List<Anime> animeList);
+
+    List<Integer> findExistingIdsForUpdate(@Param("ids") List<Integer> ids);
+
+    List<Anime> findByGenreForUpdate(@Param("genre") String genre, @Param("limit") int limit);
+
+    int updateAnime(Anime anime);
+
+    int updateAnimeIfVersion(Anime anime);
+
+    int updateAnimeBatch(List<Anime> animeList);
+
+    int updateGenre(@Param("ids") List<Integer> ids, @Param("genre") String genre);
+
+    int deleteAnime(Integer id);
 
-    void deleteAnime(Integer id);
+    int deleteAnimeBatch(@Param("ids") List<Integer> ids);
 }
@@ -0,0 +1,21 @@
+package com.example.demo.mapper;
+
+import com.example.demo.idempotency.IdempotentResponse;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface IdempotencyKeyMapper {
+
+    IdempotentResponse findResponse(@Param("key") String key, @Param("ttlMicros") long ttlMicros);
+
+    int insertKey(@Param("key") String key, @Param("fingerprint") String fingerprint);
+
+    int deleteStaleKey(@Param("key") String key, @Param("ttlMicros") long ttlMicros, @Param("inProgressMicros") long inProgressMicros);
+
+    int saveResponse(@Param("key") String key, @Param("response") IdempotentResponse response);
+
+    int deleteInProgressKey(@Param("key") String key);
+
+    int deleteExpiredKeys(@Param("ttlMicros") long ttlMicros, @Param("limit") int limit);
+}
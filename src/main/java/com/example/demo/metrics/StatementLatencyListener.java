@@ -0,0 +1,12 @@
+package com.example.demo.metrics;
+
+import org.apache.ibatis.mapping.SqlCommandType;
+
+/**
+ * Mapperの文が1回実行されるたびに実行時間を受け取る。
+ * 文を発行したスレッドで呼ばれるので、すぐに戻ること。
+ */
+public interface StatementLatencyListener {
+
+    void onStatement(SqlCommandType commandType, long elapsedNanos);
+}
@@ -0,0 +1,113 @@
+package com.example.demo.metrics;
+
+import com.example.demo.timing.RequestTiming;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mapperの文ごとの実行時間と、取得件数・更新件数を記録する。
+ * /actuator/metrics/mybatis.statement?tag=statement:AnimeMapper.findById で確認できる。
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class StatementMetricsInterceptor implements Interceptor {
+
+    private final MeterRegistry meterRegistry;
+
+    private final StatementLatencyListener[] listeners;
+
+    private final Map<String, StatementMeters> meters = new ConcurrentHashMap<>();
+
+    public StatementMetricsInterceptor(MeterRegistry meterRegistry) {
+        this(meterRegistry, List.of());
+    }
+
+    @Autowired
+    public StatementMetricsInterceptor(MeterRegistry meterRegistry, ObjectProvider<StatementLatencyListener> listeners) {
+        this(meterRegistry, listeners.orderedStream().toList());
+    }
+
+    public StatementMetricsInterceptor(MeterRegistry meterRegistry, List<StatementLatencyListener> listeners) {
+        this.meterRegistry = meterRegistry;
+        this.listeners = listeners.toArray(new StatementLatencyListener[0]);
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
+        StatementMeters statementMeters = meters.computeIfAbsent(mappedStatement.getId(), this::register);
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            if (result instanceof List<?> rows) {
+                statementMeters.rowsReturned.record(rows.size());
+            } else if (result instanceof Integer count) {
+                statementMeters.rowsAffected.record(count);
+            }
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            statementMeters.timer.record(elapsed, TimeUnit.NANOSECONDS);
+            RequestTiming.recordStatement(elapsed);
+            for (StatementLatencyListener listener : listeners) {
+                listener.onStatement(mappedStatement.getSqlCommandType(), elapsed);
+            }
+        }
+    }
+
+    private StatementMeters register(String statementId) {
+        String statement = shortName(statementId);
+        Timer timer = Timer.builder("mybatis.statement")
+                .description("Latency of MyBatis mapped statements")
+                .tag("statement", statement)
+                .publishPercentiles(0.5, 0.95, 0.99, 0.999)
+                .register(meterRegistry);
+        DistributionSummary rowsReturned = DistributionSummary.builder("mybatis.statement.rows")
+                .description("Rows returned or affected by MyBatis mapped statements")
+                .tag("statement", statement)
+                .tag("type", "returned")
+                .register(meterRegistry);
+        DistributionSummary rowsAffected = DistributionSummary.builder("mybatis.statement.rows")
+                .description("Rows returned or affected by MyBatis mapped statements")
+                .tag("statement", statement)
+                .tag("type", "affected")
+                .register(meterRegistry);
+        return new StatementMeters(timer, rowsReturned, rowsAffected);
+    }
+
+    private static String shortName(String statementId) {
+        int methodSeparator = statementId.lastIndexOf('.');
+        int typeSeparator = statementId.lastIndexOf('.', methodSeparator - 1);
+        return statementId.substring(typeSeparator + 1);
+    }
+
+    private record StatementMeters(Timer timer, DistributionSummary rowsReturned, DistributionSummary rowsAffected) {
+    }
+}
@@ -0,0 +1,321 @@
+package com.example.demo.reactive;
+
+import com.example.demo.dto.AnimeBatchItemResult;
+import com.example.demo.dto.AnimeBulkResult;
+import com.example.demo.entity.Anime;
+import com.example.demo.entity.GenreCount;
+import com.example.demo.exception.InvalidRequestException;
+import com.example.demo.exception.PreconditionFailedException;
+import com.example.demo.form.AnimeForm;
+import com.example.demo.form.AnimeUpdateForm;
+import com.example.demo.form.GenreChangeForm;
+import java.net.URI;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+/**
+ * AnimeControllerと同じURLと応答を返すハンドラー。
+ * 一覧はDBから読んだ行をそのまま流し、Acceptがapplication/x-ndjsonなら1行1件で返す。
+ */
+@Component
+@Profile("reactive")
+public class ReactiveAnimeHandler {
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final Pattern VERSION_ETAG = Pattern.compile("\"(\\d{1,9})\"");
+
+    private static final ParameterizedTypeReference<List<AnimeForm>> ANIME_FORMS = new ParameterizedTypeReference<>() {
+    };
+
+    private static final ParameterizedTypeReference<List<AnimeUpdateForm>> ANIME_UPDATE_FORMS = new ParameterizedTypeReference<>() {
+    };
+
+    private final ReactiveAnimeService animeService;
+
+    private final Validator validator;
+
+    private final int defaultPageLimit;
+
+    private final int maxPageLimit;
+
+    private final int maxMultiGetIds;
+
+    private final int maxBatchItems;
+
+    public ReactiveAnimeHandler(ReactiveAnimeService animeService,
+                                Validator validator,
+                                @Value("${anime.page.default-limit:20}") int defaultPageLimit,
+                                @Value("${anime.page.max-limit:100}") int maxPageLimit,
+                                @Value("${anime.multi-get.max-ids:100}") int maxMultiGetIds,
+                                @Value("${anime.batch.max-items:1000}") int maxBatchItems) {
+        this.animeService = animeService;
+        this.validator = validator;
+        this.defaultPageLimit = defaultPageLimit;
+        this.maxPageLimit = maxPageLimit;
+        this.maxMultiGetIds = maxMultiGetIds;
+        this.maxBatchItems = maxBatchItems;
+    }
+
+    public Mono<ServerResponse> getAllAnime(ServerRequest request) {
+        MediaType contentType = request.headers().accept().contains(APPLICATION_NDJSON)
+                ? APPLICATION_NDJSON : MediaType.APPLICATION_JSON;
+        return ServerResponse.ok().contentType(contentType).body(animeService.getAllAnime(), Anime.class);
+    }
+
+    public Mono<ServerResponse> getAnimePage(ServerRequest request) {
+        return Mono.defer(() -> animeService.getAnimePage(intParam(request, "after").orElse(0), pageLimit(request)))
+                .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    public Mono<ServerResponse> getAnimePageByGenre(ServerRequest request) {
+        return Mono.defer(() -> animeService.getAnimePageByGenre(request.queryParam("genre").orElseThrow(),
+                        intParam(request, "after").orElse(0), pageLimit(request)))
+                .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    public Mono<ServerResponse> getGenreCounts(ServerRequest request) {
+        return ServerResponse.ok().body(animeService.getGenreCounts(), GenreCount.class);
+    }
+
+    public Mono<ServerResponse> getAnimeList(ServerRequest request) {
+        return Mono.defer(() -> {
+            List<Integer> ids = request.queryParams().get("ids").stream()
+                    .flatMap(value -> Arrays.stream(value.split(",")))
+                    .map(value -> parseInt("ids", value))
+                    .collect(Collectors.toList());
+            if (ids.stream().distinct().count() > maxMultiGetIds) {
+                throw new InvalidRequestException("ids must not exceed " + maxMultiGetIds);
+            }
+            return animeService.getAnimeList(ids);
+        }).flatMap(result -> ServerResponse.ok().bodyValue(result));
+    }
+
+    public Mono<ServerResponse> getAnime(ServerRequest request) {
+        return Mono.defer(() -> animeService.getAnime(animeId(request)))
+                .flatMap(anime -> {
+                    if (anime.getVersion() == null) {
+                        return ServerResponse.ok().bodyValue(anime);
+                    }
+                    // サーブレット版と同じく、If-None-Matchが一致する場合は304にする
+                    String etag = etag(anime.getVersion());
+                    return request.checkNotModified(etag)
+                            .switchIfEmpty(Mono.defer(() -> ServerResponse.ok().eTag(etag).bodyValue(anime)));
+                });
+    }
+
+    public Mono<ServerResponse> registerAnime(ServerRequest request) {
+        return requestBody(request, AnimeForm.class)
+                .flatMap(animeForm -> {
+                    Map<String, String> errors = validate(animeForm);
+                    if (!errors.isEmpty()) {
+                        return validationError(request, errors);
+                    }
+                    return animeService.registerAnime(animeForm.getName(), animeForm.getGenre())
+                            .then(ServerResponse.created(location("api/anime/")).bodyValue("anime successfully created"));
+                });
+    }
+
+    public Mono<ServerResponse> registerAnimeBatch(ServerRequest request) {
+        return requestBody(request, ANIME_FORMS).flatMap(animeForms -> {
+            checkBatchSize(animeForms.size());
+            AnimeBatchItemResult[] results = new AnimeBatchItemResult[animeForms.size()];
+            List<Integer> validIndexes = new ArrayList<>();
+            List<Anime> validAnime = new ArrayList<>();
+            for (int i = 0; i < animeForms.size(); i++) {
+                Map<String, String> errors = validate(animeForms.get(i));
+                if (errors.isEmpty()) {
+                    validIndexes.add(i);
+                    validAnime.add(new Anime(animeForms.get(i).getName(), animeForms.get(i).getGenre()));
+                } else {
+                    results[i] = AnimeBatchItemResult.rejected(i, errors);
+                }
+            }
+            return animeService.registerAnimeBatch(validAnime).flatMap(ids -> {
+                for (int i = 0; i < validIndexes.size(); i++) {
+                    results[validIndexes.get(i)] = ids.get(i) == null
+                            ? AnimeBatchItemResult.failed(validIndexes.get(i))
+                            : AnimeBatchItemResult.created(validIndexes.get(i), ids.get(i));
+                }
+                return ServerResponse.ok().bodyValue(List.of(results));
+            });
+        });
+    }
+
+    public Mono<ServerResponse> updateAnimeBatch(ServerRequest request) {
+        return requestBody(request, ANIME_UPDATE_FORMS).flatMap(animeForms -> {
+            checkBatchSize(animeForms.size());
+            List<AnimeBatchItemResult> errors = new ArrayList<>();
+            List<Anime> validAnime = new ArrayList<>();
+            for (int i = 0; i < animeForms.size(); i++) {
+                Map<String, String> formErrors = validate(animeForms.get(i));
+                if (formErrors.isEmpty()) {
+                    AnimeUpdateForm animeForm = animeForms.get(i);
+                    validAnime.add(new Anime(animeForm.getId(), animeForm.getName(), animeForm.getGenre()));
+                } else {
+                    errors.add(AnimeBatchItemResult.rejected(i, formErrors));
+                }
+            }
+            return animeService.updateAnimeBatch(validAnime)
+                    .flatMap(result -> ServerResponse.ok().bodyValue(result.withErrors(errors)));
+        });
+    }
+
+    public Mono<ServerResponse> changeGenre(ServerRequest request) {
+        return requestBody(request, GenreChangeForm.class).flatMap(genreChangeForm -> {
+            Map<String, String> errors = validate(genreChangeForm);
+            if (!errors.isEmpty()) {
+                return validationError(request, errors);
+            }
+            return animeService.changeGenre(genreChangeForm.getFrom(), genreChangeForm.getTo())
+                    .flatMap(affected -> ServerResponse.ok().bodyValue(new AnimeBulkResult(affected, List.of())));
+        });
+    }
+
+    public Mono<ServerResponse> updateAnime(ServerRequest request) {
+        return Mono.defer(() -> {
+            Integer id = animeId(request);
+            return requestBody(request, AnimeForm.class).flatMap(animeForm -> {
+                Map<String, String> errors = validate(animeForm);
+                if (!errors.isEmpty()) {
+                    return validationError(request, errors);
+                }
+                String ifMatch = request.headers().firstHeader(HttpHeaders.IF_MATCH);
+                if (ifMatch == null || ifMatch.strip().equals("*")) {
+                    return animeService.updateAnime(id, animeForm.getName(), animeForm.getGenre())
+                            .then(ServerResponse.created(location("api/anime/" + id)).bodyValue("anime successfully updated"));
+                }
+                return animeService.updateAnimeIfMatch(id, animeForm.getName(), animeForm.getGenre(), ifMatchVersion(ifMatch))
+                        .flatMap(version -> ServerResponse.created(location("api/anime/" + id))
+                                .eTag(etag(version))
+                                .bodyValue("anime successfully updated"));
+            });
+        });
+    }
+
+    public Mono<ServerResponse> deleteAnime(ServerRequest request) {
+        return Mono.defer(() -> {
+            Integer id = animeId(request);
+            return animeService.deleteAnime(id)
+                    .then(ServerResponse.created(location("api/anime/" + id)).bodyValue("anime successfully deleted"));
+        });
+    }
+
+    public Mono<ServerResponse> deleteAnimeBatch(ServerRequest request) {
+        return Mono.defer(() -> {
+                    List<Integer> ids = request.queryParams().get("ids").stream()
+                            .flatMap(value -> Arrays.stream(value.split(",")))
+                            .map(value -> parseInt("ids", value))
+                            .collect(Collectors.toList());
+                    checkBatchSize(ids.size());
+                    return animeService.deleteAnimeBatch(ids);
+                })
+                .flatMap(result -> ServerResponse.ok().bodyValue(result));
+    }
+
+    private <T> Map<String, String> validate(T form) {
+        Map<String, String> errors = new TreeMap<>();
+        if (form == null) {
+            errors.put("anime", "cannot be empty");
+            return errors;
+        }
+        Set<ConstraintViolation<T>> violations = validator.validate(form);
+        violations.forEach(violation -> errors.put(violation.getPropertyPath().toString(), violation.getMessage()));
+        return errors;
+    }
+
+    private void checkBatchSize(int size) {
+        if (size > maxBatchItems) {
+            throw new InvalidRequestException("batch must not exceed " + maxBatchItems + " items");
+        }
+    }
+
+    private Mono<ServerResponse> validationError(ServerRequest request, Map<String, String> errors) {
+        Map<String, String> body = new HashMap<>(errors);
+        body.put("timestamp", ZonedDateTime.now().toString());
+        body.put("status", String.valueOf(HttpStatus.BAD_REQUEST.value()));
+        body.put("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
+        body.put("path", request.path());
+        return ServerResponse.badRequest().bodyValue(body);
+    }
+
+    private static <T> Mono<T> requestBody(ServerRequest request, Class<T> type) {
+        return request.bodyToMono(type).switchIfEmpty(Mono.error(() -> new InvalidRequestException("request body is missing")));
+    }
+
+    private static <T> Mono<T> requestBody(ServerRequest request, ParameterizedTypeReference<T> type) {
+        return request.bodyToMono(type).switchIfEmpty(Mono.error(() -> new InvalidRequestException("request body is missing")));
+    }
+
+    private int pageLimit(ServerRequest request) {
+        Integer limit = intParam(request, "limit").orElse(null);
+        if (limit == null || limit < 1) {
+            return defaultPageLimit;
+        }
+        return Math.min(limit, maxPageLimit);
+    }
+
+    private static Integer animeId(ServerRequest request) {
+        return parseInt("animeId", request.pathVariable("animeId"));
+    }
+
+    /**
+     * @RequestParamと同じく、空の値は指定されなかったものとして扱う。
+     */
+    private static Optional<Integer> intParam(ServerRequest request, String name) {
+        return request.queryParam(name).filter(value -> !value.isBlank()).map(value -> parseInt(name, value));
+    }
+
+    private static Integer parseInt(String name, String value) {
+        try {
+            return Integer.valueOf(value.strip());
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException(name + " must be an integer");
+        }
+    }
+
+    private static String etag(int version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * AnimeControllerと同じく、弱いETagや複数の値は一致しないものとして412にする。
+     */
+    private static int ifMatchVersion(String ifMatch) {
+        Matcher matcher = VERSION_ETAG.matcher(ifMatch.strip());
+        if (!matcher.matches()) {
+            throw new PreconditionFailedException("resource has been modified");
+        }
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    private static URI location(String path) {
+        return UriComponentsBuilder.fromUriString("http://localhost:8080")
+                .path(path)
+                .build()
+                .toUri();
+    }
+}
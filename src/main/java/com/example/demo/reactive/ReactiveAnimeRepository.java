@@ -0,0 +1,198 @@
+package com.example.demo.reactive;
+
+import com.example.demo.entity.Anime;
+import com.example.demo.entity.GenreCount;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * AnimeMapperと同じ文をR2DBCで発行する。
+ * findAllの結果は1行ずつ流れてくるので、Cursor版は持たない。
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveAnimeRepository {
+
+    // AnimeMapperの更新と同じくversionを進め、どちらの版で更新してもETagが変わるようにする
+    private static final String VERSION_BUMP = "version = version + 1, updated_at = CURRENT_TIMESTAMP(6)";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveAnimeRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Flux<Anime> findAll() {
+        return databaseClient.sql("SELECT * FROM anime")
+                .map(ReactiveAnimeRepository::toAnime)
+                .all();
+    }
+
+    public Flux<Anime> findPage(Integer after, int limit) {
+        return databaseClient.sql("SELECT * FROM anime WHERE id > :after ORDER BY id LIMIT :limit")
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(ReactiveAnimeRepository::toAnime)
+                .all();
+    }
+
+    public Flux<Anime> findPageByGenre(String genre, Integer after, int limit) {
+        return databaseClient.sql("SELECT * FROM anime WHERE genre = :genre AND id > :after ORDER BY id LIMIT :limit")
+                .bind("genre", genre)
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(ReactiveAnimeRepository::toAnime)
+                .all();
+    }
+
+    public Flux<GenreCount> findGenreCounts() {
+        return databaseClient.sql("SELECT genre, count FROM anime_genre_count WHERE count > 0 ORDER BY genre")
+                .map((row, metadata) -> new GenreCount(row.get("genre", String.class), row.get("count", Long.class)))
+                .all();
+    }
+
+    public Mono<Anime> findById(Integer id) {
+        return databaseClient.sql("SELECT * FROM anime WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveAnimeRepository::toAnime)
+                .one();
+    }
+
+    public Flux<Anime> findByIds(Collection<Integer> ids) {
+        return databaseClient.sql("SELECT * FROM anime WHERE id IN (:ids)")
+                .bind("ids", ids)
+                .map(ReactiveAnimeRepository::toAnime)
+                .all();
+    }
+
+    public Flux<Integer> findExistingIdsForUpdate(List<Integer> ids) {
+        return databaseClient.sql("SELECT id FROM anime WHERE id IN (:ids) FOR UPDATE")
+                .bind("ids", ids)
+                .map((row, metadata) -> row.get("id", Integer.class))
+                .all();
+    }
+
+    public Flux<Anime> findByGenreForUpdate(String genre, int limit) {
+        return databaseClient.sql("SELECT * FROM anime WHERE genre = :genre ORDER BY id LIMIT :limit FOR UPDATE")
+                .bind("genre", genre)
+                .bind("limit", limit)
+                .map(ReactiveAnimeRepository::toAnime)
+                .all();
+    }
+
+    /**
+     * 登録したアニメの採番されたIDを返す。
+     */
+    public Mono<Integer> createAnime(Anime anime) {
+        return databaseClient.sql("INSERT INTO anime (name, genre) VALUES (:name, :genre)")
+                .bind("name", anime.getName())
+                .bind("genre", anime.getGenre())
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map((row, metadata) -> row.get("id", Number.class).intValue())
+                .one();
+    }
+
+    /**
+     * 複数行を1文で登録し、採番されたIDを登録順に返す。
+     * 1文の複数行INSERTのIDは連番になるので、Connector/Jと同じく先頭のIDから数える。
+     */
+    public Flux<Integer> createAnimeBatch(List<Anime> animeList) {
+        if (animeList.isEmpty()) {
+            return Flux.empty();
+        }
+        StringBuilder sql = new StringBuilder("INSERT INTO anime (name, genre) VALUES ");
+        for (int i = 0; i < animeList.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(:name").append(i).append(", :genre").append(i).append(')');
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < animeList.size(); i++) {
+            spec = spec.bind("name" + i, animeList.get(i).getName())
+                    .bind("genre" + i, animeList.get(i).getGenre());
+        }
+        return spec.filter(statement -> statement.returnGeneratedValues("id"))
+                .map((row, metadata) -> row.get("id", Number.class).intValue())
+                .one()
+                .flatMapMany(firstId -> Flux.range(firstId, animeList.size()));
+    }
+
+    public Mono<Integer> updateAnime(Anime anime) {
+        return databaseClient.sql("UPDATE anime SET name = :name, genre = :genre, " + VERSION_BUMP + " WHERE id = :id")
+                .bind("name", anime.getName())
+                .bind("genre", anime.getGenre())
+                .bind("id", anime.getId())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Integer> updateAnimeBatch(List<Anime> animeList) {
+        if (animeList.isEmpty()) {
+            return Mono.just(0);
+        }
+        StringBuilder names = new StringBuilder();
+        StringBuilder genres = new StringBuilder();
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < animeList.size(); i++) {
+            names.append(" WHEN :id").append(i).append(" THEN :name").append(i);
+            genres.append(" WHEN :id").append(i).append(" THEN :genre").append(i);
+            ids.append(i == 0 ? "" : ", ").append(":id").append(i);
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("UPDATE anime SET name = CASE id" + names
+                + " END, genre = CASE id" + genres + " END, " + VERSION_BUMP + " WHERE id IN (" + ids + ")");
+        for (int i = 0; i < animeList.size(); i++) {
+            Anime anime = animeList.get(i);
+            spec = spec.bind("id" + i, anime.getId())
+                    .bind("name" + i, anime.getName())
+                    .bind("genre" + i, anime.getGenre());
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    /**
+     * AnimeMapper.updateAnimeIfVersionと同じく、versionが一致する場合だけ更新する。
+     */
+    public Mono<Integer> updateAnimeIfVersion(Anime anime) {
+        return databaseClient.sql("UPDATE anime SET name = :name, genre = :genre, " + VERSION_BUMP
+                        + " WHERE id = :id AND version = :version")
+                .bind("name", anime.getName())
+                .bind("genre", anime.getGenre())
+                .bind("id", anime.getId())
+                .bind("version", anime.getVersion())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Integer> updateGenre(List<Integer> ids, String genre) {
+        return databaseClient.sql("UPDATE anime SET genre = :genre, " + VERSION_BUMP + " WHERE id IN (:ids)")
+                .bind("genre", genre)
+                .bind("ids", ids)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Integer> deleteAnime(Integer id) {
+        return databaseClient.sql("DELETE FROM anime WHERE id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Integer> deleteAnimeBatch(List<Integer> ids) {
+        return databaseClient.sql("DELETE FROM anime WHERE id IN (:ids)")
+                .bind("ids", ids)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static Anime toAnime(Row row, RowMetadata metadata) {
+        return new Anime(row.get("id", Integer.class), row.get("name", String.class), row.get("genre", String.class),
+                row.get("version", Integer.class), row.get("updated_at", LocalDateTime.class));
+    }
+}
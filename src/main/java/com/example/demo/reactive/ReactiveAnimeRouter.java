@@ -0,0 +1,75 @@
+package com.example.demo.reactive;
+
+import com.example.demo.exception.InvalidRequestException;
+import com.example.demo.exception.PreconditionFailedException;
+import com.example.demo.exception.ResourceNotFoundException;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.queryParam;
+
+/**
+ * reactiveプロファイルの時だけ有効になるルーティング。
+ * 同じパスの中では、AnimeControllerのparams条件と同じく絞り込みの強いものから並べる。
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveAnimeRouter {
+
+    private static final String BASE_PATH = "/api/anime";
+
+    /**
+     * Tomcatもクラスパスにあるため、Nettyを明示する。
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> animeRoutes(ReactiveAnimeHandler handler) {
+        return RouterFunctions.route()
+                .GET(BASE_PATH + "/genres", handler::getGenreCounts)
+                .GET(BASE_PATH + "/{animeId}", handler::getAnime)
+                .GET(BASE_PATH, queryParam("ids", ids -> true), handler::getAnimeList)
+                .GET(BASE_PATH, queryParam("genre", genre -> true), handler::getAnimePageByGenre)
+                .GET(BASE_PATH, queryParam("after", after -> true), handler::getAnimePage)
+                .GET(BASE_PATH, handler::getAllAnime)
+                .POST(BASE_PATH + "/batch", handler::registerAnimeBatch)
+                .POST(BASE_PATH, handler::registerAnime)
+                .PATCH(BASE_PATH + "/genres", handler::changeGenre)
+                .PATCH(BASE_PATH + "/{animeId}", handler::updateAnime)
+                .PATCH(BASE_PATH, handler::updateAnimeBatch)
+                .DELETE(BASE_PATH, queryParam("ids", ids -> true), handler::deleteAnimeBatch)
+                .DELETE(BASE_PATH + "/{animeId}", handler::deleteAnime)
+                .onError(ResourceNotFoundException.class, (e, request) ->
+                        ServerResponse.status(HttpStatus.NOT_FOUND).bodyValue(errorBody(HttpStatus.NOT_FOUND, e.getMessage(), request)))
+                .onError(InvalidRequestException.class, (e, request) ->
+                        ServerResponse.badRequest().bodyValue(errorBody(HttpStatus.BAD_REQUEST, e.getMessage(), request)))
+                .onError(PreconditionFailedException.class, (e, request) ->
+                        ServerResponse.status(HttpStatus.PRECONDITION_FAILED)
+                                .bodyValue(errorBody(HttpStatus.PRECONDITION_FAILED, e.getMessage(), request)))
+                .build();
+    }
+
+    /**
+     * CustomExceptionHandlerと同じ形のエラー応答。
+     */
+    private static Map<String, String> errorBody(HttpStatus status, String message, ServerRequest request) {
+        return Map.of(
+                "timestamp", ZonedDateTime.now().toString(),
+                "status", String.valueOf(status.value()),
+                "error", status.getReasonPhrase(),
+                "message", message,
+                "path", request.path());
+    }
+}
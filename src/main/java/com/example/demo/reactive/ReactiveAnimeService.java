@@ -0,0 +1,234 @@
+package com.example.demo.reactive;
+
+import com.example.demo.dto.AnimeBulkResult;
+import com.example.demo.dto.AnimeMultiGetResult;
+import com.example.demo.dto.AnimePage;
+import com.example.demo.entity.Anime;
+import com.example.demo.entity.GenreCount;
+import com.example.demo.event.AnimeChangedEvent;
+import com.example.demo.exception.PreconditionFailedException;
+import com.example.demo.exception.ResourceNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * AnimeServiceとAnimeBatchServiceのリアクティブ版。
+ * 一括処理はAnimeBatchServiceと同じくチャンクごとに1トランザクションで行う。
+ */
+@Service
+@Profile("reactive")
+public class ReactiveAnimeService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveAnimeService.class);
+
+    private final ReactiveAnimeRepository animeRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final int chunkSize;
+
+    public ReactiveAnimeService(ReactiveAnimeRepository animeRepository,
+                                ApplicationEventPublisher eventPublisher,
+                                TransactionalOperator transactionalOperator,
+                                @Value("${anime.batch.chunk-size:500}") int chunkSize,
+                                @Value("${anime.id-allocation.strategy:auto-increment}") String idAllocationStrategy) {
+        // 登録は AUTO_INCREMENT で採番するので、アプリで採番したidの範囲と重なりうる
+        if (!idAllocationStrategy.equals("auto-increment")) {
+            throw new IllegalStateException("the reactive profile supports only anime.id-allocation.strategy=auto-increment");
+        }
+        this.animeRepository = animeRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionalOperator = transactionalOperator;
+        this.chunkSize = chunkSize;
+    }
+
+    public Flux<Anime> getAllAnime() {
+        return animeRepository.findAll();
+    }
+
+    public Mono<AnimePage> getAnimePage(Integer after, int limit) {
+        return toPage(animeRepository.findPage(after, limit + 1), limit);
+    }
+
+    public Mono<AnimePage> getAnimePageByGenre(String genre, Integer after, int limit) {
+        return toPage(animeRepository.findPageByGenre(genre, after, limit + 1), limit);
+    }
+
+    public Flux<GenreCount> getGenreCounts() {
+        return animeRepository.findGenreCounts();
+    }
+
+    private Mono<AnimePage> toPage(Flux<Anime> rows, int limit) {
+        return rows.collectList().map(animeList -> {
+            if (animeList.size() <= limit) {
+                return new AnimePage(animeList, null);
+            }
+            List<Anime> items = animeList.subList(0, limit);
+            return new AnimePage(List.copyOf(items), items.get(limit - 1).getId());
+        });
+    }
+
+    public Mono<Anime> getAnime(Integer id) {
+        return animeRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("resource not found")));
+    }
+
+    public Mono<AnimeMultiGetResult> getAnimeList(List<Integer> ids) {
+        List<Integer> distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+        return animeRepository.findByIds(distinctIds)
+                .collectMap(Anime::getId)
+                .map(animeById -> new AnimeMultiGetResult(
+                        distinctIds.stream().filter(animeById::containsKey).map(animeById::get).collect(Collectors.toList()),
+                        distinctIds.stream().filter(id -> !animeById.containsKey(id)).collect(Collectors.toList())));
+    }
+
+    public Mono<Integer> registerAnime(String name, String genre) {
+        return animeRepository.createAnime(new Anime(name, genre))
+                .doOnNext(id -> publish(AnimeChangedEvent.Type.CREATED, List.of(new Anime(id, name, genre))));
+    }
+
+    public Mono<Void> updateAnime(Integer id, String name, String genre) {
+        Anime anime = new Anime(id, name, genre);
+        return animeRepository.updateAnime(anime)
+                .flatMap(updated -> updated == 0
+                        ? Mono.error(new ResourceNotFoundException("resource not found"))
+                        : Mono.fromRunnable(() -> publish(AnimeChangedEvent.Type.UPDATED, List.of(anime))));
+    }
+
+    /**
+     * versionが一致する場合だけ更新し、更新後のversionを返す。
+     */
+    public Mono<Integer> updateAnimeIfMatch(Integer id, String name, String genre, int version) {
+        return animeRepository.updateAnimeIfVersion(new Anime(id, name, genre, version, null))
+                .flatMap(updated -> updated == 0
+                        ? Mono.error(new PreconditionFailedException("resource has been modified"))
+                        : Mono.fromRunnable(() -> publish(AnimeChangedEvent.Type.UPDATED, List.of(new Anime(id, name, genre))))
+                        .thenReturn(version + 1));
+    }
+
+    public Mono<Void> deleteAnime(Integer id) {
+        return animeRepository.deleteAnime(id)
+                .flatMap(deleted -> deleted == 0
+                        ? Mono.error(new ResourceNotFoundException("resource not found"))
+                        : Mono.fromRunnable(() -> publish(AnimeChangedEvent.Type.DELETED, List.of(new Anime(id, null, null)))));
+    }
+
+    /**
+     * AnimeBatchServiceと同じく、animeListと同じ順に登録されたidを返す。
+     * 登録に失敗したチャンクの要素はnullにして残りのチャンクの登録を続ける。
+     */
+    public Mono<List<Integer>> registerAnimeBatch(List<Anime> animeList) {
+        return Flux.fromIterable(chunks(animeList))
+                .concatMap(chunk -> animeRepository.createAnimeBatch(chunk)
+                        .index((i, id) -> new Anime(id, chunk.get(i.intValue()).getName(), chunk.get(i.intValue()).getGenre()))
+                        .collectList()
+                        .as(transactionalOperator::transactional)
+                        .doOnNext(created -> publish(AnimeChangedEvent.Type.CREATED, created))
+                        .map(created -> created.stream().map(Anime::getId).collect(Collectors.toList()))
+                        .onErrorResume(RuntimeException.class, e -> {
+                            log.warn("failed to register a chunk of {} anime", chunk.size(), e);
+                            return Mono.just(Collections.<Integer>nCopies(chunk.size(), null));
+                        }))
+                .<List<Integer>>collect(ArrayList::new, List::addAll);
+    }
+
+    public Mono<AnimeBulkResult> updateAnimeBatch(List<Anime> animeList) {
+        Map<Integer, Anime> animeById = new LinkedHashMap<>();
+        animeList.forEach(anime -> animeById.put(anime.getId(), anime));
+        return Flux.fromIterable(chunks(new ArrayList<>(animeById.values())))
+                .concatMap(chunk -> {
+                    List<Integer> ids = chunk.stream().map(Anime::getId).collect(Collectors.toList());
+                    return animeRepository.findExistingIdsForUpdate(ids)
+                            .collect(Collectors.toSet())
+                            .flatMap(existingIds -> {
+                                List<Anime> targets = chunk.stream()
+                                        .filter(anime -> existingIds.contains(anime.getId()))
+                                        .collect(Collectors.toList());
+                                return animeRepository.updateAnimeBatch(targets).thenReturn(targets);
+                            })
+                            .as(transactionalOperator::transactional)
+                            .doOnNext(updated -> publish(AnimeChangedEvent.Type.UPDATED, updated))
+                            .map(updated -> new AnimeBulkResult(updated.size(),
+                                    missingIds(ids, updated.stream().map(Anime::getId).collect(Collectors.toList()))));
+                })
+                .reduce(new AnimeBulkResult(0, List.of()), ReactiveAnimeService::merge);
+    }
+
+    public Mono<Integer> changeGenre(String from, String to) {
+        if (from.equals(to)) {
+            return Mono.just(0);
+        }
+        Mono<List<Anime>> nextChunk = animeRepository.findByGenreForUpdate(from, chunkSize)
+                .collectList()
+                .flatMap(targets -> targets.isEmpty()
+                        ? Mono.just(targets)
+                        : animeRepository.updateGenre(targets.stream().map(Anime::getId).collect(Collectors.toList()), to)
+                        .thenReturn(targets.stream()
+                                .map(anime -> new Anime(anime.getId(), anime.getName(), to))
+                                .collect(Collectors.toList())))
+                .as(transactionalOperator::transactional)
+                .doOnNext(updated -> publish(AnimeChangedEvent.Type.UPDATED, updated));
+        return nextChunk
+                .repeat()
+                .takeWhile(updated -> !updated.isEmpty())
+                .reduce(0, (affected, updated) -> affected + updated.size());
+    }
+
+    public Mono<AnimeBulkResult> deleteAnimeBatch(List<Integer> ids) {
+        return Flux.fromIterable(chunks(new ArrayList<>(new LinkedHashSet<>(ids))))
+                .concatMap(chunk -> animeRepository.findExistingIdsForUpdate(chunk)
+                        .collectList()
+                        .flatMap(existingIds -> existingIds.isEmpty()
+                                ? Mono.just(existingIds)
+                                : animeRepository.deleteAnimeBatch(existingIds).thenReturn(existingIds))
+                        .as(transactionalOperator::transactional)
+                        .doOnNext(deletedIds -> publish(AnimeChangedEvent.Type.DELETED, deletedIds.stream()
+                                .map(id -> new Anime(id, null, null))
+                                .collect(Collectors.toList())))
+                        .map(deletedIds -> new AnimeBulkResult(deletedIds.size(), missingIds(chunk, deletedIds))))
+                .reduce(new AnimeBulkResult(0, List.of()), ReactiveAnimeService::merge);
+    }
+
+    private <T> List<List<T>> chunks(List<T> list) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += chunkSize) {
+            chunks.add(list.subList(from, Math.min(from + chunkSize, list.size())));
+        }
+        return chunks;
+    }
+
+    private static List<Integer> missingIds(List<Integer> ids, List<Integer> found) {
+        Set<Integer> foundIds = new HashSet<>(found);
+        return ids.stream().filter(id -> !foundIds.contains(id)).collect(Collectors.toList());
+    }
+
+    private static AnimeBulkResult merge(AnimeBulkResult total, AnimeBulkResult chunk) {
+        List<Integer> notFound = new ArrayList<>(total.getNotFound());
+        notFound.addAll(chunk.getNotFound());
+        return new AnimeBulkResult(total.getAffected() + chunk.getAffected(), notFound);
+    }
+
+    private void publish(AnimeChangedEvent.Type type, List<Anime> animeList) {
+        if (!animeList.isEmpty()) {
+            eventPublisher.publishEvent(new AnimeChangedEvent(type, animeList));
+        }
+    }
+}
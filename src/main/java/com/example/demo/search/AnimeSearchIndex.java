@@ -0,0 +1,262 @@
+package com.example.demo.search;
+
+import com.example.demo.entity.Anime;
+import com.example.demo.event.AnimeChangedEvent;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * アニメ名の文字bi-gram・tri-gramによる転置インデックス。
+ * NFKCで全角英数・半角カナを揃え、カタカナはひらがなに寄せてから分割する。
+ */
+@Component
+public class AnimeSearchIndex {
+
+    public static final int MIN_QUERY_LENGTH = 2;
+
+    private static final int MAX_GRAM = 3;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    private final Map<Integer, String> names = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Set<Integer> changedDuringLoad = new HashSet<>();
+
+    private boolean loading;
+
+    public void put(Anime anime) {
+        if (anime.getId() == null || anime.getName() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markChanged(anime.getId());
+            putLocked(anime);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer id) {
+        lock.writeLock().lock();
+        try {
+            markChanged(id);
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 全件を読み込む。読み込み中にput・removeで反映されたidの行は、
+     * 読み込み開始時点の古い内容なので上書きしない。
+     */
+    public void load(Consumer<Consumer<Anime>> export) {
+        lock.writeLock().lock();
+        try {
+            loading = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            export.accept(this::putLoaded);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                loading = false;
+                changedDuringLoad.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * idsの現在の内容を反映する。foundに含まれないidは削除されたものとして取り除く。
+     */
+    public void reload(Collection<Integer> ids, Collection<Anime> found) {
+        Set<Integer> missingIds = new HashSet<>(ids);
+        found.forEach(anime -> {
+            missingIds.remove(anime.getId());
+            put(anime);
+        });
+        missingIds.forEach(this::remove);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return names.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAnimeChanged(AnimeChangedEvent event) {
+        if (event.getType() == AnimeChangedEvent.Type.DELETED) {
+            event.getIds().forEach(this::remove);
+        } else {
+            event.getAnime().forEach(this::put);
+        }
+    }
+
+    /**
+     * 名前にクエリを含むアニメのidを、完全一致、前方一致、名前の短い順に返す。
+     */
+    public List<Integer> search(String query, int limit) {
+        String normalized = normalize(query);
+        if (normalized.codePointCount(0, normalized.length()) < MIN_QUERY_LENGTH) {
+            return List.of();
+        }
+        Set<String> queryGrams = queryGrams(normalized);
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>(queryGrams.size());
+            for (String gram : queryGrams) {
+                PostingList postingList = postings.get(gram);
+                if (postingList == null || postingList.size() == 0) {
+                    return List.of();
+                }
+                lists.add(postingList);
+            }
+            lists.sort(Comparator.comparingInt(PostingList::size));
+            return rank(normalized, lists, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Integer> rank(String query, List<PostingList> lists, int limit) {
+        Comparator<Hit> order = Comparator.comparingInt(Hit::score)
+                .thenComparingInt(Hit::length)
+                .thenComparingInt(Hit::id);
+        PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, order.reversed());
+        PostingList smallest = lists.get(0);
+        for (int i = 0; i < smallest.size(); i++) {
+            int id = smallest.get(i);
+            if (!containsInAll(lists, id)) {
+                continue;
+            }
+            String name = names.get(id);
+            if (!name.contains(query)) {
+                continue;
+            }
+            int score = name.equals(query) ? 0 : name.startsWith(query) ? 1 : 2;
+            top.add(new Hit(id, score, name.length()));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(order);
+        List<Integer> ids = new ArrayList<>(hits.size());
+        hits.forEach(hit -> ids.add(hit.id()));
+        return ids;
+    }
+
+    private boolean containsInAll(List<PostingList> lists, int id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void putLoaded(Anime anime) {
+        if (anime.getId() == null || anime.getName() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!changedDuringLoad.contains(anime.getId())) {
+                putLocked(anime);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void markChanged(Integer id) {
+        if (loading) {
+            changedDuringLoad.add(id);
+        }
+    }
+
+    private void putLocked(Anime anime) {
+        String name = normalize(anime.getName());
+        removeLocked(anime.getId());
+        names.put(anime.getId(), name);
+        for (String gram : grams(name)) {
+            postings.computeIfAbsent(gram, key -> new PostingList()).add(anime.getId());
+        }
+    }
+
+    private void removeLocked(Integer id) {
+        String name = names.remove(id);
+        if (name == null) {
+            return;
+        }
+        for (String gram : grams(name)) {
+            PostingList postingList = postings.get(gram);
+            if (postingList != null) {
+                postingList.remove(id);
+                if (postingList.size() == 0) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    static String normalize(String text) {
+        String nfkc = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder builder = new StringBuilder(nfkc.length());
+        nfkc.codePoints()
+                .filter(codePoint -> !Character.isWhitespace(codePoint))
+                .map(codePoint -> codePoint >= 'ァ' && codePoint <= 'ヶ' ? codePoint - ('ァ' - 'ぁ') : codePoint)
+                .forEach(builder::appendCodePoint);
+        return builder.toString();
+    }
+
+    private static Set<String> grams(String text) {
+        int[] codePoints = text.codePoints().toArray();
+        Set<String> grams = new LinkedHashSet<>();
+        for (int n = MIN_QUERY_LENGTH; n <= MAX_GRAM; n++) {
+            for (int i = 0; i + n <= codePoints.length; i++) {
+                grams.add(new String(codePoints, i, n));
+            }
+        }
+        return grams;
+    }
+
+    private static Set<String> queryGrams(String query) {
+        int[] codePoints = query.codePoints().toArray();
+        int n = Math.min(MAX_GRAM, codePoints.length);
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + n <= codePoints.length; i++) {
+            grams.add(new String(codePoints, i, n));
+        }
+        return grams;
+    }
+
+    private record Hit(int id, int score, int length) {
+    }
+}
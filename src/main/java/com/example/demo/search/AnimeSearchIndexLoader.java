@@ -0,0 +1,67 @@
+package com.example.demo.search;
+
+import com.example.demo.cache.AnimeCacheInvalidationChannel;
+import com.example.demo.entity.Anime;
+import com.example.demo.mapper.AnimeMapper;
+import com.example.demo.service.AnimeService;
+import java.util.Collection;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * 起動時に全件を読み込み、以降は無効化チャネルで通知されたidをDBから読み直す。
+ * 他のノードでの登録・更新・削除も、AnimeCacheと同じ通知で反映される。
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "anime.search.load-on-startup", havingValue = "true", matchIfMissing = true)
+public class AnimeSearchIndexLoader implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(AnimeSearchIndexLoader.class);
+
+    private final AnimeService animeService;
+
+    private final AnimeSearchIndex animeSearchIndex;
+
+    private final AnimeMapper animeMapper;
+
+    public AnimeSearchIndexLoader(AnimeService animeService,
+                                  AnimeSearchIndex animeSearchIndex,
+                                  AnimeMapper animeMapper,
+                                  AnimeCacheInvalidationChannel invalidationChannel) {
+        this.animeService = animeService;
+        this.animeSearchIndex = animeSearchIndex;
+        this.animeMapper = animeMapper;
+        invalidationChannel.subscribe(this::reload);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        animeSearchIndex.load(animeService::exportAnime);
+        log.info("anime search index loaded: {} titles in {} ms",
+                animeSearchIndex.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 読み直しを直列にし、古い読み取り結果が新しい結果を上書きしないようにする。
+     * 失敗しても同じ通知を受ける他の購読者（キャッシュの無効化）は止めない。
+     */
+    synchronized void reload(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            List<Anime> found = animeMapper.findByIds(ids);
+            animeSearchIndex.reload(ids, found);
+        } catch (RuntimeException e) {
+            log.warn("failed to reload anime search index for ids {}", ids, e);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.AnimeBulkResult;
+import com.example.demo.entity.Anime;
+import com.example.demo.event.AnimeChangedEvent;
+import com.example.demo.mapper.AnimeMapper;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Service
+@Profile("!reactive")
+public class AnimeBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnimeBatchService.class);
+
+    private final AnimeMapper animeMapper;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final AnimeIdAllocator idAllocator;
+
+    private final int chunkSize;
+
+    public AnimeBatchService(AnimeMapper animeMapper,
+                             ApplicationEventPublisher eventPublisher,
+                             TransactionTemplate transactionTemplate,
+                             AnimeIdAllocator idAllocator,
+                             @Value("${anime.batch.chunk-size:500}") int chunkSize) {
+        this.animeMapper = animeMapper;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.idAllocator = idAllocator;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * animeListと同じ順に、登録されたidを返す。チャンクごとにコミットし、
+     * 登録に失敗したチャンクの要素はnullにして残りのチャンクの登録を続ける。
+     */
+    public List<Integer> registerAnimeBatch(List<Anime> animeList) {
+        // idを先に確保できる場合は、登録を待たずにすべてのidが決まる
+        List<Anime> targets = idAllocator.isEnabled() ? idAllocator.assignIds(animeList) : animeList;
+        List<Integer> ids = new ArrayList<>(targets.size());
+        for (List<Anime> chunk : chunks(targets)) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (idAllocator.isEnabled()) {
+                        animeMapper.createAnimeBatchWithIds(chunk);
+                    } else {
+                        animeMapper.createAnimeBatch(chunk);
+                    }
+                });
+            } catch (RuntimeException e) {
+                log.warn("failed to register a chunk of {} anime", chunk.size(), e);
+                chunk.forEach(anime -> ids.add(null));
+                continue;
+            }
+            chunk.forEach(anime -> ids.add(anime.getId()));
+            publish(AnimeChangedEvent.Type.CREATED, chunk);
+        }
+        return ids;
+    }
+
+    public AnimeBulkResult updateAnimeBatch(List<Anime> animeList) {
+        Map<Integer, Anime> animeById = new LinkedHashMap<>();
+        animeList.forEach(anime -> animeById.put(anime.getId(), anime));
+        int affected = 0;
+        List<Integer> notFound = new ArrayList<>();
+        for (List<Anime> chunk : chunks(new ArrayList<>(animeById.values()))) {
+            List<Integer> ids = chunk.stream().map(Anime::getId).collect(Collectors.toList());
+            List<Anime> updated = transactionTemplate.execute(status -> {
+                Set<Integer> existingIds = new HashSet<>(animeMapper.findExistingIdsForUpdate(ids));
+                List<Anime> targets = chunk.stream()
+                        .filter(anime -> existingIds.contains(anime.getId()))
+                        .collect(Collectors.toList());
+                if (!targets.isEmpty()) {
+                    animeMapper.updateAnimeBatch(targets);
+                }
+                return targets;
+            });
+            affected += updated.size();
+            notFound.addAll(missingIds(ids, updated.stream().map(Anime::getId).collect(Collectors.toList())));
+            publish(AnimeChangedEvent.Type.UPDATED, updated);
+        }
+        return new AnimeBulkResult(affected, notFound);
+    }
+
+    public int changeGenre(String from, String to) {
+        if (from.equals(to)) {
+            return 0;
+        }
+        int affected = 0;
+        while (true) {
+            List<Anime> updated = transactionTemplate.execute(status -> {
+                List<Anime> targets = animeMapper.findByGenreForUpdate(from, chunkSize);
+                if (!targets.isEmpty()) {
+                    animeMapper.updateGenre(targets.stream().map(Anime::getId).collect(Collectors.toList()), to);
+                }
+                return targets.stream()
+                        .map(anime -> new Anime(anime.getId(), anime.getName(), to))
+                        .collect(Collectors.toList());
+            });
+            if (updated.isEmpty()) {
+                return affected;
+            }
+            affected += updated.size();
+            publish(AnimeChangedEvent.Type.UPDATED, updated);
+        }
+    }
+
+    public AnimeBulkResult deleteAnimeBatch(List<Integer> ids) {
+        int affected = 0;
+        List<Integer> notFound = new ArrayList<>();
+        for (List<Integer> chunk : chunks(new ArrayList<>(new LinkedHashSet<>(ids)))) {
+            List<Integer> deletedIds = transactionTemplate.execute(status -> {
+                List<Integer> existingIds = animeMapper.findExistingIdsForUpdate(chunk);
+                if (!existingIds.isEmpty()) {
+                    animeMapper.deleteAnimeBatch(existingIds);
+                }
+                return existingIds;
+            });
+            affected += deletedIds.size();
+            notFound.addAll(missingIds(chunk, deletedIds));
+            publish(AnimeChangedEvent.Type.DELETED, deletedIds.stream()
+                    .map(id -> new Anime(id, null, null))
+                    .collect(Collectors.toList()));
+        }
+        return new AnimeBulkResult(affected, notFound);
+    }
+
+    private <T> List<List<T>> chunks(List<T> list) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += chunkSize) {
+            chunks.add(list.subList(from, Math.min(from + chunkSize, list.size())));
+        }
+        return chunks;
+    }
+
+    private List<Integer> missingIds(List<Integer> ids, List<Integer> found) {
+        Set<Integer> foundIds = new HashSet<>(found);
+        return ids.stream().filter(id -> !foundIds.contains(id)).collect(Collectors.toList());
+    }
+
+    private void publish(AnimeChangedEvent.Type type, List<Anime> animeList) {
+        if (!animeList.isEmpty()) {
+            eventPublisher.publishEvent(new AnimeChangedEvent(type, animeList));
+        }
+    }
+}
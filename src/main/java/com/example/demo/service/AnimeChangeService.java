@@ -0,0 +1,132 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.AnimeChangePage;
+import com.example.demo.entity.AnimeChange;
+import com.example.demo.exception.ChangesExpiredException;
+import com.example.demo.mapper.AnimeChangeMapper;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * anime_change を読み、差分同期のページを作る。
+ * seqはAUTO_INCREMENTなので、後からコミットされた行が小さいseqを持つことがある。
+ * 追記からsettle-timeが過ぎた行までしか次のトークンを進めず、それより新しい行は次の呼び出しでも返す。
+ * settle-time は innodb_lock_wait_timeout と最も長い書き込みのトランザクションより長くすること。
+ * wait-for-open-transactions を true にすると、開いている書き込みのトランザクションのどれよりも後に追記された行も進めない。
+ * information_schema.innodb_trx を読むのでPROCESS権限が要り、既定では使わない。
+ * 行は常にその時点の全体の状態なので、同じ行を2回受け取っても結果は変わらない。
+ */
+@Service
+@Profile("!reactive")
+public class AnimeChangeService {
+
+    private final AnimeChangeMapper animeChangeMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final long settleMicros;
+
+    private final boolean waitForOpenTransactions;
+
+    private final long compactAfterMicros;
+
+    private final long tombstoneRetentionMicros;
+
+    private final int compactionBatchSize;
+
+    public AnimeChangeService(AnimeChangeMapper animeChangeMapper,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${anime.changes.settle-time:60s}") Duration settleTime,
+                              @Value("${anime.changes.wait-for-open-transactions:false}") boolean waitForOpenTransactions,
+                              @Value("${anime.changes.compact-after:10m}") Duration compactAfter,
+                              @Value("${anime.changes.tombstone-retention:7d}") Duration tombstoneRetention,
+                              @Value("${anime.changes.compaction-batch-size:1000}") int compactionBatchSize) {
+        this.animeChangeMapper = animeChangeMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.settleMicros = TimeUnit.NANOSECONDS.toMicros(settleTime.toNanos());
+        this.waitForOpenTransactions = waitForOpenTransactions;
+        this.compactAfterMicros = TimeUnit.NANOSECONDS.toMicros(compactAfter.toNanos());
+        this.tombstoneRetentionMicros = TimeUnit.NANOSECONDS.toMicros(tombstoneRetention.toNanos());
+        this.compactionBatchSize = compactionBatchSize;
+    }
+
+    /**
+     * sinceを省略した場合は変更を返さず、現在の位置をトークンとして返す。
+     */
+    public AnimeChangePage getChanges(Long since, int limit) {
+        if (since == null) {
+            return new AnimeChangePage(List.of(), animeChangeMapper.findLatestSeq(), false);
+        }
+        List<AnimeChange> changes = findChanges(since, limit);
+        long next = since;
+        for (AnimeChange change : changes) {
+            if (!change.isSettled()) {
+                break;
+            }
+            next = change.getSeq();
+        }
+        return new AnimeChangePage(changes, next, changes.size() == limit && next > since);
+    }
+
+    /**
+     * 読んだ後に圧縮の位置を確かめ、読んでいる間に消えたトゥームストーンがないことを保証する。
+     */
+    public List<AnimeChange> findChanges(long since, int limit) {
+        List<AnimeChange> changes = animeChangeMapper.findChanges(since, limit, settleMicros, waitForOpenTransactions);
+        requireRetained(since);
+        return changes;
+    }
+
+    public long latestSeq() {
+        return animeChangeMapper.findLatestSeq();
+    }
+
+    /**
+     * 0からの同期は削除を知る必要がないため、圧縮の位置に関わらず受け付ける。
+     */
+    public void requireRetained(long since) {
+        if (since > 0 && since < animeChangeMapper.findCompactionHorizon()) {
+            throw new ChangesExpiredException("since is older than the retained change log");
+        }
+    }
+
+    /**
+     * 同じアニメの後の変更がある行と、保持期間を過ぎたトゥームストーンを消し、消した件数を返す。
+     * 後の変更がある行は、前回の圧縮より後に追記された行から同じアニメの前の行をたどって探すので、
+     * 残り続ける最新の行を毎回読み直さない。前の行は、後の行がcompact-afterを過ぎてから消える。
+     */
+    public int compact() {
+        int removed = 0;
+        long after = animeChangeMapper.findSupersededThrough();
+        List<Long> seqs;
+        do {
+            seqs = animeChangeMapper.findSupersedingSeqs(after, compactAfterMicros, compactionBatchSize);
+            if (!seqs.isEmpty()) {
+                long from = after;
+                long through = seqs.get(seqs.size() - 1);
+                removed += transactionTemplate.execute(status -> {
+                    List<Long> superseded = animeChangeMapper.findSupersededSeqs(from, through);
+                    animeChangeMapper.raiseSupersededThrough(through);
+                    return superseded.isEmpty() ? 0 : animeChangeMapper.deleteChanges(superseded);
+                });
+                after = through;
+            }
+        } while (seqs.size() == compactionBatchSize);
+        do {
+            seqs = animeChangeMapper.findExpiredTombstoneSeqs(tombstoneRetentionMicros, compactionBatchSize);
+            if (!seqs.isEmpty()) {
+                List<Long> tombstones = seqs;
+                removed += transactionTemplate.execute(status -> {
+                    animeChangeMapper.raiseCompactionHorizon(tombstones.get(tombstones.size() - 1));
+                    return animeChangeMapper.deleteChanges(tombstones);
+                });
+            }
+        } while (seqs.size() == compactionBatchSize);
+        return removed;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Anime;
+import com.example.demo.entity.IdBlock;
+import com.example.demo.exception.ServiceOverloadedException;
+import com.example.demo.mapper.AnimeIdSequenceMapper;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntToLongFunction;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * anime.id-allocation.strategy=sequence のとき、登録するアニメのidをアプリで採番する（hi/lo方式）。
+ * anime_id_sequence から block-size 件ずつの範囲を1往復で確保し、範囲の中はロックを取らずに各スレッドへ渡す。
+ * 範囲を使い切った時は1つのスレッドだけが次の範囲を確保し、他のスレッドはそれを待つ。
+ * 確保は呼び出し元のトランザクションとは別にコミットするので、登録がロールバックされても同じidを2度渡すことはない。
+ * 再起動などで使わなかった範囲は欠番になる。
+ * 確保した範囲は AUTO_INCREMENT の値を進めないので、sequence のときはこのアプリのすべての登録がここで採番する。
+ * 同じDBに AUTO_INCREMENT で登録するもの（auto-increment のノードやreactiveプロファイル、他のアプリ）があってはならない。
+ * それらが範囲より後のidで登録した場合は、次の確保が MAX(id) より後から始まるので重ならない。
+ */
+@Component
+@Profile("!reactive")
+public class AnimeIdAllocator {
+
+    static final String AUTO_INCREMENT = "auto-increment";
+
+    static final String SEQUENCE = "sequence";
+
+    private static final Duration WAIT_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final boolean enabled;
+
+    private final int blockSize;
+
+    private final IntToLongFunction leaser;
+
+    private final AtomicReference<Block> block = new AtomicReference<>(new Block(0, 0));
+
+    private final AtomicReference<CompletableFuture<Void>> leasing = new AtomicReference<>();
+
+    @Autowired
+    public AnimeIdAllocator(ObjectProvider<AnimeIdSequenceMapper> animeIdSequenceMapper,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${anime.id-allocation.strategy:auto-increment}") String strategy,
+                            @Value("${anime.id-allocation.block-size:100}") int blockSize) {
+        this(enabled(strategy), blockSize, leaser(animeIdSequenceMapper, transactionManager));
+    }
+
+    AnimeIdAllocator(boolean enabled, int blockSize, IntToLongFunction leaser) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("anime.id-allocation.block-size must be positive");
+        }
+        this.enabled = enabled;
+        this.blockSize = blockSize;
+        this.leaser = leaser;
+    }
+
+    /**
+     * falseの場合はこれまで通り AUTO_INCREMENT で採番する。
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int nextId() {
+        while (true) {
+            Block current = block.get();
+            long id = current.next.getAndIncrement();
+            if (id < current.end) {
+                if (id > Integer.MAX_VALUE) {
+                    throw new IllegalStateException("anime id exceeds " + Integer.MAX_VALUE);
+                }
+                return (int) id;
+            }
+            awaitNextBlock(current);
+        }
+    }
+
+    /**
+     * animeListと同じ順に、idを振ったアニメを返す。
+     */
+    public List<Anime> assignIds(List<Anime> animeList) {
+        List<Anime> assigned = new ArrayList<>(animeList.size());
+        for (Anime anime : animeList) {
+            assigned.add(new Anime(nextId(), anime.getName(), anime.getGenre()));
+        }
+        return assigned;
+    }
+
+    private void awaitNextBlock(Block exhausted) {
+        CompletableFuture<Void> lease = new CompletableFuture<>();
+        if (!leasing.compareAndSet(null, lease)) {
+            CompletableFuture<Void> running = leasing.get();
+            if (running != null) {
+                await(running);
+            }
+            return;
+        }
+        try {
+            // 待っている間に他のスレッドが次の範囲に入れ替えていれば、確保し直さない
+            if (block.get() == exhausted) {
+                long end = leaser.applyAsLong(blockSize);
+                block.set(new Block(end - blockSize, end));
+            }
+            lease.complete(null);
+        } catch (RuntimeException | Error e) {
+            lease.completeExceptionally(e);
+            throw e;
+        } finally {
+            leasing.set(null);
+        }
+    }
+
+    private static void await(CompletableFuture<Void> lease) {
+        try {
+            lease.get(WAIT_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new ServiceOverloadedException("timed out waiting for an id block", RETRY_AFTER);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("interrupted while waiting for an id block", RETRY_AFTER);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static boolean enabled(String strategy) {
+        return switch (strategy) {
+            case AUTO_INCREMENT -> false;
+            case SEQUENCE -> true;
+            default -> throw new IllegalArgumentException("unknown anime.id-allocation.strategy: " + strategy);
+        };
+    }
+
+    /**
+     * Mapperは最初の確保の時に取り出し、auto-incrementの場合はMapperのXMLを読み込まずに済ませる。
+     */
+    private static IntToLongFunction leaser(ObjectProvider<AnimeIdSequenceMapper> animeIdSequenceMapper,
+                                            PlatformTransactionManager transactionManager) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return size -> {
+            IdBlock idBlock = new IdBlock(size);
+            transactionTemplate.executeWithoutResult(status -> animeIdSequenceMapper.getObject().leaseIdBlock(idBlock));
+            if (idBlock.getEnd() == 0) {
+                throw new IllegalStateException("anime_id_sequence has no row for anime");
+            }
+            return idBlock.getEnd();
+        };
+    }
+
+    private static final class Block {
+
+        private final AtomicLong next;
+
+        private final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
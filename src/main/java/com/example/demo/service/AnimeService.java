@@ -1,27 +1,126 @@
 package com.example.demo.service;
 
+import com.example.demo.cache.AnimeCache;
+import com.example.demo.datasource.ReplicaRead;
+import com.example.demo.datasource.ReplicaRouting;
+import com.example.demo.dto.AnimeMultiGetResult;
+import com.example.demo.dto.AnimePage;
 import com.example.demo.entity.Anime;
+import com.example.demo.entity.GenreCount;
+import com.example.demo.event.AnimeChangedEvent;
+import com.example.demo.exception.PreconditionFailedException;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.mapper.AnimeMapper;
+import com.example.demo.search.AnimeSearchIndex;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
+@Profile("!reactive")
 public class AnimeService {
 
+    /**
+     * 同じ読み取りの結果を待つ時間。これを過ぎると503を返す。
+     */
+    private static final Duration COALESCING_TIMEOUT = Duration.ofSeconds(10);
+
+    private final SingleFlight<Boolean, List<Anime>> allAnimeFlight = new SingleFlight<>(COALESCING_TIMEOUT);
+
+    private final SingleFlight<PageKey, AnimePage> pageFlight = new SingleFlight<>(COALESCING_TIMEOUT);
+
+    private final SingleFlight<Integer, Optional<Anime>> animeFlight = new SingleFlight<>(COALESCING_TIMEOUT);
+
     private final AnimeMapper animeMapper;
 
-    public AnimeService(AnimeMapper animeMapper) {
+    private final AnimeCache animeCache;
+
+    private final AnimeSearchIndex animeSearchIndex;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AnimeWriteBatcher writeBatcher;
+
+    private final AnimeIdAllocator idAllocator;
+
+    public AnimeService(AnimeMapper animeMapper, AnimeCache animeCache, AnimeSearchIndex animeSearchIndex,
+                        ApplicationEventPublisher eventPublisher, AnimeWriteBatcher writeBatcher,
+                        AnimeIdAllocator idAllocator) {
         this.animeMapper = animeMapper;
+        this.animeCache = animeCache;
+        this.animeSearchIndex = animeSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.writeBatcher = writeBatcher;
+        this.idAllocator = idAllocator;
     }
 
+    @ReplicaRead
     public List<Anime> getAllAnime() {
-        return animeMapper.findAll();
+        return allAnimeFlight.execute(ReplicaRouting.isPrimaryRequired(),
+                () -> Collections.unmodifiableList(animeMapper.findAll()));
+    }
+
+    @Transactional(readOnly = true)
+    public void exportAnime(Consumer<Anime> consumer) {
+        try (Cursor<Anime> cursor = animeMapper.findAllAsCursor()) {
+            cursor.forEach(consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @ReplicaRead
+    public AnimePage getAnimePage(Integer after, int limit) {
+        return pageFlight.execute(new PageKey(null, after, limit, ReplicaRouting.isPrimaryRequired()),
+                () -> toPage(animeMapper.findPage(after, limit + 1), limit));
+    }
+
+    @ReplicaRead
+    public AnimePage getAnimePageByGenre(String genre, Integer after, int limit) {
+        return pageFlight.execute(new PageKey(genre, after, limit, ReplicaRouting.isPrimaryRequired()),
+                () -> toPage(animeMapper.findPageByGenre(genre, after, limit + 1), limit));
+    }
+
+    @ReplicaRead
+    public List<GenreCount> getGenreCounts() {
+        return animeMapper.findGenreCounts();
     }
 
+    private AnimePage toPage(List<Anime> animeList, int limit) {
+        if (animeList.size() <= limit) {
+            return new AnimePage(animeList, null);
+        }
+        List<Anime> items = animeList.subList(0, limit);
+        return new AnimePage(List.copyOf(items), items.get(limit - 1).getId());
+    }
+
+    /**
+     * 書き込んだばかりのクライアントの読み取りは、レプリカから読んだ結果を受け取らないようキーを分ける。
+     */
+    private record PageKey(String genre, Integer after, int limit, boolean primaryRequired) {
+    }
+
+    /**
+     * キャッシュにない同じidの同時の読み込みは1回にまとまり、後から来た呼び出しは一覧と同じく一定時間だけ待つ。
+     * キャッシュは書き込みの時にしか無効化されないので、遅れているレプリカから読んだ値を入れないようプライマリから読む。
+     */
     public Anime getAnime(Integer id) {
-        Optional<Anime> animeId = animeMapper.findById(id);
+        Optional<Anime> cached = animeCache.getIfPresent(id);
+        Optional<Anime> animeId = cached != null ? cached
+                : animeFlight.execute(id, () -> animeCache.get(id, animeMapper::findById));
         if (animeId.isPresent()) {
             return animeId.get();
         } else {
@@ -29,27 +128,74 @@ public class AnimeService {
         }
     }
 
+    public AnimeMultiGetResult getAnimeList(List<Integer> ids) {
+        List<Integer> distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+        Map<Integer, Optional<Anime>> animeById = animeCache.getAll(distinctIds, this::findByIds);
+        List<Anime> items = distinctIds.stream()
+                .map(animeById::get)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+        List<Integer> missing = distinctIds.stream()
+                .filter(id -> animeById.get(id).isEmpty())
+                .collect(Collectors.toList());
+        return new AnimeMultiGetResult(items, missing);
+    }
+
+    public List<Anime> searchAnime(String query, int limit) {
+        List<Integer> ids = animeSearchIndex.search(query, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return getAnimeList(ids).getItems();
+    }
+
+    /**
+     * グループコミットが有効な場合は、同時に来た登録とまとめて書き込む。どちらの場合も採番されたidで変更を通知する。
+     */
     public void registerAnime(String name, String genre) {
-        Anime anime = new Anime(name, genre);
-        animeMapper.createAnime(anime);
+        Anime anime = idAllocator.isEnabled() ? new Anime(idAllocator.nextId(), name, genre) : new Anime(name, genre);
+        if (writeBatcher.isEnabled()) {
+            anime = new Anime(writeBatcher.create(anime), name, genre);
+        } else if (anime.getId() != null) {
+            animeMapper.createAnimeWithId(anime);
+        } else {
+            animeMapper.createAnime(anime);
+        }
+        eventPublisher.publishEvent(new AnimeChangedEvent(AnimeChangedEvent.Type.CREATED, List.of(anime)));
     }
 
     public void updateAnime(Integer id, String name, String genre) {
-        Optional<Anime> animeId = animeMapper.findById(id);
-        if (animeId.isPresent()) {
-            Anime anime = new Anime(id, name, genre);
-            animeMapper.updateAnime(anime);
-        } else {
+        Anime anime = new Anime(id, name, genre);
+        boolean updated = writeBatcher.isEnabled() ? writeBatcher.update(anime) : animeMapper.updateAnime(anime) > 0;
+        if (!updated) {
             throw new ResourceNotFoundException("resource not found");
         }
+        eventPublisher.publishEvent(new AnimeChangedEvent(AnimeChangedEvent.Type.UPDATED, List.of(anime)));
+    }
+
+    /**
+     * versionが一致する場合だけ更新し、更新後のversionを返す。
+     * 一致しない場合と存在しない場合は区別せず412にする。
+     */
+    public int updateAnimeIfMatch(Integer id, String name, String genre, int version) {
+        if (animeMapper.updateAnimeIfVersion(new Anime(id, name, genre, version, null)) == 0) {
+            throw new PreconditionFailedException("resource has been modified");
+        }
+        eventPublisher.publishEvent(new AnimeChangedEvent(AnimeChangedEvent.Type.UPDATED, List.of(new Anime(id, name, genre))));
+        return version + 1;
     }
 
     public void deleteAnime(Integer id) {
-        Optional<Anime> animeId = animeMapper.findById(id);
-        if (animeId.isPresent()) {
-            animeMapper.deleteAnime(id);
-        } else {
+        if (animeMapper.deleteAnime(id) == 0) {
             throw new ResourceNotFoundException("resource not found");
         }
+        eventPublisher.publishEvent(new AnimeChangedEvent(AnimeChangedEvent.Type.DELETED, List.of(new Anime(id, null, null))));
+    }
+
+    private Map<Integer, Optional<Anime>> findByIds(List<Integer> ids) {
+        Map<Integer, Optional<Anime>> animeById = new HashMap<>();
+        ids.forEach(id -> animeById.put(id, Optional.empty()));
+        animeMapper.findByIds(ids).forEach(anime -> animeById.put(anime.getId(), Optional.of(anime)));
+        return animeById;
     }
 }
@@ -0,0 +1,325 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Anime;
+import com.example.demo.exception.ServiceOverloadedException;
+import com.example.demo.mapper.AnimeMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 同時に来た1件ずつの登録・更新をまとめ、1つのトランザクションの中でまとめたSQLとして実行する（グループコミット）。
+ * 最初の書き込みから window が過ぎるか max-batch-size 件たまった時点で、1本のスレッドが実行する。
+ * 実行中に来た書き込みは次のまとまりになるので、負荷が高いほどまとまりが大きくなる。
+ * 呼び出し元はコミットまで待ち、自分の書き込みの結果（採番されたidや存在しなかったこと）を受け取る。
+ * まとまりの実行に失敗した場合は1件ずつ実行し直し、他の書き込みの失敗に巻き込まれないようにする。
+ * 待ち行列は max-queued 件までで、あふれた書き込みは待ち行列に入れずに断る。
+ */
+@Component
+@Profile("!reactive")
+public class AnimeWriteBatcher implements MeterBinder, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AnimeWriteBatcher.class);
+
+    private static final Duration WAIT_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final AnimeMapper animeMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final int maxBatchSize;
+
+    private final long windowNanos;
+
+    private final BlockingQueue<Write> queue;
+
+    private final Thread flusher;
+
+    private volatile DistributionSummary batchSizes;
+
+    private volatile boolean running = true;
+
+    public AnimeWriteBatcher(AnimeMapper animeMapper,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${anime.group-commit.enabled:false}") boolean enabled,
+                             @Value("${anime.group-commit.max-batch-size:64}") int maxBatchSize,
+                             @Value("${anime.group-commit.max-queued:1024}") int maxQueued,
+                             @Value("${anime.group-commit.window:200us}") Duration window) {
+        this.animeMapper = animeMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new LinkedBlockingQueue<>(maxQueued);
+        this.windowNanos = window.toNanos();
+        this.flusher = new Thread(this::run, "anime-group-commit");
+        this.flusher.setDaemon(true);
+        if (enabled) {
+            flusher.start();
+        }
+    }
+
+    /**
+     * 呼び出し元がトランザクションの中にいる場合は、その中で書く必要があるのでまとめない。
+     */
+    public boolean isEnabled() {
+        return enabled && !TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    /**
+     * コミットまで待ち、採番されたidを返す。idが設定済みの場合はそのidで登録する。
+     * 採番する場合、animeには採番されたidを設定しない。
+     */
+    public Integer create(Anime anime) {
+        Write write = new Write(anime, true);
+        await(submit(write));
+        return write.row.getId();
+    }
+
+    /**
+     * コミットまで待ち、対象のアニメが存在して更新できたかを返す。
+     */
+    public boolean update(Anime anime) {
+        return await(submit(new Write(anime, false)));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        batchSizes = DistributionSummary.builder("anime.group_commit.batch.size")
+                .description("Writes committed together in one transaction")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(WAIT_TIMEOUT.toMillis());
+        List<Write> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.stream().filter(Write::claim).forEach(write -> write.result.completeExceptionally(
+                new ServiceOverloadedException("shutting down", RETRY_AFTER)));
+    }
+
+    /**
+     * 待ち行列に入らなかった書き込みは実行されないので、再試行してよい。
+     */
+    private Write submit(Write write) {
+        if (!running) {
+            throw new ServiceOverloadedException("shutting down", RETRY_AFTER);
+        }
+        if (!queue.offer(write)) {
+            throw new ServiceOverloadedException("too many writes waiting for a group commit", RETRY_AFTER);
+        }
+        return write;
+    }
+
+    private boolean await(Write write) {
+        try {
+            return write.result.get(WAIT_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return cancelOrJoin(write, "timed out waiting for a group commit");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return cancelOrJoin(write, "interrupted while waiting for a group commit");
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    /**
+     * まだ実行が始まっていなければ取り消して再試行を促す。始まっていればもう一度だけコミットまで待って結果を返す。
+     * 実行が始まった書き込みを再試行してよいと返すと、再試行で同じ登録が2回コミットされるので、
+     * それでも終わらない場合は再試行を促さない例外にする。
+     */
+    private boolean cancelOrJoin(Write write, String message) {
+        if (write.cancel()) {
+            queue.remove(write);
+            throw new ServiceOverloadedException(message, RETRY_AFTER);
+        }
+        try {
+            return write.result.get(WAIT_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException(message + "; the write may still be committed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(message + "; the write may still be committed", e);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    private void run() {
+        List<Write> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    // 既にたまっている分は待たずに取り込む
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) == 0) {
+                        Write next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            // 呼び出し元が待つのをやめて取り消した書き込みは実行しない
+            batch.removeIf(write -> !write.claim());
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Write> batch) {
+        DistributionSummary summary = batchSizes;
+        if (summary != null) {
+            summary.record(batch.size());
+        }
+        List<Boolean> results;
+        try {
+            results = transactionTemplate.execute(status -> execute(batch));
+        } catch (RuntimeException | Error e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            log.debug("group commit of {} writes failed, retrying one by one", batch.size(), e);
+            batch.forEach(write -> flush(List.of(write)));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result.complete(results.get(i));
+        }
+    }
+
+    /**
+     * 登録は1つの複数行INSERTにする。更新は存在確認をしてからCASE式の1文にし、
+     * 同じidへの更新が複数ある場合は来た順に別の文で実行して、後の更新が残るようにする。
+     */
+    private List<Boolean> execute(List<Write> batch) {
+        Boolean[] results = new Boolean[batch.size()];
+        List<Anime> creates = new ArrayList<>();
+        List<Anime> createsWithIds = new ArrayList<>();
+        List<Integer> updateIndexes = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Write write = batch.get(i);
+            if (write.create && write.anime.getId() != null) {
+                // AnimeIdAllocatorで採番済みのものはidを指定して登録する
+                createsWithIds.add(write.anime);
+                results[i] = true;
+            } else if (write.create) {
+                // ロールバックされたまとまりで設定されたidを1件ずつの再実行に持ち込まないよう、実行のたびに新しい行にする
+                write.row = new Anime(write.anime.getName(), write.anime.getGenre());
+                creates.add(write.row);
+                results[i] = true;
+            } else {
+                updateIndexes.add(i);
+            }
+        }
+        if (!creates.isEmpty()) {
+            animeMapper.createAnimeBatch(creates);
+        }
+        if (!createsWithIds.isEmpty()) {
+            animeMapper.createAnimeBatchWithIds(createsWithIds);
+        }
+        while (!updateIndexes.isEmpty()) {
+            Set<Integer> roundIds = new HashSet<>();
+            List<Integer> round = new ArrayList<>();
+            List<Integer> deferred = new ArrayList<>();
+            for (Integer index : updateIndexes) {
+                if (roundIds.add(batch.get(index).anime.getId())) {
+                    round.add(index);
+                } else {
+                    deferred.add(index);
+                }
+            }
+            Set<Integer> existingIds = new HashSet<>(animeMapper.findExistingIdsForUpdate(
+                    roundIds.stream().sorted().collect(Collectors.toList())));
+            List<Anime> targets = new ArrayList<>();
+            for (Integer index : round) {
+                Anime anime = batch.get(index).anime;
+                results[index] = existingIds.contains(anime.getId());
+                if (results[index]) {
+                    targets.add(anime);
+                }
+            }
+            if (!targets.isEmpty()) {
+                animeMapper.updateAnimeBatch(targets);
+            }
+            updateIndexes = deferred;
+        }
+        return List.of(results);
+    }
+
+    private static final class Write {
+
+        private final Anime anime;
+
+        private final boolean create;
+
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        // 登録した行。採番する登録では実行のたびに作り直し、resultの完了後に呼び出し元が読む
+        private Anime row;
+
+        // 実行するスレッドが取り出したか、呼び出し元が取り消したか。先に決めた方だけが成功する
+        private final AtomicBoolean decided = new AtomicBoolean();
+
+        Write(Anime anime, boolean create) {
+            this.anime = anime;
+            this.create = create;
+            this.row = anime;
+        }
+
+        boolean claim() {
+            return decided.compareAndSet(false, true);
+        }
+
+        boolean cancel() {
+            return decided.compareAndSet(false, true);
+        }
+    }
+}
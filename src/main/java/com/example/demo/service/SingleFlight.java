@@ -0,0 +1,73 @@
+package com.example.demo.service;
+
+import com.example.demo.exception.ServiceOverloadedException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 同じキーの読み取りが同時に来た時、最初の呼び出しだけが実行し、後から来た呼び出しはその結果を待って受け取る。
+ * 実行は最初の呼び出し元のスレッドで行うので、トランザクションや接続先の振り分けはそのまま効く。
+ * 結果が出たらすぐにキーを外すので、結果を保持し続けることはない。
+ */
+final class SingleFlight<K, V> {
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Duration timeout;
+
+    SingleFlight(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * 実行中の同じキーの呼び出しがあればその結果を、なければloaderの結果を返す。
+     * loaderの例外は、待っていた呼び出しにも同じものが投げられる。
+     */
+    V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private V await(CompletableFuture<V> running) {
+        try {
+            return running.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new ServiceOverloadedException("timed out waiting for an identical request", RETRY_AFTER);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("interrupted while waiting for an identical request", RETRY_AFTER);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    int size() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * AppCDSアーカイブを作るための起動（./gradlew cdsArchive）で、起動が終わったらすぐにコンテキストを閉じる。
+ * JVMの終了時に、それまでに読み込んだクラスがアーカイブに書き出される。
+ */
+@Component
+@ConditionalOnProperty(name = "anime.startup.training-run", havingValue = "true")
+public class CdsTrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(CdsTrainingRun.class);
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        log.info("training run finished, closing the application context");
+        SpringApplication.exit(event.getApplicationContext());
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo.startup;
+
+import com.example.demo.changes.AnimeChangeCompactor;
+import com.example.demo.controller.AnimeController;
+import com.example.demo.exception.CustomExceptionHandler;
+import com.example.demo.warmup.AnimeHotIdRecorder;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * fast-startプロファイルでは全体を遅延初期化にし、最初のリクエストで使うBeanだけを起動時に作る。
+ * AnimeControllerから辿れるサービス、Mapper、キャッシュは起動時に作られ、
+ * 管理用のエンドポイントや使われないMapperは最初に使われた時に作られる。
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("fast-start")
+public class FastStartConfig {
+
+    /**
+     * 遅延初期化の判定はBeanを作る前に行われるので、staticで登録する。
+     * 誰からも参照されないバックグラウンドの処理も、遅延させると動かなくなるので対象外にする。
+     */
+    @Bean
+    static LazyInitializationExcludeFilter hotPathBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                AnimeController.class, CustomExceptionHandler.class, AnimeChangeCompactor.class,
+                AnimeHotIdRecorder.class);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.demo.timing;
+
+/**
+ * 1リクエスト分のフェーズごとの経過時間。
+ * スレッドごとに1つのインスタンスを使い回すので、計測中にオブジェクトを生成しない。
+ */
+public final class RequestTiming {
+
+    private static final ThreadLocal<RequestTiming> CURRENT = ThreadLocal.withInitial(RequestTiming::new);
+
+    private boolean active;
+    private long requestStart;
+    private long handlerStart;
+    private long firstServiceStart;
+    private long serviceStart;
+    private int serviceDepth;
+    private long serviceNanos;
+    private long databaseNanos;
+    private int statements;
+    private long serializationStart;
+    private long handlerEnd;
+    private boolean headerWritten;
+
+    private RequestTiming() {
+    }
+
+    static RequestTiming begin() {
+        RequestTiming timing = CURRENT.get();
+        timing.active = true;
+        timing.requestStart = System.nanoTime();
+        timing.handlerStart = 0;
+        timing.firstServiceStart = 0;
+        timing.serviceStart = 0;
+        timing.serviceDepth = 0;
+        timing.serviceNanos = 0;
+        timing.databaseNanos = 0;
+        timing.statements = 0;
+        timing.serializationStart = 0;
+        timing.handlerEnd = 0;
+        timing.headerWritten = false;
+        return timing;
+    }
+
+    static RequestTiming current() {
+        RequestTiming timing = CURRENT.get();
+        return timing.active ? timing : null;
+    }
+
+    void end() {
+        active = false;
+    }
+
+    /**
+     * Mapperの文1回分の実行時間を加算する。計測中でなければ何もしない。
+     */
+    public static void recordStatement(long elapsedNanos) {
+        RequestTiming timing = CURRENT.get();
+        if (timing.active) {
+            timing.databaseNanos += elapsedNanos;
+            timing.statements++;
+        }
+    }
+
+    void markHandlerStart() {
+        handlerStart = System.nanoTime();
+    }
+
+    void enterService() {
+        if (serviceDepth++ == 0) {
+            serviceStart = System.nanoTime();
+            if (firstServiceStart == 0) {
+                firstServiceStart = serviceStart;
+            }
+        }
+    }
+
+    void exitService() {
+        if (--serviceDepth == 0) {
+            serviceNanos += System.nanoTime() - serviceStart;
+        }
+    }
+
+    void markSerializationStart() {
+        if (serializationStart == 0) {
+            serializationStart = System.nanoTime();
+        }
+    }
+
+    void markHandlerEnd() {
+        handlerEnd = System.nanoTime();
+    }
+
+    boolean isHeaderWritten() {
+        return headerWritten;
+    }
+
+    /**
+     * ボディを書き出す前に分かっているフェーズを Server-Timing ヘッダーの値にする。
+     * シリアライズの時間はヘッダーを送った後に確定するので、ログにだけ出す。
+     */
+    String headerValue() {
+        headerWritten = true;
+        StringBuilder value = new StringBuilder(96);
+        appendMillis(value.append("bind;dur="), bindNanos());
+        appendMillis(value.append(", service;dur="), serviceExclusiveNanos());
+        appendMillis(value.append(", db;dur="), databaseNanos);
+        value.append(";desc=\"").append(statements).append(" statements\"");
+        return value.toString();
+    }
+
+    String logLine(String method, String path, int status) {
+        long now = System.nanoTime();
+        StringBuilder line = new StringBuilder(160);
+        line.append("method=").append(method).append(" path=").append(path).append(" status=").append(status);
+        appendMillis(line.append(" bind="), bindNanos());
+        appendMillis(line.append(" service="), serviceExclusiveNanos());
+        appendMillis(line.append(" db="), databaseNanos);
+        line.append(" statements=").append(statements);
+        appendMillis(line.append(" serialization="), serializationStart == 0 ? 0 : end(now) - serializationStart);
+        appendMillis(line.append(" total="), now - requestStart);
+        return line.toString();
+    }
+
+    /**
+     * ハンドラーに入ってから最初のサービス呼び出しまで。引数のバインドと検証がここに入る。
+     */
+    private long bindNanos() {
+        if (handlerStart == 0) {
+            return 0;
+        }
+        long until = firstServiceStart != 0 ? firstServiceStart
+                : serializationStart != 0 ? serializationStart
+                : end(System.nanoTime());
+        return until - handlerStart;
+    }
+
+    private long serviceExclusiveNanos() {
+        return Math.max(0, serviceNanos - databaseNanos);
+    }
+
+    private long end(long now) {
+        return handlerEnd != 0 ? handlerEnd : now;
+    }
+
+    private static void appendMillis(StringBuilder builder, long nanos) {
+        long micros = nanos / 1_000;
+        long fraction = micros % 1_000;
+        builder.append(micros / 1_000).append('.');
+        if (fraction < 100) {
+            builder.append('0');
+        }
+        if (fraction < 10) {
+            builder.append('0');
+        }
+        builder.append(fraction);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.timing;
+
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+@Component
+@Endpoint(id = "servertiming")
+public class ServerTimingEndpoint {
+
+    private final ServerTimingFilter filter;
+
+    public ServerTimingEndpoint(ServerTimingFilter filter) {
+        this.filter = filter;
+    }
+
+    @ReadOperation
+    public Map<String, Object> settings() {
+        return Map.of("enabled", filter.isEnabled(), "sampleRate", filter.getSampleRate());
+    }
+
+    @WriteOperation
+    public Map<String, Object> update(@Nullable Boolean enabled, @Nullable Double sampleRate) {
+        if (enabled != null) {
+            filter.setEnabled(enabled);
+        }
+        if (sampleRate != null) {
+            filter.setSampleRate(sampleRate);
+        }
+        return settings();
+    }
+}
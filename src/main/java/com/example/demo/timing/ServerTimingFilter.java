@@ -0,0 +1,70 @@
+package com.example.demo.timing;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * リクエストごとのフェーズ別計測を開始・終了し、サンプリングしたリクエストだけログに出す。
+ * 有効・無効とサンプリング率は、公開した場合だけ /actuator/servertiming から実行中に切り替えられる（既定では公開しない）。
+ */
+@Component
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+    private volatile boolean enabled;
+
+    private volatile double sampleRate;
+
+    public ServerTimingFilter(@Value("${anime.server-timing.enabled:false}") boolean enabled,
+                              @Value("${anime.server-timing.sample-rate:0.01}") double sampleRate) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!enabled) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        RequestTiming timing = RequestTiming.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (log.isInfoEnabled() && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                log.info(timing.logLine(request.getMethod(),
+                        pattern != null ? pattern.toString() : request.getRequestURI(), response.getStatus()));
+            }
+            timing.end();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+}
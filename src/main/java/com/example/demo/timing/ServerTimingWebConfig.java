@@ -0,0 +1,46 @@
+package com.example.demo.timing;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class ServerTimingWebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ServerTimingHandlerInterceptor()).addPathPatterns("/api/**");
+    }
+
+    /**
+     * ハンドラーの開始と終了を記録する。ボディを書かないハンドラーのヘッダーはここで付ける。
+     */
+    static class ServerTimingHandlerInterceptor implements HandlerInterceptor {
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            RequestTiming timing = RequestTiming.current();
+            if (timing != null) {
+                timing.markHandlerStart();
+            }
+            return true;
+        }
+
+        @Override
+        public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                               ModelAndView modelAndView) {
+            RequestTiming timing = RequestTiming.current();
+            if (timing == null) {
+                return;
+            }
+            timing.markHandlerEnd();
+            if (!timing.isHeaderWritten() && !response.isCommitted()) {
+                response.setHeader(ServerTimingResponseBodyAdvice.SERVER_TIMING, timing.headerValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.demo.timing;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+
+/**
+ * {@link Service} の呼び出し時間をリクエストの計測に加える。
+ * 計測中でなければThreadLocalを1回見るだけで素通りする。
+ */
+@Component
+public class ServiceTimingPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+    public ServiceTimingPostProcessor() {
+        MethodInterceptor interceptor = invocation -> {
+            RequestTiming timing = RequestTiming.current();
+            if (timing == null) {
+                return invocation.proceed();
+            }
+            timing.enterService();
+            try {
+                return invocation.proceed();
+            } finally {
+                timing.exitService();
+            }
+        };
+        this.advisor = new DefaultPointcutAdvisor(new AnnotationMatchingPointcut(Service.class, true), interceptor);
+        setBeforeExistingAdvisors(true);
+        setProxyTargetClass(true);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.warmup;
+
+import com.example.demo.cache.AnimeCache;
+import com.example.demo.mapper.AnimeHotIdMapper;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * キャッシュでアクセス頻度の高いアニメのidを anime_hot_id へ定期的に記録する。
+ * 後から起動したノードはウォームアップでこのidを読み、実際のアクセスに近い状態までキャッシュを埋めてから受け付ける。
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "anime.warm-up.enabled", havingValue = "true")
+public class AnimeHotIdRecorder implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AnimeHotIdRecorder.class);
+
+    private final AnimeCache animeCache;
+
+    private final AnimeHotIdMapper animeHotIdMapper;
+
+    private final int hotIds;
+
+    private final long retentionMicros;
+
+    private final ScheduledExecutorService recorder;
+
+    public AnimeHotIdRecorder(AnimeCache animeCache,
+                              AnimeHotIdMapper animeHotIdMapper,
+                              @Value("${anime.warm-up.hot-ids:1000}") int hotIds,
+                              @Value("${anime.warm-up.record-interval:1m}") Duration recordInterval,
+                              @Value("${anime.warm-up.hot-id-retention:1d}") Duration retention) {
+        this.animeCache = animeCache;
+        this.animeHotIdMapper = animeHotIdMapper;
+        this.hotIds = hotIds;
+        this.retentionMicros = TimeUnit.NANOSECONDS.toMicros(retention.toNanos());
+        this.recorder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "anime-hot-id-recorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = recordInterval.toMillis();
+        recorder.scheduleWithFixedDelay(this::record, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        recorder.shutdownNow();
+    }
+
+    void record() {
+        try {
+            List<Integer> ids = animeCache.hottestIds(hotIds);
+            if (!ids.isEmpty()) {
+                animeHotIdMapper.recordHotIds(ids);
+            }
+            animeHotIdMapper.deleteExpiredHotIds(retentionMicros);
+        } catch (RuntimeException e) {
+            log.warn("failed to record hot anime ids", e);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.demo.warmup;
+
+import com.example.demo.cache.AnimeListSnapshot;
+import com.example.demo.datasource.ReplicaRoutingDataSource;
+import com.example.demo.entity.Anime;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.mapper.AnimeHotIdMapper;
+import com.example.demo.mapper.AnimeMapper;
+import com.example.demo.service.AnimeService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+/**
+ * 起動後、リクエストを受け付ける前に接続プール、キャッシュ、JITを温める。
+ * ApplicationRunnerとして実行するので、終わるまでは readiness が REFUSING_TRAFFIC のままになり、
+ * 終わった後の ApplicationReadyEvent で ACCEPTING_TRAFFIC になる。
+ * 1ラウンドの平均レイテンシが stable-rounds 回続けて前のラウンドから tolerance 以内に収まったら終える。
+ * 収まらなくても max-duration を過ぎたら終え、ウォームアップの失敗で起動を止めることはしない。
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "anime.warm-up.enabled", havingValue = "true")
+public class AnimeWarmUp implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(AnimeWarmUp.class);
+
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    private static final int PRELOAD_CHUNK_SIZE = 100;
+
+    /**
+     * これより小さい差は計測の揺れとみなし、比率によらず安定しているものとする。
+     */
+    private static final long NOISE_NANOS = 20_000;
+
+    private final DataSource dataSource;
+
+    private final AnimeService animeService;
+
+    private final AnimeMapper animeMapper;
+
+    private final AnimeHotIdMapper animeHotIdMapper;
+
+    private final AnimeListSnapshot animeListSnapshot;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ObjectWriter animeWriter;
+
+    private final int hotIds;
+
+    private final int iterations;
+
+    private final int stableRounds;
+
+    private final double tolerance;
+
+    private final Duration maxDuration;
+
+    private final long retentionMicros;
+
+    public AnimeWarmUp(DataSource dataSource,
+                       AnimeService animeService,
+                       AnimeMapper animeMapper,
+                       AnimeHotIdMapper animeHotIdMapper,
+                       AnimeListSnapshot animeListSnapshot,
+                       ApplicationEventPublisher eventPublisher,
+                       ObjectMapper objectMapper,
+                       @Value("${anime.warm-up.hot-ids:1000}") int hotIds,
+                       @Value("${anime.warm-up.iterations:500}") int iterations,
+                       @Value("${anime.warm-up.stable-rounds:3}") int stableRounds,
+                       @Value("${anime.warm-up.tolerance:0.1}") double tolerance,
+                       @Value("${anime.warm-up.max-duration:60s}") Duration maxDuration,
+                       @Value("${anime.warm-up.hot-id-retention:1d}") Duration retention) {
+        this.dataSource = dataSource;
+        this.animeService = animeService;
+        this.animeMapper = animeMapper;
+        this.animeHotIdMapper = animeHotIdMapper;
+        this.animeListSnapshot = animeListSnapshot;
+        this.eventPublisher = eventPublisher;
+        this.animeWriter = objectMapper.writerFor(Anime.class);
+        this.hotIds = hotIds;
+        this.iterations = iterations;
+        this.stableRounds = stableRounds;
+        this.tolerance = tolerance;
+        this.maxDuration = maxDuration;
+        this.retentionMicros = TimeUnit.NANOSECONDS.toMicros(retention.toNanos());
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        long start = System.nanoTime();
+        try {
+            int connections = fillConnectionPool();
+            List<Integer> ids = hotIds();
+            preloadCaches(ids);
+            int rounds = runUntilStable(ids, start + maxDuration.toNanos());
+            log.info("warm-up finished in {} ms: {} connections, {} hot ids, {} rounds",
+                    (System.nanoTime() - start) / 1_000_000, connections, ids.size(), rounds);
+        } catch (SQLException | RuntimeException e) {
+            log.warn("warm-up failed, accepting traffic without it", e);
+        }
+    }
+
+    /**
+     * プールごとに上限まで接続を同時に借りてから返し、最初のリクエストが接続の確立を待たないようにする。
+     * レプリカを設定した場合の LazyConnectionDataSourceProxy は文を発行するまで接続を取らないので、
+     * 包みを外してプライマリとレプリカのプールから直接借りる。
+     */
+    int fillConnectionPool() throws SQLException {
+        List<HikariDataSource> pools = new ArrayList<>();
+        collectPools(dataSource, pools);
+        if (pools.isEmpty()) {
+            return fill(dataSource, DEFAULT_POOL_SIZE);
+        }
+        int filled = 0;
+        for (HikariDataSource pool : pools) {
+            filled += fill(pool, pool.getMaximumPoolSize());
+        }
+        return filled;
+    }
+
+    private static void collectPools(DataSource dataSource, List<HikariDataSource> pools) throws SQLException {
+        if (dataSource instanceof DelegatingDataSource delegating) {
+            collectPools(delegating.getTargetDataSource(), pools);
+        } else if (dataSource instanceof ReplicaRoutingDataSource routing) {
+            for (DataSource target : routing.getTargetDataSources()) {
+                collectPools(target, pools);
+            }
+        } else if (dataSource != null && dataSource.isWrapperFor(HikariDataSource.class)) {
+            pools.add(dataSource.unwrap(HikariDataSource.class));
+        }
+    }
+
+    private static int fill(DataSource pool, int size) throws SQLException {
+        List<Connection> connections = new ArrayList<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                connections.add(pool.getConnection());
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+        return connections.size();
+    }
+
+    /**
+     * 他のノードが記録したアクセス頻度の高いidを使い、記録がなければ先頭から hot-ids 件を使う。
+     */
+    List<Integer> hotIds() {
+        List<Integer> ids = animeHotIdMapper.findHotIds(hotIds, retentionMicros);
+        if (!ids.isEmpty()) {
+            return ids;
+        }
+        return animeMapper.findPage(0, hotIds).stream().map(Anime::getId).collect(Collectors.toList());
+    }
+
+    private void preloadCaches(List<Integer> ids) {
+        for (int from = 0; from < ids.size(); from += PRELOAD_CHUNK_SIZE) {
+            animeService.getAnimeList(ids.subList(from, Math.min(from + PRELOAD_CHUNK_SIZE, ids.size())));
+        }
+        animeListSnapshot.current();
+    }
+
+    int runUntilStable(List<Integer> ids, long deadline) {
+        int rounds = 0;
+        int stable = 0;
+        long previous = -1;
+        while (stable < stableRounds && System.nanoTime() - deadline < 0) {
+            long current = runRound(ids);
+            rounds++;
+            if (previous >= 0 && isStable(previous, current, tolerance)) {
+                stable++;
+            } else {
+                stable = 0;
+            }
+            previous = current;
+        }
+        if (stable < stableRounds) {
+            log.warn("warm-up latency did not stabilize within {}", maxDuration);
+        }
+        return rounds;
+    }
+
+    static boolean isStable(long previousNanos, long currentNanos, double tolerance) {
+        long difference = Math.abs(currentNanos - previousNanos);
+        return difference <= NOISE_NANOS || difference <= previousNanos * tolerance;
+    }
+
+    /**
+     * 取得とシリアライズを iterations 回繰り返し、1回あたりの平均の処理時間を返す。
+     * キャッシュを通る経路と、MyBatisでDBから読む経路の両方を通す。全件の取得は件数に比例して重く、
+     * 一覧はスナップショットを温めれば済むので繰り返さない。
+     */
+    private long runRound(List<Integer> ids) {
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < iterations && !ids.isEmpty(); i++) {
+                Integer id = ids.get(i % ids.size());
+                animeMapper.findById(id);
+                animeWriter.writeValueAsBytes(getAnime(id));
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        int operations = ids.isEmpty() ? 1 : Math.max(1, iterations);
+        return (System.nanoTime() - start) / operations;
+    }
+
+    /**
+     * ウォームアップ中に削除されたidは、404と同じ経路を通したうえでnullにする。
+     */
+    private Anime getAnime(Integer id) {
+        try {
+            return animeService.getAnime(id);
+        } catch (ResourceNotFoundException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.demo.admission;
+
+import com.example.demo.exception.ServiceOverloadedException;
+import com.example.demo.exception.TooManyRequestsException;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControlTest {
+
+    @Test
+    void 読み取りの上限に達しても書き込みは受け付けること() {
+        AdmissionControl admissionControl = new AdmissionControl(properties(2, 1, 1000));
+
+        AdaptiveConcurrencyLimit first = admissionControl.admit(request("GET", "client"));
+        admissionControl.admit(request("GET", "client"));
+
+        assertThatThrownBy(() -> admissionControl.admit(request("GET", "client")))
+                .isInstanceOf(ServiceOverloadedException.class)
+                .satisfies(e -> assertThat(((ServiceOverloadedException) e).getRetryAfter()).isEqualTo(Duration.ofSeconds(1)));
+        admissionControl.admit(request("PATCH", "client"));
+
+        admissionControl.release(first);
+        admissionControl.admit(request("GET", "client"));
+    }
+
+    @Test
+    void クライアントごとのトークンが尽きると429になり他のクライアントは受け付けること() {
+        AdmissionControl admissionControl = new AdmissionControl(properties(100, 100, 2));
+
+        admissionControl.admit(request("GET", "a"));
+        admissionControl.admit(request("GET", "a"));
+
+        assertThatThrownBy(() -> admissionControl.admit(request("GET", "a")))
+                .isInstanceOf(TooManyRequestsException.class)
+                .satisfies(e -> assertThat(((TooManyRequestsException) e).getRetryAfter()).isPositive());
+        admissionControl.admit(request("GET", "b"));
+    }
+
+    @Test
+    void 目標時間を超えた文があると上限が下がり目標内の文が続くと上限が戻ること() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 2, 40, Duration.ofMillis(50));
+
+        limit.onSample(Duration.ofMillis(200).toNanos(), System.nanoTime());
+        assertThat(limit.getLimit()).isEqualTo(18);
+
+        limit.onSample(Duration.ofMillis(200).toNanos(), System.nanoTime());
+        assertThat(limit.getLimit()).as("続けて下げない").isEqualTo(18);
+
+        for (int i = 0; i < 9; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+        }
+        for (int i = 0; i < 40; i++) {
+            limit.onSample(Duration.ofMillis(10).toNanos(), System.nanoTime());
+        }
+        assertThat(limit.getLimit()).isGreaterThanOrEqualTo(19);
+    }
+
+    @Test
+    void 書き込みの文の実行時間は書き込みの上限だけを調整すること() {
+        AdmissionControl admissionControl = new AdmissionControl(properties(1, 10, 1000));
+
+        admissionControl.admit(request("GET", "client"));
+        admissionControl.onStatement(SqlCommandType.UPDATE, Duration.ofSeconds(1).toNanos());
+
+        assertThatThrownBy(() -> admissionControl.admit(request("GET", "client")))
+                .isInstanceOf(ServiceOverloadedException.class);
+        for (int i = 0; i < 9; i++) {
+            admissionControl.admit(request("DELETE", "client"));
+        }
+        assertThatThrownBy(() -> admissionControl.admit(request("DELETE", "client")))
+                .isInstanceOf(ServiceOverloadedException.class);
+    }
+
+    @Test
+    void 受け付けたリクエストの外で実行された文では上限を調整しないこと() {
+        AdmissionControl admissionControl = new AdmissionControl(properties(1, 10, 1000));
+
+        admissionControl.onStatement(SqlCommandType.UPDATE, Duration.ofSeconds(1).toNanos());
+        AdaptiveConcurrencyLimit admitted = admissionControl.admit(request("GET", "client"));
+        admissionControl.release(admitted);
+        admissionControl.onStatement(SqlCommandType.UPDATE, Duration.ofSeconds(1).toNanos());
+
+        for (int i = 0; i < 10; i++) {
+            admissionControl.admit(request("DELETE", "client"));
+        }
+    }
+
+    @Test
+    void クライアントを識別するヘッダーを指定しない場合はクライアントごとに制限しないこと() {
+        AdmissionProperties properties = properties(100, 100, 1);
+        properties.getClient().setHeader(null);
+        AdmissionControl admissionControl = new AdmissionControl(properties);
+
+        for (int i = 0; i < 3; i++) {
+            admissionControl.release(admissionControl.admit(request("GET", "client")));
+        }
+    }
+
+    private static AdmissionProperties properties(int readLimit, int writeLimit, int clientCapacity) {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setRead(new AdmissionProperties.Limit(readLimit, 1, readLimit, Duration.ofMillis(50)));
+        properties.setWrite(new AdmissionProperties.Limit(writeLimit, 1, writeLimit, Duration.ofMillis(100)));
+        properties.getClient().setCapacity(clientCapacity);
+        properties.getClient().setRefillPerSecond(1);
+        properties.getClient().setHeader("X-Client-Id");
+        return properties;
+    }
+
+    private static MockHttpServletRequest request(String method, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/anime");
+        request.addHeader("X-Client-Id", client);
+        return request;
+    }
+}
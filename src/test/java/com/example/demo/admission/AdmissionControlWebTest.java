@@ -0,0 +1,65 @@
+package com.example.demo.admission;
+
+import com.example.demo.cache.AnimeListSnapshot;
+import com.example.demo.changes.AnimeChangeStream;
+import com.example.demo.entity.Anime;
+import com.example.demo.idempotency.IdempotentRequests;
+import com.example.demo.service.AnimeBatchService;
+import com.example.demo.service.AnimeChangeService;
+import com.example.demo.service.AnimeService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(properties = {
+        "anime.admission.enabled=true",
+        "anime.admission.client.capacity=1",
+        "anime.admission.client.refill-per-second=0.5",
+        "anime.admission.client.header=X-Client-Id"})
+@AutoConfigureMockMvc
+class AdmissionControlWebTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    AnimeService animeService;
+
+    @MockBean
+    AnimeBatchService animeBatchService;
+
+    @MockBean
+    AnimeListSnapshot animeListSnapshot;
+
+    @MockBean
+    AnimeChangeService animeChangeService;
+
+    @MockBean
+    AnimeChangeStream animeChangeStream;
+
+    @MockBean
+    IdempotentRequests idempotentRequests;
+
+    @Test
+    void クライアントのトークンが尽きると429とRetryAfterが返ること() throws Exception {
+        Mockito.when(animeService.getAnime(1)).thenReturn(new Anime(1, "鬼滅の刃", "ダークファンタジー"));
+
+        mockMvc.perform(get("/api/anime/1").header("X-Client-Id", "heavy"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/anime/1").header("X-Client-Id", "heavy"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.message").value("too many requests"))
+                .andExpect(jsonPath("$.path").value("/api/anime/1"));
+        mockMvc.perform(get("/api/anime/1").header("X-Client-Id", "light"))
+                .andExpect(status().isOk());
+    }
+}
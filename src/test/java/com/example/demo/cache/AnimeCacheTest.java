@@ -0,0 +1,94 @@
+package com.example.demo.cache;
+
+import com.example.demo.entity.Anime;
+import com.example.demo.event.AnimeChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnimeCacheTest {
+
+    private final InProcessAnimeCacheInvalidationChannel channel = new InProcessAnimeCacheInvalidationChannel();
+
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    private Optional<Anime> load(Integer id) {
+        loadCount.incrementAndGet();
+        return Optional.of(new Anime(id, "Anime" + id, "Action"));
+    }
+
+    @Test
+    void キャッシュ済みのアニメはloaderを呼ばずに返しヒット数が記録されること() {
+        AnimeCache animeCache = new AnimeCache(channel, 100, Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        animeCache.get(1, this::load);
+        Optional<Anime> actual = animeCache.get(1, this::load);
+
+        assertThat(actual).contains(new Anime(1, "Anime1", "Action"));
+        assertThat(loadCount).hasValue(1);
+        assertThat(animeCache.stats().hitCount()).isEqualTo(1);
+        assertThat(animeCache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void 頻度の高いidとして存在しないアニメのidは返さないこと() {
+        AnimeCache animeCache = new AnimeCache(channel, 100, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        animeCache.get(1, this::load);
+        animeCache.get(2, this::load);
+        animeCache.get(3, id -> Optional.empty());
+
+        List<Integer> actual = animeCache.hottestIds(10);
+
+        assertThat(actual).containsExactlyInAnyOrder(1, 2);
+    }
+
+    @Test
+    void 更新イベントを受け取った時に該当のアニメが無効化されること() {
+        AnimeCache animeCache = new AnimeCache(channel, 100, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        animeCache.get(1, this::load);
+        animeCache.get(2, this::load);
+
+        animeCache.onAnimeChanged(new AnimeChangedEvent(AnimeChangedEvent.Type.UPDATED, List.of(new Anime(1, "Anime3", "Power"))));
+        animeCache.get(1, this::load);
+        animeCache.get(2, this::load);
+
+        assertThat(loadCount).hasValue(3);
+    }
+
+    @Test
+    void 無効化が同じチャネルを購読している他のノードのキャッシュにも伝わること() {
+        AnimeCache node1 = new AnimeCache(channel, 100, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        AnimeCache node2 = new AnimeCache(channel, 100, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        node1.get(1, this::load);
+        node2.get(1, this::load);
+
+        node1.invalidate(List.of(1));
+        node2.get(1, this::load);
+
+        assertThat(loadCount).hasValue(3);
+    }
+
+    @Test
+    void 存在しない結果は短いTTLで期限切れになること() throws Exception {
+        AnimeCache animeCache = new AnimeCache(channel, 100, Duration.ofMinutes(1), Duration.ofMillis(50));
+        AtomicInteger missLoadCount = new AtomicInteger();
+
+        animeCache.get(1, id -> {
+            missLoadCount.incrementAndGet();
+            return Optional.empty();
+        });
+        Thread.sleep(100);
+        Optional<Anime> actual = animeCache.get(1, id -> {
+            missLoadCount.incrementAndGet();
+            return Optional.empty();
+        });
+
+        assertThat(actual).isEmpty();
+        assertThat(missLoadCount).hasValue(2);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.demo.cache;
+
+import com.example.demo.entity.Anime;
+import com.example.demo.mapper.AnimeMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnimeListSnapshotTest {
+
+    private final AnimeMapper animeMapper = mock(AnimeMapper.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final InProcessAnimeCacheInvalidationChannel invalidationChannel = new InProcessAnimeCacheInvalidationChannel();
+
+    private final List<Runnable> pendingRebuilds = new ArrayList<>();
+
+    private final AnimeListSnapshot animeListSnapshot = new AnimeListSnapshot(animeMapper, objectMapper, invalidationChannel, pendingRebuilds::add);
+
+    @Test
+    void 変更がない間はDBに問い合わせず同じスナップショットを返すこと() throws Exception {
+        when(animeMapper.findAll()).thenReturn(List.of(new Anime(1, "Anime1", "Action")));
+
+        AnimeListSnapshot.Snapshot first = animeListSnapshot.current();
+        AnimeListSnapshot.Snapshot second = animeListSnapshot.current();
+
+        assertThat(second).isSameAs(first);
+        assertThat(objectMapper.readValue(first.json(), Anime[].class)).containsExactly(new Anime(1, "Anime1", "Action"));
+        verify(animeMapper, times(1)).findAll();
+    }
+
+    @Test
+    void 無効化の通知の後はバックグラウンドで作り直されETagが変わること() {
+        when(animeMapper.findAll())
+                .thenReturn(List.of(new Anime(1, "Anime1", "Action")))
+                .thenReturn(List.of(new Anime(1, "Anime2", "Action")));
+        AnimeListSnapshot.Snapshot before = animeListSnapshot.current();
+
+        // 他のノードの書き込みも同じ経路で届く
+        invalidationChannel.publish(List.of(1));
+        pendingRebuilds.forEach(Runnable::run);
+        AnimeListSnapshot.Snapshot after = animeListSnapshot.current();
+
+        assertThat(after.version()).isGreaterThan(before.version());
+        assertThat(after.etag()).isNotEqualTo(before.etag());
+        verify(animeMapper, times(2)).findAll();
+    }
+
+    @Test
+    void 作り直しが終わるまでは前のスナップショットを返しDBを待たないこと() {
+        when(animeMapper.findAll())
+                .thenReturn(List.of(new Anime(1, "Anime1", "Action")))
+                .thenReturn(List.of());
+        AnimeListSnapshot.Snapshot before = animeListSnapshot.current();
+
+        animeListSnapshot.invalidate();
+        AnimeListSnapshot.Snapshot actual = animeListSnapshot.current();
+
+        assertThat(actual).isSameAs(before);
+        verify(animeMapper, times(1)).findAll();
+        pendingRebuilds.forEach(Runnable::run);
+        assertThat(new String(animeListSnapshot.current().json())).isEqualTo("[]");
+    }
+
+    @Test
+    void バックグラウンドの作り直しに失敗した場合は次の取得でもう一度作り直すこと() {
+        when(animeMapper.findAll())
+                .thenReturn(List.of(new Anime(1, "Anime1", "Action")))
+                .thenThrow(new IllegalStateException("connection refused"))
+                .thenReturn(List.of());
+        AnimeListSnapshot.Snapshot before = animeListSnapshot.current();
+
+        animeListSnapshot.invalidate();
+        runPendingRebuilds();
+
+        assertThat(animeListSnapshot.current()).isSameAs(before);
+        runPendingRebuilds();
+        assertThat(new String(animeListSnapshot.current().json())).isEqualTo("[]");
+        verify(animeMapper, times(3)).findAll();
+    }
+
+    @Test
+    void refreshは呼び出したスレッドで作り直した結果を返すこと() {
+        when(animeMapper.findAll())
+                .thenReturn(List.of(new Anime(1, "Anime1", "Action")))
+                .thenReturn(List.of());
+        animeListSnapshot.current();
+
+        AnimeListSnapshot.Snapshot actual = animeListSnapshot.refresh();
+
+        assertThat(new String(actual.json())).isEqualTo("[]");
+        assertThat(animeListSnapshot.current()).isSameAs(actual);
+    }
+
+    @Test
+    void gzip版を展開するとJSONと一致し同じ内容なら同じETagになること() throws IOException {
+        byte[] json = "[{\"id\":1}]".getBytes();
+
+        AnimeListSnapshot.Snapshot actual = AnimeListSnapshot.Snapshot.of(1, json);
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(actual.gzip()))) {
+            assertThat(in.readAllBytes()).isEqualTo(json);
+        }
+        assertThat(actual.etag()).isEqualTo(AnimeListSnapshot.Snapshot.of(2, json).etag());
+        assertThat(actual.gzipEtag()).isNotEqualTo(actual.etag());
+    }
+
+    private void runPendingRebuilds() {
+        List<Runnable> rebuilds = new ArrayList<>(pendingRebuilds);
+        pendingRebuilds.clear();
+        rebuilds.forEach(Runnable::run);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.changes;
+
+import com.example.demo.service.AnimeChangeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnimeChangeCompactorTest {
+
+    private final AnimeChangeService animeChangeService = mock(AnimeChangeService.class);
+
+    private AnimeChangeCompactor animeChangeCompactor;
+
+    @AfterEach
+    void tearDown() {
+        animeChangeCompactor.destroy();
+    }
+
+    @Test
+    void 圧縮に失敗しても次の間隔で圧縮し直すこと() {
+        when(animeChangeService.compact()).thenThrow(new IllegalStateException("deadlock")).thenReturn(3);
+
+        animeChangeCompactor = new AnimeChangeCompactor(animeChangeService, Duration.ofMillis(10));
+
+        verify(animeChangeService, timeout(1000).atLeast(2)).compact();
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.demo.changes;
+
+import com.example.demo.entity.AnimeChange;
+import com.example.demo.exception.ChangesExpiredException;
+import com.example.demo.service.AnimeChangeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnimeChangeStreamTest {
+
+    private final AnimeChangeService animeChangeService = mock(AnimeChangeService.class);
+
+    // 読み込みのたびに、sinceより後の行をこの一覧から返す
+    private final List<AnimeChange> changeLog = new CopyOnWriteArrayList<>();
+
+    private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    private AnimeChangeStream animeChangeStream;
+
+    @BeforeEach
+    void setUp() {
+        when(animeChangeService.findChanges(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long since = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return changeLog.stream().filter(change -> change.getSeq() > since).limit(limit).collect(Collectors.toList());
+        });
+        // 定期的な読み込みで結果が変わらないよう、テストの中では呼び出した時だけ読む
+        animeChangeStream = new AnimeChangeStream(animeChangeService, Duration.ofHours(1), Duration.ofMinutes(1)) {
+            @Override
+            SseEmitter newEmitter() {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        animeChangeStream.destroy();
+    }
+
+    @Test
+    void 落ち着く前に送った変更は落ち着いた後に送り直さないこと() {
+        when(animeChangeService.latestSeq()).thenReturn(10L);
+        animeChangeStream.subscribe(null);
+        await(() -> animeChangeStream.subscribers() == 1);
+
+        changeLog.add(change(11, false));
+        animeChangeStream.poll();
+        changeLog.set(0, change(11, true));
+        changeLog.add(change(12, false));
+        animeChangeStream.poll();
+        changeLog.set(1, change(12, true));
+        animeChangeStream.poll();
+
+        assertThat(emitters.get(0).ids()).containsExactly("11", "12");
+    }
+
+    @Test
+    void 送り済みの変更がREAD_LIMIT件を超える場合は上限まで送って再接続を促すこと() {
+        LongStream.rangeClosed(1, 600).forEach(seq -> changeLog.add(change(seq, true)));
+        when(animeChangeService.latestSeq()).thenReturn(600L);
+
+        animeChangeStream.subscribe(0L);
+        await(() -> emitters.get(0).completed);
+
+        RecordingEmitter first = emitters.get(0);
+        assertThat(first.ids()).hasSize(500).startsWith("1").endsWith("500");
+        assertThat(first.events.get(first.events.size() - 1)).contains("retry:0");
+        assertThat(animeChangeStream.subscribers()).isZero();
+
+        animeChangeStream.subscribe(500L);
+        await(() -> animeChangeStream.subscribers() == 1);
+
+        RecordingEmitter second = emitters.get(1);
+        assertThat(second.ids()).hasSize(100).startsWith("501").endsWith("600");
+        assertThat(second.completed).isFalse();
+    }
+
+    @Test
+    void 圧縮で削除の履歴が消えていた場合は購読者を閉じて最新の位置から読み直すこと() {
+        when(animeChangeService.latestSeq()).thenReturn(10L);
+        animeChangeStream.subscribe(null);
+        await(() -> animeChangeStream.subscribers() == 1);
+
+        when(animeChangeService.findChanges(anyLong(), anyInt()))
+                .thenThrow(new ChangesExpiredException("since is older than the retained change log"));
+        animeChangeStream.poll();
+
+        assertThat(emitters.get(0).completed).isTrue();
+        assertThat(animeChangeStream.subscribers()).isZero();
+        verify(animeChangeService, atLeast(1)).latestSeq();
+
+        when(animeChangeService.findChanges(anyLong(), anyInt())).thenReturn(List.of());
+        animeChangeStream.subscribe(null);
+        await(() -> animeChangeStream.subscribers() == 1);
+
+        verify(animeChangeService, atLeast(2)).latestSeq();
+    }
+
+    private static AnimeChange change(long seq, boolean settled) {
+        return new AnimeChange(seq, AnimeChange.Type.UPSERT, 1, "Anime" + seq, "Action", settled);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * 接続に書き込む代わりに、送ったイベントの文字列部分を記録する。
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        private volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            events.add(builder.build().stream()
+                    .map(data -> data.getData() instanceof String text ? text : "")
+                    .collect(Collectors.joining()));
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            completed = true;
+        }
+
+        List<String> ids() {
+            List<String> ids = new ArrayList<>();
+            for (String event : events) {
+                if (event.startsWith("id:")) {
+                    ids.add(event.substring(3, event.indexOf('\n')));
+                }
+            }
+            return ids;
+        }
+    }
+}
@@ -1,7 +1,25 @@
 package com.example.demo.controller;
 
+import com.example.demo.cache.AnimeListSnapshot;
+import com.example.demo.changes.AnimeChangeStream;
+import com.example.demo.dto.AnimeBatchItemResult;
+import com.example.demo.dto.AnimeBulkResult;
+import com.example.demo.dto.AnimeChangePage;
+import com.example.demo.dto.AnimeMultiGetResult;
+import com.example.demo.dto.AnimePage;
 import com.example.demo.entity.Anime;
+import com.example.demo.entity.AnimeChange;
+import com.example.demo.entity.GenreCount;
+import com.example.demo.exception.ChangesExpiredException;
+import com.example.demo.exception.PreconditionFailedException;
 import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.form.AnimeForm;
+import com.example.demo.form.AnimeUpdateForm;
+import com.example.demo.form.GenreChangeForm;
+import com.example.demo.idempotency.IdempotentRequests;
+import com.example.demo.idempotency.InMemoryIdempotencyStore;
+import com.example.demo.service.AnimeBatchService;
+import com.example.demo.service.AnimeChangeService;
 import com.example.demo.service.AnimeService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -11,25 +29,40 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.util.StreamUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest
 @AutoConfigureMockMvc
+@Import({IdempotentRequests.class, InMemoryIdempotencyStore.class})
 class AnimeControllerTests {
     @Autowired
     private MockMvc mockMvc;
@@ -45,18 +78,198 @@ class AnimeControllerTests {
     @MockBean
     AnimeService animeService;
 
+    @MockBean
+    AnimeBatchService animeBatchService;
+
+    @MockBean
+    AnimeListSnapshot animeListSnapshot;
+
+    @MockBean
+    AnimeChangeService animeChangeService;
+
+    @MockBean
+    AnimeChangeStream animeChangeStream;
+
     @Test
     void アニメが全件取得できること() throws Exception {
         var response = List.of(new Anime(1, "鬼滅の刃", "ダークファンタジー"), new Anime(2, "SPY×FAMILY", "ホームコメディ"), new Anime(3, "Dr.STONE", "survival"));
 
-        Mockito.when(animeService.getAllAnime()).thenReturn(response);
+        Mockito.when(animeListSnapshot.current()).thenReturn(AnimeListSnapshot.Snapshot.of(1, objectMapper.writeValueAsBytes(response)));
         var result = mockMvc.perform(get(String.format("/api/anime")).accept(MediaType.APPLICATION_JSON).contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
                 .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
 
         JSONAssert.assertEquals(String.valueOf(objectMapper.readTree(getJsonFileData("200AllAnime.json"))), result, true);
     }
 
+    @Test
+    void 全件取得でIfNoneMatchがETagと一致した場合に304が返ること() throws Exception {
+        var snapshot = AnimeListSnapshot.Snapshot.of(1, objectMapper.writeValueAsBytes(List.of(new Anime(1, "鬼滅の刃", "ダークファンタジー"))));
+        Mockito.when(animeListSnapshot.current()).thenReturn(snapshot);
+
+        var result = mockMvc.perform(get("/api/anime").header(HttpHeaders.IF_NONE_MATCH, snapshot.etag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, snapshot.etag()))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void 全件取得でgzipを受け付ける場合にgzipで返ること() throws Exception {
+        var json = objectMapper.writeValueAsBytes(List.of(new Anime(1, "鬼滅の刃", "ダークファンタジー")));
+        var snapshot = AnimeListSnapshot.Snapshot.of(1, json);
+        Mockito.when(animeListSnapshot.current()).thenReturn(snapshot);
+
+        var result = mockMvc.perform(get("/api/anime").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.ETAG, snapshot.gzipEtag()))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(result))) {
+            assertThat(in.readAllBytes()).isEqualTo(json);
+        }
+    }
+
+    @Test
+    void 全件取得でgzipのq値が0の場合やgzip以外の符号化だけの場合はgzipで返さないこと() throws Exception {
+        var json = objectMapper.writeValueAsBytes(List.of(new Anime(1, "鬼滅の刃", "ダークファンタジー")));
+        var snapshot = AnimeListSnapshot.Snapshot.of(1, json);
+        Mockito.when(animeListSnapshot.current()).thenReturn(snapshot);
+
+        for (String acceptEncoding : List.of("gzip;q=0, deflate", "x-gzip", "*;q=0.5, gzip; q=0")) {
+            mockMvc.perform(get("/api/anime").header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                    .andExpect(header().string(HttpHeaders.ETAG, snapshot.etag()));
+        }
+        assertThat(AnimeController.acceptsGzip("deflate, GZIP;q=0.8")).isTrue();
+        assertThat(AnimeController.acceptsGzip("*")).isTrue();
+    }
+
+    @Test
+    void カーソルを指定した場合にアニメが1ページ分取得できること() throws Exception {
+        var response = new AnimePage(List.of(new Anime(1, "鬼滅の刃", "ダークファンタジー"), new Anime(2, "SPY×FAMILY", "ホームコメディ")), 2);
+
+        Mockito.when(animeService.getAnimePage(0, 2)).thenReturn(response);
+        var result = mockMvc.perform(get("/api/anime?after=0&limit=2").accept(MediaType.APPLICATION_JSON).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        JSONAssert.assertEquals(String.valueOf(objectMapper.readTree(getJsonFileData("200AnimePage.json"))), result, true);
+    }
+
+    @Test
+    void カーソルが空の場合は先頭から1ページ分取得できること() throws Exception {
+        Mockito.when(animeService.getAnimePage(0, 20)).thenReturn(new AnimePage(List.of(), null));
+
+        mockMvc.perform(get("/api/anime?after=").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        Mockito.verify(animeService).getAnimePage(0, 20);
+    }
+
+    @Test
+    void ジャンルを指定した場合にそのジャンルのアニメが1ページ分取得できること() throws Exception {
+        var response = new AnimePage(List.of(new Anime(3, "Dr.STONE", "survival")), null);
+
+        Mockito.when(animeService.getAnimePageByGenre("survival", 0, 20)).thenReturn(response);
+        var result = mockMvc.perform(get("/api/anime?genre=survival").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        JSONAssert.assertEquals("{\"items\": [{\"id\": 3, \"name\": \"Dr.STONE\", \"genre\": \"survival\"}], \"nextCursor\": null}", result, true);
+    }
+
+    @Test
+    void 名前でアニメを検索できること() throws Exception {
+        Mockito.when(animeService.searchAnime("鬼滅", 20)).thenReturn(List.of(new Anime(1, "鬼滅の刃", "ダークファンタジー")));
+        var result = mockMvc.perform(get("/api/anime/search").param("q", "鬼滅").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        JSONAssert.assertEquals("[{\"id\": 1, \"name\": \"鬼滅の刃\", \"genre\": \"ダークファンタジー\"}]", result, true);
+    }
+
+    @Test
+    void 検索文字列が2文字未満の場合に400エラーとなること() throws Exception {
+        mockMvc.perform(get("/api/anime/search").param("q", " 刃 ").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void ジャンルごとの件数が取得できること() throws Exception {
+        Mockito.when(animeService.getGenreCounts()).thenReturn(List.of(new GenreCount("survival", 1L), new GenreCount("ホームコメディ", 2L)));
+        var result = mockMvc.perform(get("/api/anime/genres").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        JSONAssert.assertEquals("[{\"genre\": \"survival\", \"count\": 1}, {\"genre\": \"ホームコメディ\", \"count\": 2}]", result, true);
+    }
+
+    @Test
+    void 件数の指定がない場合と上限を超える場合に件数が補正されること() throws Exception {
+        Mockito.when(animeService.getAnimePage(Mockito.eq(0), Mockito.anyInt())).thenReturn(new AnimePage(List.of(), null));
+
+        mockMvc.perform(get("/api/anime?after=0").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/anime?after=0&limit=1000").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        Mockito.verify(animeService).getAnimePage(0, 20);
+        Mockito.verify(animeService).getAnimePage(0, 100);
+    }
+
+    @Test
+    void 複数のIDを指定した時にアニメと存在しないIDが返されること() throws Exception {
+        Mockito.when(animeService.getAnimeList(List.of(2, 1, 4))).thenReturn(
+                new AnimeMultiGetResult(List.of(new Anime(2, "SPY×FAMILY", "ホームコメディ"), new Anime(1, "鬼滅の刃", "ダークファンタジー")), List.of(4)));
+        var result = mockMvc.perform(get("/api/anime?ids=2,1,4").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        JSONAssert.assertEquals("""
+                {
+                    "items": [
+                        {"id": 2, "name": "SPY×FAMILY", "genre": "ホームコメディ"},
+                        {"id": 1, "name": "鬼滅の刃", "genre": "ダークファンタジー"}
+                    ],
+                    "missing": [4]
+                }
+                """, result, true);
+    }
+
+    @Test
+    void 指定したIDが上限を超える場合に400エラーとなること() throws Exception {
+        var ids = String.join(",", IntStream.rangeClosed(1, 101).mapToObj(String::valueOf).toList());
+        var result = mockMvc.perform(get("/api/anime?ids=" + ids).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andReturn().getResolvedException().getMessage();
+
+        assertThat(result).isEqualTo("ids must not exceed 100");
+    }
+
+    @Test
+    void アニメが1行1件のNDJSONでエクスポートできること() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Anime> consumer = invocation.getArgument(0);
+            consumer.accept(new Anime(1, "鬼滅の刃", "ダークファンタジー"));
+            consumer.accept(new Anime(2, "SPY×FAMILY", "ホームコメディ"));
+            return null;
+        }).when(animeService).exportAnime(any());
+
+        var result = mockMvc.perform(get("/api/anime/export"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        assertThat(result.getContentType()).startsWith("application/x-ndjson");
+        assertThat(result.getContentAsString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"id\":1,\"name\":\"鬼滅の刃\",\"genre\":\"ダークファンタジー\"}\n"
+                        + "{\"id\":2,\"name\":\"SPY×FAMILY\",\"genre\":\"ホームコメディ\"}\n");
+    }
+
     @Test
     void アニメが取得できるときに1件アニメを返すこと() throws Exception {
         var id = 1;
@@ -70,6 +283,53 @@ class AnimeControllerTests {
         JSONAssert.assertEquals(String.valueOf(objectMapper.readTree(getJsonFileData("200OneAnime.json"))), result, true);
     }
 
+    @Test
+    void アニメを1件取得した時にversionのETagが返りIfNoneMatchが一致すれば304になること() throws Exception {
+        Mockito.when(animeService.getAnime(1)).thenReturn(new Anime(1, "鬼滅の刃", "ダークファンタジー", 3, null));
+
+        mockMvc.perform(get("/api/anime/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+        mockMvc.perform(get("/api/anime/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void 変更履歴を指定したトークン以降で取得できること() throws Exception {
+        Mockito.when(animeChangeService.getChanges(10L, 20)).thenReturn(new AnimeChangePage(List.of(
+                new AnimeChange(11L, AnimeChange.Type.UPSERT, 1, "鬼滅の刃", "ダークファンタジー", true),
+                new AnimeChange(12L, AnimeChange.Type.DELETE, 2, null, null, true)), 12L, false));
+
+        var result = mockMvc.perform(get("/api/anime/changes?since=10").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        JSONAssert.assertEquals("""
+                {"changes": [
+                  {"seq": 11, "type": "UPSERT", "id": 1, "name": "鬼滅の刃", "genre": "ダークファンタジー"},
+                  {"seq": 12, "type": "DELETE", "id": 2, "name": null, "genre": null}
+                ], "next": 12, "hasMore": false}
+                """, result, true);
+    }
+
+    @Test
+    void 変更履歴のトークンが保持期間より古い場合に410が返されること() throws Exception {
+        Mockito.when(animeChangeService.getChanges(1L, 20)).thenThrow(new ChangesExpiredException("since is older than the retained change log"));
+
+        mockMvc.perform(get("/api/anime/changes?since=1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void 変更の購読でLastEventIDがsinceより優先されること() throws Exception {
+        Mockito.when(animeChangeStream.subscribe(15L)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/anime/changes?since=10").header("Last-Event-ID", "15").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+
+        Mockito.verify(animeChangeStream).subscribe(15L);
+    }
+
     @Test
     void アニメが取得できないときに例外をthrowすること() throws Exception {
         var id = 4;
@@ -94,6 +354,98 @@ class AnimeControllerTests {
         assertThat(result).isEqualTo("anime successfully created");
     }
 
+    @Test
+    void 同じIdempotencyKeyの再送では登録せず最初のレスポンスが返されること() throws Exception {
+        var anime = new Anime("Your Name", "Romantic Fantasy");
+        var content = this.objectMapper.writeValueAsString(anime);
+
+        mockMvc.perform(post("/api/anime").header("Idempotency-Key", "register-1").contentType(MediaType.APPLICATION_JSON).content(content))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+        var result = mockMvc.perform(post("/api/anime").header("Idempotency-Key", "register-1").contentType(MediaType.APPLICATION_JSON).content(content))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost:8080/api/anime/"))
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        assertThat(result).isEqualTo("anime successfully created");
+        Mockito.verify(animeService, Mockito.times(1)).registerAnime("Your Name", "Romantic Fantasy");
+    }
+
+    @Test
+    void 同じIdempotencyKeyを別の内容で使い回したときに登録せず422が返されること() throws Exception {
+        mockMvc.perform(post("/api/anime").header("Idempotency-Key", "register-2").contentType(MediaType.APPLICATION_JSON)
+                        .content(this.objectMapper.writeValueAsString(new Anime("Your Name", "Romantic Fantasy"))))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(post("/api/anime").header("Idempotency-Key", "register-2").contentType(MediaType.APPLICATION_JSON)
+                        .content(this.objectMapper.writeValueAsString(new Anime("Dr.STONE", "survival"))))
+                .andExpect(status().isUnprocessableEntity());
+
+        Mockito.verify(animeService, Mockito.never()).registerAnime("Dr.STONE", "survival");
+    }
+
+    @Test
+    void 登録に失敗したIdempotencyKeyは再送で登録し直されること() throws Exception {
+        var content = this.objectMapper.writeValueAsString(new Anime("Your Name", "Romantic Fantasy"));
+        doThrow(new IllegalStateException("deadlock")).doNothing().when(animeService).registerAnime("Your Name", "Romantic Fantasy");
+
+        assertThatThrownBy(() -> mockMvc.perform(post("/api/anime").header("Idempotency-Key", "register-3").contentType(MediaType.APPLICATION_JSON).content(content)))
+                .hasRootCauseInstanceOf(IllegalStateException.class);
+        mockMvc.perform(post("/api/anime").header("Idempotency-Key", "register-3").contentType(MediaType.APPLICATION_JSON).content(content))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+
+        Mockito.verify(animeService, Mockito.times(2)).registerAnime("Your Name", "Romantic Fantasy");
+    }
+
+    @Test
+    void アニメを一括登録した時に登録順のIDと不正な要素のエラーが返されること() throws Exception {
+        var animeForms = List.of(new AnimeForm("Your Name", "Romantic Fantasy"), new AnimeForm("", "Action"), new AnimeForm("Dr.STONE", "survival"));
+
+        Mockito.when(animeBatchService.registerAnimeBatch(List.of(new Anime("Your Name", "Romantic Fantasy"), new Anime("Dr.STONE", "survival"))))
+                .thenReturn(List.of(10, 11));
+        var result = mockMvc.perform(post("/api/anime/batch").accept(MediaType.APPLICATION_JSON).contentType(MediaType.APPLICATION_JSON).content(this.objectMapper.writeValueAsString(animeForms)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        JSONAssert.assertEquals("""
+                [
+                    {"index": 0, "id": 10},
+                    {"index": 1, "errors": {"name": "cannot be empty"}},
+                    {"index": 2, "id": 11}
+                ]
+                """, result, true);
+    }
+
+    @Test
+    void 一括登録で登録に失敗したチャンクの要素にエラーが返されること() throws Exception {
+        var animeForms = List.of(new AnimeForm("Your Name", "Romantic Fantasy"), new AnimeForm("Dr.STONE", "survival"));
+
+        Mockito.when(animeBatchService.registerAnimeBatch(List.of(new Anime("Your Name", "Romantic Fantasy"), new Anime("Dr.STONE", "survival"))))
+                .thenReturn(Arrays.asList(10, null));
+        var result = mockMvc.perform(post("/api/anime/batch").accept(MediaType.APPLICATION_JSON).contentType(MediaType.APPLICATION_JSON).content(this.objectMapper.writeValueAsString(animeForms)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        JSONAssert.assertEquals("""
+                [
+                    {"index": 0, "id": 10},
+                    {"index": 1, "errors": {"anime": "registration failed"}}
+                ]
+                """, result, true);
+    }
+
+    @Test
+    void 一括登録の件数が上限を超えた時に400が返されること() throws Exception {
+        var animeForms = Collections.nCopies(1001, new AnimeForm("Your Name", "Romantic Fantasy"));
+
+        mockMvc.perform(post("/api/anime/batch").accept(MediaType.APPLICATION_JSON).contentType(MediaType.APPLICATION_JSON).content(this.objectMapper.writeValueAsString(animeForms)))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verify(animeBatchService, Mockito.never()).registerAnimeBatch(Mockito.anyList());
+    }
+
     @Test
     void アニメの更新ができること() throws Exception {
         var id = 1;
@@ -118,6 +470,45 @@ class AnimeControllerTests {
         assertThat(result).isEqualTo("anime successfully deleted");
     }
 
+    @Test
+    void アニメを一括更新した時に更新件数と存在しないIDと不正な要素のエラーが返されること() throws Exception {
+        var animeForms = List.of(new AnimeUpdateForm(1, "Your Name", "Romantic Fantasy"), new AnimeUpdateForm(null, "Dr.STONE", "survival"), new AnimeUpdateForm(4, "Anime4", "Action"));
+
+        Mockito.when(animeBatchService.updateAnimeBatch(List.of(new Anime(1, "Your Name", "Romantic Fantasy"), new Anime(4, "Anime4", "Action"))))
+                .thenReturn(new AnimeBulkResult(1, List.of(4)));
+        var result = mockMvc.perform(patch("/api/anime").accept(MediaType.APPLICATION_JSON).contentType(MediaType.APPLICATION_JSON).content(this.objectMapper.writeValueAsString(animeForms)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        JSONAssert.assertEquals("""
+                {
+                    "affected": 1,
+                    "notFound": [4],
+                    "errors": [{"index": 1, "errors": {"id": "cannot be empty"}}]
+                }
+                """, result, true);
+    }
+
+    @Test
+    void ジャンルを一括変更した時に変更件数が返されること() throws Exception {
+        Mockito.when(animeBatchService.changeGenre("Action", "Power")).thenReturn(3);
+        var result = mockMvc.perform(patch("/api/anime/genres").accept(MediaType.APPLICATION_JSON).contentType(MediaType.APPLICATION_JSON).content(this.objectMapper.writeValueAsString(new GenreChangeForm("Action", "Power"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        JSONAssert.assertEquals("{\"affected\": 3, \"notFound\": []}", result, true);
+    }
+
+    @Test
+    void アニメを一括削除した時に削除件数と存在しないIDが返されること() throws Exception {
+        Mockito.when(animeBatchService.deleteAnimeBatch(List.of(1, 2, 4))).thenReturn(new AnimeBulkResult(2, List.of(4)));
+        var result = mockMvc.perform(delete("/api/anime?ids=1,2,4").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        JSONAssert.assertEquals("{\"affected\": 2, \"notFound\": [4]}", result, true);
+    }
+
     @Test
     void 更新対象のアニメが存在しないときにレスポンスボディにエラーメッセージが返されること() throws Exception {
         var id = 4;
@@ -134,6 +525,41 @@ class AnimeControllerTests {
         assertThat(result).isEqualTo("resource not found");
     }
 
+    @Test
+    void IfMatchを指定した更新で次のversionのETagが返されること() throws Exception {
+        var anime = new Anime(1, "Your Name", "Romantic Fantasy");
+
+        Mockito.when(animeService.updateAnimeIfMatch(1, "Your Name", "Romantic Fantasy", 3)).thenReturn(4);
+        mockMvc.perform(patch("/api/anime/1").header(HttpHeaders.IF_MATCH, "\"3\"").contentType(MediaType.APPLICATION_JSON).content(this.objectMapper.writeValueAsString(anime)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+
+        Mockito.verify(animeService, Mockito.never()).updateAnime(any(), any(), any());
+    }
+
+    @Test
+    void IfMatchのversionが一致しないときに412が返されること() throws Exception {
+        var anime = new Anime(1, "Your Name", "Romantic Fantasy");
+
+        Mockito.when(animeService.updateAnimeIfMatch(1, "Your Name", "Romantic Fantasy", 3))
+                .thenThrow(new PreconditionFailedException("resource has been modified"));
+        var result = mockMvc.perform(patch("/api/anime/1").header(HttpHeaders.IF_MATCH, "\"3\"").contentType(MediaType.APPLICATION_JSON).content(this.objectMapper.writeValueAsString(anime)))
+                .andExpect(status().isPreconditionFailed())
+                .andReturn().getResolvedException().getMessage();
+
+        assertThat(result).isEqualTo("resource has been modified");
+    }
+
+    @Test
+    void IfMatchが弱いETagのときに更新せず412が返されること() throws Exception {
+        var anime = new Anime(1, "Your Name", "Romantic Fantasy");
+
+        mockMvc.perform(patch("/api/anime/1").header(HttpHeaders.IF_MATCH, "W/\"3\"").contentType(MediaType.APPLICATION_JSON).content(this.objectMapper.writeValueAsString(anime)))
+                .andExpect(status().isPreconditionFailed());
+
+        Mockito.verifyNoInteractions(animeService);
+    }
+
     @Test
     void 削除対象のアニメが存在しないときにレスポンスボディにエラーメッセージが返されること() throws Exception {
         var id = 4;
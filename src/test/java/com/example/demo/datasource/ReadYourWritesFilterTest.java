@@ -0,0 +1,58 @@
+package com.example.demo.datasource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.Cookie;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesFilterTest {
+
+    private static final Instant NOW = Instant.parse("2022-12-21T00:00:00Z");
+
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(2), Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void 書き込みのリクエストにはプライマリから読む期限のCookieが付くこと() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        boolean primaryRequired = filter(new MockHttpServletRequest("PATCH", "/api/anime/1"), response);
+
+        assertThat(primaryRequired).isTrue();
+        assertThat(response.getCookie(ReadYourWritesFilter.COOKIE_NAME).getValue())
+                .isEqualTo(String.valueOf(NOW.toEpochMilli() + 2000));
+        assertThat(ReplicaRouting.isPrimaryRequired()).isFalse();
+    }
+
+    @Test
+    void 期限内のCookieを持つ読み取りはプライマリから読むこと() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/anime/1");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, String.valueOf(NOW.toEpochMilli() + 1)));
+
+        assertThat(filter(request, new MockHttpServletResponse())).isTrue();
+    }
+
+    @Test
+    void 期限切れのCookieや不正なCookieを持つ読み取りはレプリカから読めること() throws Exception {
+        MockHttpServletRequest expired = new MockHttpServletRequest("GET", "/api/anime/1");
+        expired.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, String.valueOf(NOW.toEpochMilli())));
+        MockHttpServletRequest invalid = new MockHttpServletRequest("GET", "/api/anime/1");
+        invalid.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, "abc"));
+
+        assertThat(filter(expired, new MockHttpServletResponse())).isFalse();
+        assertThat(filter(invalid, new MockHttpServletResponse())).isFalse();
+    }
+
+    private boolean filter(MockHttpServletRequest request, MockHttpServletResponse response) throws Exception {
+        AtomicBoolean primaryRequired = new AtomicBoolean();
+        filter.doFilter(request, response, (req, res) -> primaryRequired.set(ReplicaRouting.isPrimaryRequired()));
+        return primaryRequired.get();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * プライマリとレプリカの代わりに、内容の違う2つのH2インメモリDBを使う。
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = database("primary", "プライマリ");
+
+    private final SwitchableDataSource replica = new SwitchableDataSource(database("replica", "レプリカ"));
+
+    private final ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primary, List.of(replica), Duration.ofHours(1));
+
+    private final DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    @AfterEach
+    void tearDown() throws Exception {
+        ReplicaRouting.clear();
+        ReplicaRouting.clearPrimaryRequired();
+        routingDataSource.destroy();
+    }
+
+    @Test
+    void 指定がなければプライマリから読むこと() {
+        assertThat(findName()).isEqualTo("プライマリ");
+    }
+
+    @Test
+    void ReplicaReadの実行中はレプリカから読むこと() {
+        ReplicaRouting.preferReplica();
+
+        assertThat(findName()).isEqualTo("レプリカ");
+    }
+
+    @Test
+    void 読み取り専用トランザクションはレプリカへ書き込みのトランザクションはプライマリへ向くこと() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setReadOnly(true);
+        assertThat(transactionTemplate.execute(status -> findName())).isEqualTo("レプリカ");
+
+        transactionTemplate.setReadOnly(false);
+        ReplicaRouting.preferReplica();
+        assertThat(transactionTemplate.execute(status -> findName())).isEqualTo("プライマリ");
+    }
+
+    @Test
+    void 書き込んだばかりのクライアントはReplicaReadでもプライマリから読むこと() {
+        ReplicaRouting.preferReplica();
+        ReplicaRouting.requirePrimary();
+
+        assertThat(findName()).isEqualTo("プライマリ");
+    }
+
+    @Test
+    void レプリカに接続できない時はプライマリから読み回復したらレプリカに戻ること() {
+        ReplicaRouting.preferReplica();
+        replica.down = true;
+
+        assertThat(findName()).isEqualTo("プライマリ");
+        assertThat(routingDataSource.isHealthy(0)).isFalse();
+
+        replica.down = false;
+        assertThat(findName()).isEqualTo("プライマリ");
+        routingDataSource.checkReplicas();
+        assertThat(routingDataSource.isHealthy(0)).isTrue();
+        assertThat(findName()).isEqualTo("レプリカ");
+    }
+
+    private String findName() {
+        return jdbcTemplate.queryForObject("SELECT name FROM anime WHERE id = 1", String.class);
+    }
+
+    private static DataSource database(String name, String animeName) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS anime");
+        jdbcTemplate.execute("CREATE TABLE anime (id INT PRIMARY KEY, name VARCHAR(100) NOT NULL, genre VARCHAR(100) NOT NULL)");
+        jdbcTemplate.update("INSERT INTO anime (id, name, genre) VALUES (1, ?, 'Action')", animeName);
+        return dataSource;
+    }
+
+    private static class SwitchableDataSource extends DelegatingDataSource {
+
+        private volatile boolean down;
+
+        SwitchableDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("replica is down");
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.demo.diagnostics;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class StatementDiagnosticsInterceptorTest {
+
+    private final StatementFindingLog findingLog = new StatementFindingLog(10);
+
+    private final Executor executor = mock(Executor.class);
+
+    @AfterEach
+    void tearDown() {
+        RequestStatementTracker.end();
+    }
+
+    @Test
+    void 同じリクエスト内で同じ引数の文が繰り返されると一度だけ記録されること() throws Throwable {
+        StatementDiagnosticsInterceptor interceptor = interceptor(Duration.ofMinutes(1));
+        MappedStatement findById = findById();
+        doReturn(List.of()).when(executor).query(any(), any(), any(), any());
+
+        RequestStatementTracker.begin("/api/anime/1");
+        query(interceptor, findById, 1);
+        query(interceptor, findById, 2);
+        query(interceptor, findById, 1);
+        query(interceptor, findById, 1);
+
+        assertThat(findingLog.findings())
+                .extracting(StatementFinding::getType, StatementFinding::getStatementId, StatementFinding::getParameters, StatementFinding::getRequestUri)
+                .containsExactly(tuple(StatementFinding.Type.REPEATED, "com.example.demo.mapper.AnimeMapper.findById", List.of(1), "/api/anime/1"));
+    }
+
+    @Test
+    void リクエストの外で実行された文は繰り返しとして記録されないこと() throws Throwable {
+        StatementDiagnosticsInterceptor interceptor = interceptor(Duration.ofMinutes(1));
+        MappedStatement findById = findById();
+        doReturn(List.of()).when(executor).query(any(), any(), any(), any());
+
+        query(interceptor, findById, 1);
+        query(interceptor, findById, 1);
+
+        assertThat(findingLog.findings()).isEmpty();
+    }
+
+    @Test
+    void 閾値を超えた文がSQLと引数と呼び出し元とともに記録されること() throws Throwable {
+        StatementDiagnosticsInterceptor interceptor = interceptor(Duration.ZERO);
+        doReturn(List.of()).when(executor).query(any(), any(), any(), any());
+
+        query(interceptor, findById(), 1);
+
+        assertThat(findingLog.findings()).singleElement().satisfies(finding -> {
+            assertThat(finding.getType()).isEqualTo(StatementFinding.Type.SLOW);
+            assertThat(finding.getSql()).isEqualTo("SELECT * FROM anime WHERE id = ?");
+            assertThat(finding.getParameters()).containsExactly(1);
+            assertThat(finding.getCallPath()).first().asString()
+                    .startsWith("diagnostics.StatementDiagnosticsInterceptorTest.query");
+        });
+    }
+
+    @Test
+    void 引数を残す設定でない場合は引数の値を記録しないこと() throws Throwable {
+        StatementDiagnosticsInterceptor interceptor = new StatementDiagnosticsInterceptor(mock(DataSource.class), findingLog, Duration.ZERO, false, false);
+        doReturn(List.of()).when(executor).query(any(), any(), any(), any());
+
+        query(interceptor, findById(), 1);
+
+        assertThat(findingLog.findings()).singleElement().satisfies(finding -> {
+            assertThat(finding.getSql()).isEqualTo("SELECT * FROM anime WHERE id = ?");
+            assertThat(finding.getParameters()).isNull();
+        });
+    }
+
+    @Test
+    void 記録は新しい順に保持件数までしか残らないこと() {
+        StatementFindingLog log = new StatementFindingLog(2);
+        for (int i = 1; i <= 3; i++) {
+            log.add(new StatementFinding(StatementFinding.Type.SLOW, null, "statement" + i, "SELECT 1", List.of(), i, null, List.of(), null));
+        }
+
+        assertThat(log.findings()).extracting(StatementFinding::getStatementId).containsExactly("statement3", "statement2");
+    }
+
+    private StatementDiagnosticsInterceptor interceptor(Duration threshold) {
+        return new StatementDiagnosticsInterceptor(mock(DataSource.class), findingLog, threshold, false, true);
+    }
+
+    private void query(StatementDiagnosticsInterceptor interceptor, MappedStatement mappedStatement, Integer id) throws Throwable {
+        interceptor.intercept(new Invocation(executor,
+                Executor.class.getMethod("query", MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class),
+                new Object[]{mappedStatement, id, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER}));
+    }
+
+    private static MappedStatement findById() {
+        Configuration configuration = new Configuration();
+        List<ParameterMapping> parameterMappings = List.of(new ParameterMapping.Builder(configuration, "id", Integer.class).build());
+        return new MappedStatement.Builder(configuration, "com.example.demo.mapper.AnimeMapper.findById",
+                parameterObject -> new BoundSql(configuration, "SELECT * FROM anime WHERE id = ?", parameterMappings, parameterObject),
+                SqlCommandType.SELECT).build();
+    }
+}
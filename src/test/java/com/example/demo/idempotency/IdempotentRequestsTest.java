@@ -0,0 +1,123 @@
+package com.example.demo.idempotency;
+
+import com.example.demo.exception.IdempotencyKeyReusedException;
+import com.example.demo.exception.InvalidRequestException;
+import com.example.demo.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotentRequestsTest {
+
+    private final InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(100, Duration.ofMinutes(1));
+
+    private final IdempotentRequests idempotentRequests = new IdempotentRequests(store, Duration.ofSeconds(5));
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void 同時に来た同じキーのリクエストは最初の実行の結果を待って受け取ること() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<ResponseEntity<String>> first = executor.submit(() -> idempotentRequests.execute("key", "fp", () -> {
+            started.countDown();
+            await(release);
+            return created();
+        }));
+        started.await();
+        Future<ResponseEntity<String>> second = executor.submit(() -> idempotentRequests.execute("key", "fp", this::created));
+
+        Thread.sleep(100);
+        assertThat(second.isDone()).isFalse();
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getHeaders().containsKey(IdempotentResponse.REPLAYED_HEADER)).isFalse();
+        ResponseEntity<String> replayed = second.get(5, TimeUnit.SECONDS);
+        assertThat(replayed.getStatusCodeValue()).isEqualTo(201);
+        assertThat(replayed.getBody()).isEqualTo("created 1");
+        assertThat(replayed.getHeaders().getFirst(IdempotentResponse.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void 保存したレスポンスと内容が違うリクエストは実行せず例外になること() {
+        idempotentRequests.execute("key", "fp", this::created);
+
+        assertThatThrownBy(() -> idempotentRequests.execute("key", "other", this::created))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void 長すぎるキーは実行せず例外になること() {
+        assertThatThrownBy(() -> idempotentRequests.execute("k".repeat(IdempotentRequests.MAX_KEY_LENGTH + 1), "fp", this::created))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThat(executions).hasValue(0);
+    }
+
+    @Test
+    void 別のノードで実行中のキーは保存されるまで待って保存されたレスポンスを返すこと() {
+        IdempotencyStore sharedStore = mock(IdempotencyStore.class);
+        when(sharedStore.find("key"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new IdempotentResponse("fp", 201, null, "created on another node")));
+        when(sharedStore.reserve("key", "fp")).thenReturn(false);
+
+        ResponseEntity<String> actual = new IdempotentRequests(sharedStore, Duration.ofSeconds(5)).execute("key", "fp", this::created);
+
+        assertThat(actual.getBody()).isEqualTo("created on another node");
+        assertThat(executions).hasValue(0);
+        verify(sharedStore, never()).save(anyString(), any());
+    }
+
+    @Test
+    void 別のノードの実行が終わらないまま待ち時間を過ぎると503になること() {
+        IdempotencyStore sharedStore = mock(IdempotencyStore.class);
+        when(sharedStore.find("key")).thenReturn(Optional.empty());
+        when(sharedStore.reserve("key", "fp")).thenReturn(false);
+
+        assertThatThrownBy(() -> new IdempotentRequests(sharedStore, Duration.ofMillis(100)).execute("key", "fp", this::created))
+                .isInstanceOf(ServiceOverloadedException.class);
+        assertThat(executions).hasValue(0);
+    }
+
+    private ResponseEntity<String> created() {
+        return ResponseEntity.created(URI.create("http://localhost:8080/api/anime/"))
+                .body("created " + executions.incrementAndGet());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
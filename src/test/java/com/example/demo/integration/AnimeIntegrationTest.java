@@ -1,5 +1,6 @@
 package com.example.demo.integration;
 
+import com.example.demo.cache.AnimeListSnapshot;
 import com.github.database.rider.core.api.dataset.DataSet;
 import com.github.database.rider.core.api.dataset.ExpectedDataSet;
 import com.github.database.rider.spring.api.DBRider;
@@ -33,11 +34,16 @@ public class AnimeIntegrationTest {
     @Autowired
     MockMvc mockMvc;
 
+    @Autowired
+    AnimeListSnapshot animeListSnapshot;
+
     ZonedDateTime zonedDateTime = ZonedDateTime.of(2022, 12, 21, 0, 0, 0, 0, ZoneId.of("Asia/Tokyo"));
 
     @Test
     @DataSet(value = "datasets/anime.yml")
     void アニメを全件取得できること() throws Exception{
+        // DataSetで入れ替えたデータは変更イベントを通らないため、スナップショットを作り直させる
+        animeListSnapshot.refresh();
         String response = mockMvc.perform(MockMvcRequestBuilders.get("/api/anime"))
                 .andExpect(status().isOk())
                 .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
@@ -58,6 +64,40 @@ public class AnimeIntegrationTest {
         JSONAssert.assertEquals(expectedResult, response, JSONCompareMode.STRICT);
     }
 
+    @Test
+    @DataSet(value = "datasets/anime.yml")
+    void カーソルを辿ってアニメをページ単位で取得できること() throws Exception{
+        String firstPage = mockMvc.perform(MockMvcRequestBuilders.get("/api/anime?after=0&limit=1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        JSONAssert.assertEquals("""
+                {
+                    "items": [{
+                        "id": 1,
+                        "name": "Anime1",
+                        "genre": "Action"
+                    }],
+                    "nextCursor": 1
+                }
+                """, firstPage, JSONCompareMode.STRICT);
+
+        String lastPage = mockMvc.perform(MockMvcRequestBuilders.get("/api/anime?after=1&limit=1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        JSONAssert.assertEquals("""
+                {
+                    "items": [{
+                        "id": 2,
+                        "name": "Anime2",
+                        "genre": "Adventure"
+                    }],
+                    "nextCursor": null
+                }
+                """, lastPage, JSONCompareMode.STRICT);
+    }
+
     @Test
     @DataSet(value = "datasets/anime.yml")
     void 特定のアニメを１件取得できること() throws Exception{
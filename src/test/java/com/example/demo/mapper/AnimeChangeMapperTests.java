@@ -0,0 +1,104 @@
+package com.example.demo.mapper;
+
+import com.example.demo.entity.Anime;
+import com.example.demo.entity.AnimeChange;
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DBRider
+@MybatisTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AnimeChangeMapperTests {
+    @Autowired
+    AnimeMapper animeMapper;
+
+    @Autowired
+    AnimeChangeMapper animeChangeMapper;
+
+    @Test
+    @DataSet(value = "anime.yml")
+    void 登録更新削除と同じトランザクションで変更履歴が追記されること() {
+        long since = animeChangeMapper.findLatestSeq();
+
+        Anime anime = new Anime("Anime3", "Action");
+        animeMapper.createAnime(anime);
+        animeMapper.updateAnime(new Anime(2, "Anime4", "Psychological"));
+        animeMapper.deleteAnime(1);
+
+        List<AnimeChange> changes = animeChangeMapper.findChanges(since, 10, 0, false);
+        assertThat(changes)
+                .extracting(AnimeChange::getType, AnimeChange::getId, AnimeChange::getName, AnimeChange::getGenre)
+                .containsExactly(
+                        tuple(AnimeChange.Type.UPSERT, anime.getId(), "Anime3", "Action"),
+                        tuple(AnimeChange.Type.UPSERT, 2, "Anime4", "Psychological"),
+                        tuple(AnimeChange.Type.DELETE, 1, null, null));
+        assertThat(animeChangeMapper.findLatestSeq()).isEqualTo(changes.get(2).getSeq());
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    void 同じアニメの後の変更がある行が圧縮の対象になること() {
+        long since = animeChangeMapper.findLatestSeq();
+        animeMapper.updateAnime(new Anime(2, "Anime3", "Action"));
+        animeMapper.updateAnime(new Anime(2, "Anime4", "Psychological"));
+        List<AnimeChange> changes = animeChangeMapper.findChanges(since, 10, 0, false);
+
+        List<Long> superseding = animeChangeMapper.findSupersedingSeqs(since, 0, 10);
+        List<Long> superseded = animeChangeMapper.findSupersededSeqs(since, superseding.get(superseding.size() - 1));
+
+        assertThat(superseding).containsExactly(changes.get(0).getSeq(), changes.get(1).getSeq());
+        assertThat(superseded).contains(changes.get(0).getSeq()).doesNotContain(changes.get(1).getSeq());
+        animeChangeMapper.deleteChanges(List.of(changes.get(0).getSeq()));
+        assertThat(animeChangeMapper.findChanges(since, 10, 0, false)).extracting(AnimeChange::getName).containsExactly("Anime4");
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    void 開いている書き込みのトランザクションより後に追記された行は落ち着いていないものとすること() {
+        long since = animeChangeMapper.findLatestSeq();
+
+        // このテストのトランザクションはコミットされないまま開いている
+        animeMapper.updateAnime(new Anime(2, "Anime4", "Psychological"));
+
+        assertThat(animeChangeMapper.findChanges(since, 10, 0, false)).extracting(AnimeChange::isSettled).containsExactly(true);
+        assertThat(animeChangeMapper.findChanges(since, 10, 0, true)).extracting(AnimeChange::isSettled).containsExactly(false);
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    void 圧縮までの時間が過ぎていない行より後は調べないこと() {
+        long since = animeChangeMapper.findLatestSeq();
+        animeMapper.updateAnime(new Anime(2, "Anime3", "Action"));
+
+        assertThat(animeChangeMapper.findSupersedingSeqs(since, 60_000_000L, 10)).isEmpty();
+    }
+
+    @Test
+    void 調べ終えた位置は戻らないこと() {
+        long through = animeChangeMapper.findSupersededThrough();
+
+        animeChangeMapper.raiseSupersededThrough(through + 5);
+        animeChangeMapper.raiseSupersededThrough(through + 1);
+
+        assertThat(animeChangeMapper.findSupersededThrough()).isEqualTo(through + 5);
+    }
+
+    @Test
+    void 圧縮の位置は戻らないこと() {
+        long horizon = animeChangeMapper.findCompactionHorizon();
+
+        animeChangeMapper.raiseCompactionHorizon(horizon + 5);
+        animeChangeMapper.raiseCompactionHorizon(horizon + 1);
+
+        assertThat(animeChangeMapper.findCompactionHorizon()).isEqualTo(horizon + 5);
+    }
+}
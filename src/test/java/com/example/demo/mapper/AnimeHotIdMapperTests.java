@@ -0,0 +1,51 @@
+package com.example.demo.mapper;
+
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DBRider
+@MybatisTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AnimeHotIdMapperTests {
+
+    private static final long RETENTION_MICROS = 60_000_000L;
+
+    @Autowired
+    AnimeHotIdMapper animeHotIdMapper;
+
+    @Test
+    @DataSet(value = "anime.yml")
+    void 記録した順に頻度の高いidが返り存在しないアニメのidは返らないこと() {
+        animeHotIdMapper.recordHotIds(List.of(2, 99, 1));
+
+        assertThat(animeHotIdMapper.findHotIds(10, RETENTION_MICROS)).containsExactly(2, 1);
+        assertThat(animeHotIdMapper.findHotIds(1, RETENTION_MICROS)).containsExactly(2);
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    void 記録し直すと順位が更新されること() {
+        animeHotIdMapper.recordHotIds(List.of(2, 1));
+        animeHotIdMapper.recordHotIds(List.of(1, 2));
+
+        assertThat(animeHotIdMapper.findHotIds(10, RETENTION_MICROS)).containsExactly(1, 2);
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    void 保持期間を過ぎた記録は返らず削除できること() throws InterruptedException {
+        animeHotIdMapper.recordHotIds(List.of(1, 2));
+        Thread.sleep(10);
+
+        assertThat(animeHotIdMapper.findHotIds(10, 1)).isEmpty();
+        assertThat(animeHotIdMapper.deleteExpiredHotIds(1)).isEqualTo(2);
+    }
+}
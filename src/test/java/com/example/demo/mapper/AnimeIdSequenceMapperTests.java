@@ -0,0 +1,53 @@
+package com.example.demo.mapper;
+
+import com.example.demo.entity.Anime;
+import com.example.demo.entity.IdBlock;
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DBRider
+@MybatisTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AnimeIdSequenceMapperTests {
+    @Autowired
+    AnimeMapper animeMapper;
+
+    @Autowired
+    AnimeIdSequenceMapper animeIdSequenceMapper;
+
+    @Test
+    @DataSet(value = "anime.yml")
+    void 登録済みのidより後の範囲が重ならずに確保されること() {
+        IdBlock first = new IdBlock(10);
+        IdBlock second = new IdBlock(10);
+
+        assertThat(animeIdSequenceMapper.leaseIdBlock(first)).isEqualTo(1);
+        animeIdSequenceMapper.leaseIdBlock(second);
+
+        assertThat(first.getStart()).isGreaterThan(2);
+        assertThat(first.getEnd() - first.getStart()).isEqualTo(10);
+        assertThat(second.getStart()).isEqualTo(first.getEnd());
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    void 確保した範囲のidを指定して登録できること() {
+        IdBlock block = new IdBlock(2);
+        animeIdSequenceMapper.leaseIdBlock(block);
+        int id = (int) block.getStart();
+
+        animeMapper.createAnimeWithId(new Anime(id, "Anime3", "Power"));
+        animeMapper.createAnimeBatchWithIds(List.of(new Anime(id + 1, "Anime4", "Action")));
+
+        assertThat(animeMapper.findByIds(List.of(id, id + 1)))
+                .containsExactlyInAnyOrder(new Anime(id, "Anime3", "Power"), new Anime(id + 1, "Anime4", "Action"));
+    }
+}
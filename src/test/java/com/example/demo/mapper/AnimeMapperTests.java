@@ -1,14 +1,17 @@
 package com.example.demo.mapper;
 
 import com.example.demo.entity.Anime;
+import com.example.demo.entity.GenreCount;
 import com.github.database.rider.core.api.dataset.DataSet;
 import com.github.database.rider.core.api.dataset.ExpectedDataSet;
 import com.github.database.rider.spring.api.DBRider;
+import org.apache.ibatis.cursor.Cursor;
 import org.junit.jupiter.api.Test;
 import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -40,6 +43,47 @@ class AnimeMapperTests {
         assertThat(animeList).isEmpty();
     }
 
+    @Test
+    @DataSet(value = "anime.yml")
+    void カーソルでアニメを順に読み込めること() throws Exception {
+        List<Anime> animeList = new ArrayList<>();
+        try (Cursor<Anime> cursor = animeMapper.findAllAsCursor()) {
+            cursor.forEach(animeList::add);
+        }
+        assertThat(animeList).containsExactly(
+                new Anime(1, "Anime1", "Action"),
+                new Anime(2, "Anime2", "Adventure")
+        );
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    void 指定したidより後のアニメを件数分取得できること() {
+        assertThat(animeMapper.findPage(0, 1)).containsExactly(new Anime(1, "Anime1", "Action"));
+        assertThat(animeMapper.findPage(1, 10)).containsExactly(new Anime(2, "Anime2", "Adventure"));
+        assertThat(animeMapper.findPage(2, 10)).isEmpty();
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    void 指定したジャンルのアニメをidより後から件数分取得できること() {
+        assertThat(animeMapper.findPageByGenre("Adventure", 0, 10)).containsExactly(new Anime(2, "Anime2", "Adventure"));
+        assertThat(animeMapper.findPageByGenre("Adventure", 2, 10)).isEmpty();
+        assertThat(animeMapper.findPageByGenre("Power", 0, 10)).isEmpty();
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    void ジャンルごとの件数が登録と更新と削除に追従すること() {
+        assertThat(animeMapper.findGenreCounts()).containsExactly(new GenreCount("Action", 1L), new GenreCount("Adventure", 1L));
+
+        animeMapper.createAnime(new Anime("Anime3", "Action"));
+        animeMapper.updateAnime(new Anime(2, "Anime2", "Action"));
+        animeMapper.deleteAnime(1);
+
+        assertThat(animeMapper.findGenreCounts()).containsExactly(new GenreCount("Action", 2L));
+    }
+
     @Test
     @DataSet(value = "anime.yml")
     void 引数のidでアニメを取得できること() {
@@ -67,17 +111,119 @@ class AnimeMapperTests {
         assertThat(anime.getGenre()).isEqualTo("Power");
     }
 
+    @Test
+    @DataSet(value = "anime.yml")
+    @ExpectedDataSet(value = "expectedAfterBatchInsertAnime.yml", ignoreCols = "id")
+    void アニメが一括登録できて登録順にIDが設定されること() {
+        List<Anime> animeList = List.of(new Anime("Anime3", "Power"), new Anime("Anime4", "Psychological"));
+        animeMapper.createAnimeBatch(animeList);
+        assertThat(animeList.get(0).getId()).isGreaterThan(2);
+        assertThat(animeList.get(1).getId()).isEqualTo(animeList.get(0).getId() + 1);
+    }
+
     @Test
     @DataSet(value = "anime.yml")
     @ExpectedDataSet(value = "expectedAfterUpdateAnime.yml")
     void アニメが更新できること() {
+        int count = animeMapper.updateAnime(new Anime(2, "Anime4", "Psychological"));
+        assertThat(count).isEqualTo(1);
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    @ExpectedDataSet(value = "anime.yml")
+    void 更新対象のアニメが存在しない時に更新件数が0であること() {
+        int count = animeMapper.updateAnime(new Anime(3, "Anime4", "Psychological"));
+        assertThat(count).isZero();
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    void 更新するとversionが1つ進み更新日時が記録されること() {
+        Anime before = animeMapper.findById(2).orElseThrow();
         animeMapper.updateAnime(new Anime(2, "Anime4", "Psychological"));
+        Anime after = animeMapper.findById(2).orElseThrow();
+        assertThat(after.getVersion()).isEqualTo(before.getVersion() + 1);
+        assertThat(after.getUpdatedAt()).isNotNull().isAfterOrEqualTo(before.getUpdatedAt());
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    @ExpectedDataSet(value = "expectedAfterConditionalUpdateAnime.yml")
+    void versionが一致する時にアニメが更新できること() {
+        int count = animeMapper.updateAnimeIfVersion(new Anime(2, "Anime4", "Psychological", 0, null));
+        assertThat(count).isEqualTo(1);
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    @ExpectedDataSet(value = "anime.yml")
+    void versionが一致しない時に更新件数が0であること() {
+        int count = animeMapper.updateAnimeIfVersion(new Anime(2, "Anime4", "Psychological", 1, null));
+        assertThat(count).isZero();
     }
 
     @Test
     @DataSet(value = "anime.yml")
     @ExpectedDataSet(value = "expectedAfterDeleteAnime.yml")
     void アニメが削除できること() {
-        animeMapper.deleteAnime(1);
+        int count = animeMapper.deleteAnime(1);
+        assertThat(count).isEqualTo(1);
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    @ExpectedDataSet(value = "anime.yml")
+    void 削除対象のアニメが存在しない時に削除件数が0であること() {
+        int count = animeMapper.deleteAnime(3);
+        assertThat(count).isZero();
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    void 指定した複数のIDのアニメを取得できること() {
+        List<Anime> animeList = animeMapper.findByIds(List.of(2, 3, 1));
+        assertThat(animeList).containsExactlyInAnyOrder(
+                new Anime(1, "Anime1", "Action"),
+                new Anime(2, "Anime2", "Adventure")
+        );
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    void 指定したIDのうち存在するIDのみ取得できること() {
+        List<Integer> ids = animeMapper.findExistingIdsForUpdate(List.of(1, 2, 3));
+        assertThat(ids).containsExactlyInAnyOrder(1, 2);
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    void 指定したジャンルのアニメを件数分取得できること() {
+        List<Anime> animeList = animeMapper.findByGenreForUpdate("Adventure", 10);
+        assertThat(animeList).containsExactly(new Anime(2, "Anime2", "Adventure"));
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    @ExpectedDataSet(value = "expectedAfterBatchUpdateAnime.yml")
+    void 複数のアニメがそれぞれの値で一括更新できること() {
+        int count = animeMapper.updateAnimeBatch(List.of(new Anime(1, "Anime3", "Power"), new Anime(2, "Anime4", "Psychological")));
+        assertThat(count).isEqualTo(2);
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    @ExpectedDataSet(value = "expectedAfterUpdateGenre.yml")
+    void 複数のアニメのジャンルが一括更新できること() {
+        int count = animeMapper.updateGenre(List.of(1, 2), "Power");
+        assertThat(count).isEqualTo(2);
+    }
+
+    @Test
+    @DataSet(value = "anime.yml")
+    @ExpectedDataSet(value = "empty.yml")
+    void 複数のアニメが一括削除できること() {
+        int count = animeMapper.deleteAnimeBatch(List.of(1, 2, 3));
+        assertThat(count).isEqualTo(2);
     }
 }
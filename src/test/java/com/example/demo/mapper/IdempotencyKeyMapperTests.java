@@ -0,0 +1,54 @@
+package com.example.demo.mapper;
+
+import com.example.demo.idempotency.IdempotentResponse;
+import com.github.database.rider.spring.api.DBRider;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DBRider
+@MybatisTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class IdempotencyKeyMapperTests {
+
+    private static final long TTL_MICROS = 60_000_000L;
+
+    @Autowired
+    IdempotencyKeyMapper idempotencyKeyMapper;
+
+    @Test
+    void 同じキーは1度しか確保できず保存するまでレスポンスが見つからないこと() {
+        assertThat(idempotencyKeyMapper.insertKey("key", "fp")).isEqualTo(1);
+        assertThat(idempotencyKeyMapper.insertKey("key", "fp")).isEqualTo(0);
+        assertThat(idempotencyKeyMapper.findResponse("key", TTL_MICROS)).isNull();
+
+        idempotencyKeyMapper.saveResponse("key", new IdempotentResponse("fp", 201, "http://localhost:8080/api/anime/", "anime successfully created"));
+
+        assertThat(idempotencyKeyMapper.findResponse("key", TTL_MICROS))
+                .isEqualTo(new IdempotentResponse("fp", 201, "http://localhost:8080/api/anime/", "anime successfully created"));
+    }
+
+    @Test
+    void 実行中のキーだけを外せること() {
+        idempotencyKeyMapper.insertKey("in-progress", "fp");
+        idempotencyKeyMapper.insertKey("completed", "fp");
+        idempotencyKeyMapper.saveResponse("completed", new IdempotentResponse("fp", 201, null, "anime successfully created"));
+
+        assertThat(idempotencyKeyMapper.deleteInProgressKey("in-progress")).isEqualTo(1);
+        assertThat(idempotencyKeyMapper.deleteInProgressKey("completed")).isEqualTo(0);
+    }
+
+    @Test
+    void 期限を過ぎたキーは見つからず引き継げること() throws InterruptedException {
+        idempotencyKeyMapper.insertKey("key", "fp");
+        idempotencyKeyMapper.saveResponse("key", new IdempotentResponse("fp", 201, null, "anime successfully created"));
+        Thread.sleep(10);
+
+        assertThat(idempotencyKeyMapper.findResponse("key", 1)).isNull();
+        assertThat(idempotencyKeyMapper.deleteStaleKey("key", 1, TTL_MICROS)).isEqualTo(1);
+        assertThat(idempotencyKeyMapper.insertKey("key", "other")).isEqualTo(1);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class StatementMetricsInterceptorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final StatementMetricsInterceptor interceptor = new StatementMetricsInterceptor(meterRegistry);
+
+    private final Executor executor = mock(Executor.class);
+
+    @Test
+    void 検索文の実行時間と取得件数が文ごとに記録されること() throws Throwable {
+        MappedStatement findAll = mappedStatement("com.example.demo.mapper.AnimeMapper.findAll", SqlCommandType.SELECT);
+        doReturn(List.of("a", "b")).when(executor).query(any(), any(), any(), any());
+        Object[] args = {findAll, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER};
+
+        interceptor.intercept(new Invocation(executor, Executor.class.getMethod("query", MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class), args));
+        interceptor.intercept(new Invocation(executor, Executor.class.getMethod("query", MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class), args));
+
+        assertThat(meterRegistry.get("mybatis.statement").tag("statement", "AnimeMapper.findAll").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("mybatis.statement.rows").tag("statement", "AnimeMapper.findAll").tag("type", "returned").summary().totalAmount()).isEqualTo(4);
+    }
+
+    @Test
+    void 更新文の実行時間と更新件数が記録されること() throws Throwable {
+        MappedStatement deleteAnime = mappedStatement("com.example.demo.mapper.AnimeMapper.deleteAnime", SqlCommandType.DELETE);
+        doReturn(1).when(executor).update(any(), any());
+
+        interceptor.intercept(new Invocation(executor, Executor.class.getMethod("update", MappedStatement.class, Object.class), new Object[]{deleteAnime, 1}));
+
+        assertThat(meterRegistry.get("mybatis.statement").tag("statement", "AnimeMapper.deleteAnime").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("mybatis.statement.rows").tag("statement", "AnimeMapper.deleteAnime").tag("type", "affected").summary().totalAmount()).isEqualTo(1);
+    }
+
+    private static MappedStatement mappedStatement(String id, SqlCommandType sqlCommandType) {
+        Configuration configuration = new Configuration();
+        return new MappedStatement.Builder(configuration, id,
+                parameterObject -> new BoundSql(configuration, "SELECT 1", List.of(), parameterObject), sqlCommandType).build();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.demo.reactive;
+
+import com.example.demo.dto.AnimePage;
+import com.example.demo.entity.Anime;
+import com.example.demo.exception.PreconditionFailedException;
+import com.example.demo.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Validation;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ReactiveAnimeHandlerTest {
+
+    private final ReactiveAnimeService animeService = mock(ReactiveAnimeService.class);
+
+    private final WebTestClient webTestClient = WebTestClient.bindToRouterFunction(new ReactiveAnimeRouter().animeRoutes(
+                    new ReactiveAnimeHandler(animeService, Validation.buildDefaultValidatorFactory().getValidator(), 20, 100, 100, 1000)))
+            .build();
+
+    @Test
+    void アニメの一覧が1行1件のNDJSONで流れてくること() {
+        doReturn(Flux.just(new Anime(1, "鬼滅の刃", "ダークファンタジー"), new Anime(2, "SPY×FAMILY", "ホームコメディ")))
+                .when(animeService).getAllAnime();
+
+        webTestClient.get().uri("/api/anime").accept(MediaType.parseMediaType("application/x-ndjson"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Anime.class)
+                .containsExactly(new Anime(1, "鬼滅の刃", "ダークファンタジー"), new Anime(2, "SPY×FAMILY", "ホームコメディ"));
+    }
+
+    @Test
+    void カーソルを指定した場合にアニメが1ページ分取得できること() {
+        doReturn(Mono.just(new AnimePage(List.of(new Anime(3, "Dr.STONE", "survival")), 3)))
+                .when(animeService).getAnimePage(2, 1);
+
+        webTestClient.get().uri("/api/anime?after=2&limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].name").isEqualTo("Dr.STONE")
+                .jsonPath("$.nextCursor").isEqualTo(3);
+    }
+
+    @Test
+    void 存在しないアニメを取得した時にサーブレット版と同じ形の404が返ること() {
+        doReturn(Mono.error(new ResourceNotFoundException("resource not found"))).when(animeService).getAnime(99);
+
+        webTestClient.get().uri("/api/anime/99")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("404")
+                .jsonPath("$.error").isEqualTo("Not Found")
+                .jsonPath("$.message").isEqualTo("resource not found")
+                .jsonPath("$.path").isEqualTo("/api/anime/99");
+    }
+
+    @Test
+    void 入力が不正な登録は400になりサービスを呼ばないこと() {
+        webTestClient.post().uri("/api/anime").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("name", "", "genre", "ホームコメディ"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("400")
+                .jsonPath("$.name").exists();
+
+        verify(animeService, never()).registerAnime(any(), any());
+    }
+
+    @Test
+    void アニメが登録できること() {
+        doReturn(Mono.just(4)).when(animeService).registerAnime("呪術廻戦", "ダークファンタジー");
+
+        webTestClient.post().uri("/api/anime").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("name", "呪術廻戦", "genre", "ダークファンタジー"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(String.class).isEqualTo("anime successfully created");
+    }
+
+    @Test
+    void idsが数値でない時は400になること() {
+        webTestClient.get().uri("/api/anime?ids=1,a")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("ids must be an integer");
+    }
+
+    @Test
+    void アニメを取得した時にversionがETagとして返ること() {
+        doReturn(Mono.just(new Anime(1, "鬼滅の刃", "ダークファンタジー", 3, null))).when(animeService).getAnime(1);
+
+        webTestClient.get().uri("/api/anime/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"3\"")
+                .expectBody()
+                .jsonPath("$.version").doesNotExist();
+    }
+
+    @Test
+    void If_Matchが一致しない更新は412になること() {
+        doReturn(Mono.error(new PreconditionFailedException("resource has been modified")))
+                .when(animeService).updateAnimeIfMatch(1, "鬼滅の刃", "ダークファンタジー", 3);
+
+        webTestClient.patch().uri("/api/anime/1").contentType(MediaType.APPLICATION_JSON)
+                .header("If-Match", "\"3\"")
+                .bodyValue(Map.of("name", "鬼滅の刃", "genre", "ダークファンタジー"))
+                .exchange()
+                .expectStatus().isEqualTo(412)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("resource has been modified");
+
+        verify(animeService, never()).updateAnime(any(), any(), any());
+    }
+
+    @Test
+    void 登録に失敗したチャンクの要素は失敗として返ること() {
+        doReturn(Mono.just(Arrays.asList(4, null))).when(animeService).registerAnimeBatch(anyList());
+
+        webTestClient.post().uri("/api/anime/batch").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(Map.of("name", "呪術廻戦", "genre", "ダークファンタジー"),
+                        Map.of("name", "ワンピース", "genre", "アクション")))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo(4)
+                .jsonPath("$[1].id").doesNotExist()
+                .jsonPath("$[1].errors.anime").isEqualTo("registration failed");
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.search;
+
+import com.example.demo.cache.InProcessAnimeCacheInvalidationChannel;
+import com.example.demo.entity.Anime;
+import com.example.demo.mapper.AnimeMapper;
+import com.example.demo.service.AnimeService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AnimeSearchIndexLoaderTest {
+
+    private final AnimeMapper animeMapper = mock(AnimeMapper.class);
+
+    private final InProcessAnimeCacheInvalidationChannel invalidationChannel = new InProcessAnimeCacheInvalidationChannel();
+
+    private final AnimeSearchIndex animeSearchIndex = new AnimeSearchIndex();
+
+    @Test
+    void 無効化の通知を受けたidをDBから読み直すこと() {
+        new AnimeSearchIndexLoader(mock(AnimeService.class), animeSearchIndex, animeMapper, invalidationChannel);
+        animeSearchIndex.put(new Anime(1, "鬼滅の刃", "ダークファンタジー"));
+        animeSearchIndex.put(new Anime(2, "SPY×FAMILY", "ホームコメディ"));
+        when(animeMapper.findByIds(List.of(1, 2, 3))).thenReturn(List.of(
+                new Anime(1, "ワンピース", "アクション"),
+                new Anime(3, "呪術廻戦", "ダークファンタジー")));
+
+        invalidationChannel.publish(List.of(1, 2, 3));
+
+        assertThat(animeSearchIndex.search("鬼滅", 10)).isEmpty();
+        assertThat(animeSearchIndex.search("ワンピ", 10)).containsExactly(1);
+        assertThat(animeSearchIndex.search("spy", 10)).isEmpty();
+        assertThat(animeSearchIndex.search("呪術", 10)).containsExactly(3);
+    }
+}
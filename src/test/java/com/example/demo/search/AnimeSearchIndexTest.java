@@ -0,0 +1,96 @@
+package com.example.demo.search;
+
+import com.example.demo.entity.Anime;
+import com.example.demo.event.AnimeChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnimeSearchIndexTest {
+
+    private AnimeSearchIndex animeSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        animeSearchIndex = new AnimeSearchIndex();
+        animeSearchIndex.put(new Anime(1, "鬼滅の刃", "ダークファンタジー"));
+        animeSearchIndex.put(new Anime(2, "SPY×FAMILY", "ホームコメディ"));
+        animeSearchIndex.put(new Anime(3, "鬼滅の刃 無限列車編", "ダークファンタジー"));
+        animeSearchIndex.put(new Anime(4, "ドラゴンボール", "アクション"));
+    }
+
+    @Test
+    void 名前の一部で検索でき完全一致が先頭になること() {
+        assertThat(animeSearchIndex.search("鬼滅の刃", 10)).containsExactly(1, 3);
+        assertThat(animeSearchIndex.search("無限列車", 10)).containsExactly(3);
+    }
+
+    @Test
+    void 全角半角と大文字小文字を区別せずに検索できること() {
+        assertThat(animeSearchIndex.search("ｓｐｙ", 10)).containsExactly(2);
+        assertThat(animeSearchIndex.search("family", 10)).containsExactly(2);
+        assertThat(animeSearchIndex.search("ﾄﾞﾗｺﾞﾝ", 10)).containsExactly(4);
+    }
+
+    @Test
+    void カタカナとひらがなを区別せずに検索できること() {
+        assertThat(animeSearchIndex.search("どらごん", 10)).containsExactly(4);
+    }
+
+    @Test
+    void 連続していない文字列には一致しないこと() {
+        assertThat(animeSearchIndex.search("鬼滅刃", 10)).isEmpty();
+    }
+
+    @Test
+    void 件数の上限まで順位の高い順に返すこと() {
+        assertThat(animeSearchIndex.search("鬼滅", 1)).containsExactly(1);
+    }
+
+    @Test
+    void 更新と削除がインデックスに反映されること() {
+        animeSearchIndex.onAnimeChanged(new AnimeChangedEvent(AnimeChangedEvent.Type.UPDATED, List.of(new Anime(4, "ワンピース", "アクション"))));
+        animeSearchIndex.onAnimeChanged(new AnimeChangedEvent(AnimeChangedEvent.Type.DELETED, List.of(new Anime(2, null, null))));
+
+        assertThat(animeSearchIndex.search("ドラゴン", 10)).isEmpty();
+        assertThat(animeSearchIndex.search("ワンピ", 10)).containsExactly(4);
+        assertThat(animeSearchIndex.search("spy", 10)).isEmpty();
+        assertThat(animeSearchIndex.size()).isEqualTo(3);
+    }
+
+    @Test
+    void 読み込み中に反映された変更を読み込んだ古い行で上書きしないこと() {
+        animeSearchIndex.load(consumer -> {
+            animeSearchIndex.remove(2);
+            animeSearchIndex.put(new Anime(4, "ワンピース", "アクション"));
+            consumer.accept(new Anime(2, "SPY×FAMILY", "ホームコメディ"));
+            consumer.accept(new Anime(4, "ドラゴンボール", "アクション"));
+            consumer.accept(new Anime(5, "呪術廻戦", "ダークファンタジー"));
+        });
+
+        assertThat(animeSearchIndex.search("spy", 10)).isEmpty();
+        assertThat(animeSearchIndex.search("ワンピ", 10)).containsExactly(4);
+        assertThat(animeSearchIndex.search("ドラゴン", 10)).isEmpty();
+        assertThat(animeSearchIndex.search("呪術", 10)).containsExactly(5);
+
+        animeSearchIndex.load(consumer -> consumer.accept(new Anime(2, "SPY×FAMILY", "ホームコメディ")));
+
+        assertThat(animeSearchIndex.search("spy", 10)).containsExactly(2);
+    }
+
+    @Test
+    void 読み直しで見つからなかったidを削除すること() {
+        animeSearchIndex.reload(List.of(2, 4), List.of(new Anime(4, "ワンピース", "アクション")));
+
+        assertThat(animeSearchIndex.search("spy", 10)).isEmpty();
+        assertThat(animeSearchIndex.search("ワンピ", 10)).containsExactly(4);
+    }
+
+    @Test
+    void 一文字のクエリでは検索しないこと() {
+        assertThat(animeSearchIndex.search("刃", 10)).isEmpty();
+    }
+}
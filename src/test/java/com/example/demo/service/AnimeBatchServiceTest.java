@@ -0,0 +1,155 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.AnimeBulkResult;
+import com.example.demo.entity.Anime;
+import com.example.demo.event.AnimeChangedEvent;
+import com.example.demo.mapper.AnimeMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AnimeBatchServiceTest {
+
+    AnimeBatchService animeBatchService;
+
+    @Mock
+    AnimeMapper animeMapper;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Mock
+    AnimeIdAllocator idAllocator;
+
+    @BeforeEach
+    void setUp() {
+        animeBatchService = new AnimeBatchService(animeMapper, eventPublisher, new TransactionTemplate(transactionManager), idAllocator, 2);
+    }
+
+    @Test
+    public void チャンクごとに一括登録され登録順のIDが返されること() {
+        AtomicInteger sequence = new AtomicInteger(10);
+        doAnswer(invocation -> {
+            List<Anime> chunk = invocation.getArgument(0);
+            chunk.forEach(anime -> ReflectionTestUtils.setField(anime, "id", sequence.getAndIncrement()));
+            return null;
+        }).when(animeMapper).createAnimeBatch(anyList());
+        List<Anime> animeList = List.of(new Anime("Anime1", "Action"), new Anime("Anime2", "Power"), new Anime("Anime3", "Romance"));
+
+        List<Integer> actual = animeBatchService.registerAnimeBatch(animeList);
+
+        assertThat(actual).containsExactly(10, 11, 12);
+        verify(animeMapper, times(2)).createAnimeBatch(anyList());
+        verify(eventPublisher).publishEvent(new AnimeChangedEvent(AnimeChangedEvent.Type.CREATED, animeList));
+    }
+
+    @Test
+    public void idをアプリで採番する時に採番したidを指定してチャンクごとに登録されること() {
+        List<Anime> animeList = List.of(new Anime("Anime1", "Action"), new Anime("Anime2", "Power"), new Anime("Anime3", "Romance"));
+        List<Anime> assigned = List.of(new Anime(101, "Anime1", "Action"), new Anime(102, "Anime2", "Power"), new Anime(103, "Anime3", "Romance"));
+        doReturn(true).when(idAllocator).isEnabled();
+        doReturn(assigned).when(idAllocator).assignIds(animeList);
+
+        List<Integer> actual = animeBatchService.registerAnimeBatch(animeList);
+
+        assertThat(actual).containsExactly(101, 102, 103);
+        verify(animeMapper).createAnimeBatchWithIds(List.of(new Anime(101, "Anime1", "Action"), new Anime(102, "Anime2", "Power")));
+        verify(animeMapper).createAnimeBatchWithIds(List.of(new Anime(103, "Anime3", "Romance")));
+        verify(animeMapper, never()).createAnimeBatch(anyList());
+        verify(eventPublisher).publishEvent(new AnimeChangedEvent(AnimeChangedEvent.Type.CREATED, assigned));
+    }
+
+    @Test
+    public void 登録に失敗したチャンクの要素はnullになり他のチャンクは登録されること() {
+        AtomicInteger sequence = new AtomicInteger(10);
+        doAnswer(invocation -> {
+            List<Anime> chunk = invocation.getArgument(0);
+            chunk.forEach(anime -> ReflectionTestUtils.setField(anime, "id", sequence.getAndIncrement()));
+            return null;
+        }).doThrow(new IllegalStateException("deadlock")).when(animeMapper).createAnimeBatch(anyList());
+        List<Anime> animeList = List.of(new Anime("Anime1", "Action"), new Anime("Anime2", "Power"), new Anime("Anime3", "Romance"));
+
+        List<Integer> actual = animeBatchService.registerAnimeBatch(animeList);
+
+        assertThat(actual).containsExactly(10, 11, null);
+        verify(transactionManager).commit(any());
+        verify(transactionManager).rollback(any());
+        verify(eventPublisher).publishEvent(new AnimeChangedEvent(AnimeChangedEvent.Type.CREATED, animeList.subList(0, 2)));
+    }
+
+    @Test
+    public void 登録対象が空の時にSQLを実行しないこと() {
+        List<Integer> actual = animeBatchService.registerAnimeBatch(List.of());
+
+        assertThat(actual).isEmpty();
+        verify(animeMapper, never()).createAnimeBatch(anyList());
+    }
+
+    @Test
+    public void 存在するアニメだけが一括更新され存在しないIDが返されること() {
+        doReturn(List.of(1)).when(animeMapper).findExistingIdsForUpdate(List.of(1, 3));
+        doReturn(List.of(2)).when(animeMapper).findExistingIdsForUpdate(List.of(2));
+
+        AnimeBulkResult actual = animeBatchService.updateAnimeBatch(List.of(new Anime(1, "Anime1", "Power"), new Anime(3, "Anime3", "Power"), new Anime(2, "Anime2", "Power")));
+
+        assertThat(actual).isEqualTo(new AnimeBulkResult(2, List.of(3)));
+        verify(animeMapper).updateAnimeBatch(List.of(new Anime(1, "Anime1", "Power")));
+        verify(animeMapper).updateAnimeBatch(List.of(new Anime(2, "Anime2", "Power")));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    public void 存在するアニメだけが一括削除され存在しないIDが返されること() {
+        doReturn(List.of(1)).when(animeMapper).findExistingIdsForUpdate(List.of(1, 3));
+
+        AnimeBulkResult actual = animeBatchService.deleteAnimeBatch(List.of(1, 3, 1));
+
+        assertThat(actual).isEqualTo(new AnimeBulkResult(1, List.of(3)));
+        verify(animeMapper).deleteAnimeBatch(List.of(1));
+        verify(eventPublisher).publishEvent(new AnimeChangedEvent(AnimeChangedEvent.Type.DELETED, List.of(new Anime(1, null, null))));
+    }
+
+    @Test
+    public void 指定したジャンルのアニメがチャンクごとに別のジャンルへ変更されること() {
+        doReturn(List.of(new Anime(1, "Anime1", "Action"), new Anime(2, "Anime2", "Action")))
+                .doReturn(List.of(new Anime(5, "Anime5", "Action")))
+                .doReturn(List.of())
+                .when(animeMapper).findByGenreForUpdate("Action", 2);
+
+        int actual = animeBatchService.changeGenre("Action", "Power");
+
+        assertThat(actual).isEqualTo(3);
+        verify(animeMapper).updateGenre(List.of(1, 2), "Power");
+        verify(animeMapper).updateGenre(List.of(5), "Power");
+    }
+
+    @Test
+    public void 変更前後のジャンルが同じ時にSQLを実行しないこと() {
+        int actual = animeBatchService.changeGenre("Action", "Action");
+
+        assertThat(actual).isZero();
+        verify(animeMapper, never()).findByGenreForUpdate("Action", 2);
+    }
+}
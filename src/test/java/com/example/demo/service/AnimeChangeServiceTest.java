@@ -0,0 +1,102 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.AnimeChangePage;
+import com.example.demo.entity.AnimeChange;
+import com.example.demo.exception.ChangesExpiredException;
+import com.example.demo.mapper.AnimeChangeMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnimeChangeServiceTest {
+
+    private final AnimeChangeMapper animeChangeMapper = mock(AnimeChangeMapper.class);
+
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    private final AnimeChangeService animeChangeService = new AnimeChangeService(animeChangeMapper, transactionTemplate,
+            Duration.ofSeconds(5), true, Duration.ofMinutes(10), Duration.ofDays(7), 2);
+
+    @Test
+    void sinceを省略した場合は変更を返さず現在の位置を返すこと() {
+        when(animeChangeMapper.findLatestSeq()).thenReturn(42L);
+
+        AnimeChangePage actual = animeChangeService.getChanges(null, 20);
+
+        assertThat(actual).isEqualTo(new AnimeChangePage(List.of(), 42L, false));
+        verify(animeChangeMapper, never()).findChanges(anyLong(), anyInt(), anyLong(), anyBoolean());
+    }
+
+    @Test
+    void 落ち着いていない変更も返すが次のトークンはその手前までしか進めないこと() {
+        List<AnimeChange> changes = List.of(
+                new AnimeChange(11L, AnimeChange.Type.UPSERT, 1, "Anime1", "Action", true),
+                new AnimeChange(13L, AnimeChange.Type.DELETE, 2, null, null, true),
+                new AnimeChange(14L, AnimeChange.Type.UPSERT, 3, "Anime3", "Action", false),
+                new AnimeChange(15L, AnimeChange.Type.UPSERT, 4, "Anime4", "Action", true));
+        when(animeChangeMapper.findChanges(10L, 20, 5_000_000L, true)).thenReturn(changes);
+
+        AnimeChangePage actual = animeChangeService.getChanges(10L, 20);
+
+        assertThat(actual).isEqualTo(new AnimeChangePage(changes, 13L, false));
+    }
+
+    @Test
+    void 件数が上限に達した場合は続きがあることを返すこと() {
+        List<AnimeChange> changes = List.of(
+                new AnimeChange(11L, AnimeChange.Type.UPSERT, 1, "Anime1", "Action", true),
+                new AnimeChange(12L, AnimeChange.Type.UPSERT, 2, "Anime2", "Action", true));
+        when(animeChangeMapper.findChanges(10L, 2, 5_000_000L, true)).thenReturn(changes);
+
+        assertThat(animeChangeService.getChanges(10L, 2)).isEqualTo(new AnimeChangePage(changes, 12L, true));
+    }
+
+    @Test
+    void 圧縮で消えたトゥームストーンより前のトークンの場合に例外をthrowすること() {
+        when(animeChangeMapper.findCompactionHorizon()).thenReturn(100L);
+
+        assertThatThrownBy(() -> animeChangeService.getChanges(50L, 20))
+                .isInstanceOf(ChangesExpiredException.class)
+                .hasMessage("since is older than the retained change log");
+        assertThat(animeChangeService.getChanges(0L, 20).getChanges()).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void 圧縮で後の変更がある行と期限切れのトゥームストーンを消し圧縮の位置を進めること() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> ((TransactionCallback<Integer>) invocation.getArgument(0)).doInTransaction(null));
+        when(animeChangeMapper.findSupersededThrough()).thenReturn(10L);
+        when(animeChangeMapper.findSupersedingSeqs(10L, 600_000_000L, 2)).thenReturn(List.of(11L, 12L));
+        when(animeChangeMapper.findSupersedingSeqs(12L, 600_000_000L, 2)).thenReturn(List.of(14L));
+        when(animeChangeMapper.findSupersededSeqs(10L, 12L)).thenReturn(List.of(1L, 2L));
+        when(animeChangeMapper.findSupersededSeqs(12L, 14L)).thenReturn(List.of(5L));
+        when(animeChangeMapper.findExpiredTombstoneSeqs(604_800_000_000L, 2)).thenReturn(List.of(3L));
+        when(animeChangeMapper.deleteChanges(List.of(1L, 2L))).thenReturn(2);
+        when(animeChangeMapper.deleteChanges(List.of(5L))).thenReturn(1);
+        when(animeChangeMapper.deleteChanges(List.of(3L))).thenReturn(1);
+
+        int actual = animeChangeService.compact();
+
+        assertThat(actual).isEqualTo(4);
+        verify(animeChangeMapper).raiseSupersededThrough(12L);
+        verify(animeChangeMapper).raiseSupersededThrough(14L);
+        var order = inOrder(animeChangeMapper);
+        order.verify(animeChangeMapper).raiseCompactionHorizon(3L);
+        order.verify(animeChangeMapper).deleteChanges(List.of(3L));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Anime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AnimeIdAllocatorTest {
+
+    private final AtomicLong sequence = new AtomicLong(1);
+
+    private final AtomicInteger leases = new AtomicInteger();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private long lease(int size) {
+        leases.incrementAndGet();
+        return sequence.addAndGet(size);
+    }
+
+    @Test
+    void 範囲を使い切るまでは採番表に問い合わせず連続したidを返すこと() {
+        AnimeIdAllocator allocator = new AnimeIdAllocator(true, 3, this::lease);
+
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(allocator.nextId());
+        }
+
+        assertThat(ids).containsExactly(1, 2, 3, 4);
+        assertThat(leases).hasValue(2);
+    }
+
+    @Test
+    void 複数のスレッドから同時に採番しても重複せず範囲ごとに1度だけ確保すること() throws Exception {
+        AnimeIdAllocator allocator = new AnimeIdAllocator(true, 100, this::lease);
+
+        List<Future<List<Integer>>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                List<Integer> ids = new ArrayList<>();
+                for (int i = 0; i < 1000; i++) {
+                    ids.add(allocator.nextId());
+                }
+                return ids;
+            }));
+        }
+        Set<Integer> ids = new HashSet<>();
+        for (Future<List<Integer>> future : futures) {
+            ids.addAll(future.get());
+        }
+
+        assertThat(ids).hasSize(8000);
+        assertThat(leases).hasValue(80);
+    }
+
+    @Test
+    void 範囲の確保に失敗しても次の呼び出しで確保し直すこと() {
+        AtomicInteger calls = new AtomicInteger();
+        AnimeIdAllocator allocator = new AnimeIdAllocator(true, 10, size -> {
+            if (calls.getAndIncrement() == 0) {
+                throw new IllegalStateException("connection refused");
+            }
+            return lease(size);
+        });
+
+        assertThatThrownBy(allocator::nextId).isInstanceOf(IllegalStateException.class);
+        assertThat(allocator.nextId()).isEqualTo(1);
+    }
+
+    @Test
+    void 渡したアニメと同じ順にidを振ったアニメを返すこと() {
+        AnimeIdAllocator allocator = new AnimeIdAllocator(true, 10, this::lease);
+
+        List<Anime> actual = allocator.assignIds(List.of(new Anime("Anime1", "Action"), new Anime("Anime2", "Power")));
+
+        assertThat(actual).containsExactly(new Anime(1, "Anime1", "Action"), new Anime(2, "Anime2", "Power"));
+    }
+}
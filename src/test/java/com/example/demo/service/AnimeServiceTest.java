@@ -1,21 +1,42 @@
 package com.example.demo.service;
 
+import com.example.demo.cache.AnimeCache;
+import com.example.demo.cache.InProcessAnimeCacheInvalidationChannel;
+import com.example.demo.dto.AnimeMultiGetResult;
+import com.example.demo.dto.AnimePage;
 import com.example.demo.entity.Anime;
+import com.example.demo.event.AnimeChangedEvent;
+import com.example.demo.exception.PreconditionFailedException;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.mapper.AnimeMapper;
+import com.example.demo.search.AnimeSearchIndex;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +48,21 @@ class AnimeServiceTest {
     @Mock
     AnimeMapper animeMapper;
 
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    AnimeWriteBatcher writeBatcher;
+
+    @Mock
+    AnimeIdAllocator idAllocator;
+
+    @Spy
+    AnimeSearchIndex animeSearchIndex = new AnimeSearchIndex();
+
+    @Spy
+    AnimeCache animeCache = new AnimeCache(new InProcessAnimeCacheInvalidationChannel(), 100, Duration.ofMinutes(1), Duration.ofSeconds(1));
+
     @Test
     public void アニメが空で取得できないときに例外をthrowすること() {
         doReturn(Optional.empty()).when(animeMapper).findById(1);
@@ -42,6 +78,18 @@ class AnimeServiceTest {
         verify(animeMapper).createAnime(new Anime("name", "genre"));
     }
 
+    @Test
+    public void idをアプリで採番する時に採番したidで登録されること() {
+        doReturn(true).when(idAllocator).isEnabled();
+        doReturn(42).when(idAllocator).nextId();
+
+        animeService.registerAnime("name", "genre");
+
+        verify(animeMapper).createAnimeWithId(new Anime(42, "name", "genre"));
+        verify(animeMapper, never()).createAnime(any());
+        verify(eventPublisher).publishEvent(new AnimeChangedEvent(AnimeChangedEvent.Type.CREATED, List.of(new Anime(42, "name", "genre"))));
+    }
+
     @Test
     public void アニメが全件取得できること() {
         doReturn(List.of(new Anime(1, "Anime1", "Action"), new Anime(2, "Anime2", "Psychological"))).when(animeMapper).findAll();
@@ -49,6 +97,27 @@ class AnimeServiceTest {
         assertThat(actual).isEqualTo(List.of(new Anime(1, "Anime1", "Action"), new Anime(2, "Anime2", "Psychological")));
     }
 
+    @Test
+    public void 次のページが存在する場合に次のカーソルを返すこと() {
+        doReturn(List.of(new Anime(1, "Anime1", "Action"), new Anime(2, "Anime2", "Psychological"), new Anime(3, "Anime3", "Power"))).when(animeMapper).findPage(0, 3);
+        AnimePage actual = animeService.getAnimePage(0, 2);
+        assertThat(actual).isEqualTo(new AnimePage(List.of(new Anime(1, "Anime1", "Action"), new Anime(2, "Anime2", "Psychological")), 2));
+    }
+
+    @Test
+    public void 最後のページの場合に次のカーソルがnullであること() {
+        doReturn(List.of(new Anime(3, "Anime3", "Power"))).when(animeMapper).findPage(2, 3);
+        AnimePage actual = animeService.getAnimePage(2, 2);
+        assertThat(actual).isEqualTo(new AnimePage(List.of(new Anime(3, "Anime3", "Power")), null));
+    }
+
+    @Test
+    public void ジャンルを指定した場合にそのジャンルのアニメを1ページ分返すこと() {
+        doReturn(List.of(new Anime(1, "Anime1", "Action"), new Anime(4, "Anime4", "Action"))).when(animeMapper).findPageByGenre("Action", 0, 2);
+        AnimePage actual = animeService.getAnimePageByGenre("Action", 0, 1);
+        assertThat(actual).isEqualTo(new AnimePage(List.of(new Anime(1, "Anime1", "Action")), 1));
+    }
+
     @Test
     public void アニメが取得できるときに1件アニメを返すこと() {
         doReturn(Optional.of(new Anime(1, "Anime1", "Action"))).when(animeMapper).findById(1);
@@ -56,34 +125,167 @@ class AnimeServiceTest {
         assertThat(actual).isEqualTo(new Anime(1, "Anime1", "Action"));
     }
 
+    @Test
+    public void 同じアニメを続けて取得した時に2回目はキャッシュから返すこと() {
+        doReturn(Optional.of(new Anime(1, "Anime1", "Action"))).when(animeMapper).findById(1);
+        animeService.getAnime(1);
+        Anime actual = animeService.getAnime(1);
+        assertThat(actual).isEqualTo(new Anime(1, "Anime1", "Action"));
+        verify(animeMapper, times(1)).findById(1);
+    }
+
+    @Test
+    public void 存在しないアニメの取得結果もキャッシュされること() {
+        doReturn(Optional.empty()).when(animeMapper).findById(1);
+        assertThatThrownBy(() -> animeService.getAnime(1)).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> animeService.getAnime(1)).isInstanceOf(ResourceNotFoundException.class);
+        verify(animeMapper, times(1)).findById(1);
+    }
+
+    @Test
+    public void 複数のIDを指定した時に重複を除いて指定順にアニメと存在しないIDを返すこと() {
+        doReturn(List.of(new Anime(1, "Anime1", "Action"), new Anime(2, "Anime2", "Psychological"))).when(animeMapper).findByIds(List.of(2, 3, 1));
+        AnimeMultiGetResult actual = animeService.getAnimeList(List.of(2, 3, 2, 1));
+        assertThat(actual).isEqualTo(new AnimeMultiGetResult(List.of(new Anime(2, "Anime2", "Psychological"), new Anime(1, "Anime1", "Action")), List.of(3)));
+    }
+
+    @Test
+    public void 複数のIDを指定した時にキャッシュ済みのアニメはSQLの対象外となること() {
+        doReturn(Optional.of(new Anime(1, "Anime1", "Action"))).when(animeMapper).findById(1);
+        doReturn(List.of(new Anime(2, "Anime2", "Psychological"))).when(animeMapper).findByIds(List.of(2));
+        animeService.getAnime(1);
+        AnimeMultiGetResult actual = animeService.getAnimeList(List.of(1, 2));
+        assertThat(actual).isEqualTo(new AnimeMultiGetResult(List.of(new Anime(1, "Anime1", "Action"), new Anime(2, "Anime2", "Psychological")), List.of()));
+    }
+
+    @Test
+    public void 名前で検索した時に順位の高い順にアニメを返すこと() {
+        animeSearchIndex.put(new Anime(1, "Anime1 Special", "Action"));
+        animeSearchIndex.put(new Anime(2, "Anime1", "Psychological"));
+        doReturn(List.of(new Anime(1, "Anime1 Special", "Action"), new Anime(2, "Anime1", "Psychological"))).when(animeMapper).findByIds(List.of(2, 1));
+        List<Anime> actual = animeService.searchAnime("anime1", 10);
+        assertThat(actual).containsExactly(new Anime(2, "Anime1", "Psychological"), new Anime(1, "Anime1 Special", "Action"));
+    }
+
     @Test
     public void アニメが更新できること() {
-        doReturn(Optional.of(new Anime(1, "Anime1", "Power"))).when(animeMapper).findById(1);
+        doReturn(1).when(animeMapper).updateAnime(new Anime(1, "Anime3", "Action"));
         animeService.updateAnime(1, "Anime3", "Action");
-        verify(animeMapper).updateAnime(new Anime(1, "Anime3", "Action"));
+        verify(animeMapper, never()).findById(1);
+        verify(eventPublisher).publishEvent(new AnimeChangedEvent(AnimeChangedEvent.Type.UPDATED, List.of(new Anime(1, "Anime3", "Action"))));
+    }
+
+    @Test
+    public void グループコミットが有効な時に登録と更新がまとめて書き込まれること() {
+        doReturn(true).when(writeBatcher).isEnabled();
+        doReturn(true).when(writeBatcher).update(new Anime(1, "Anime3", "Action"));
+        doReturn(false).when(writeBatcher).update(new Anime(2, "Anime4", "Action"));
+
+        animeService.registerAnime("Anime5", "Action");
+        animeService.updateAnime(1, "Anime3", "Action");
+        assertThatThrownBy(() -> animeService.updateAnime(2, "Anime4", "Action"))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        verify(writeBatcher).create(new Anime("Anime5", "Action"));
+        verify(animeMapper, never()).createAnime(any());
+        verify(animeMapper, never()).updateAnime(any());
     }
 
     @Test
     public void 更新対象のアニメが存在しないときに例外をthrowすること() {
-        doReturn(Optional.empty()).when(animeMapper).findById(1);
+        doReturn(0).when(animeMapper).updateAnime(new Anime(1, "Anime4", "Romance"));
         assertThatThrownBy(() -> animeService.updateAnime(1, "Anime4", "Romance"))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessage("resource not found");
     }
 
+    @Test
+    public void versionが一致する時にアニメが更新され次のversionが返ること() {
+        doReturn(1).when(animeMapper).updateAnimeIfVersion(argThat(anime -> Integer.valueOf(3).equals(anime.getVersion())));
+        int actual = animeService.updateAnimeIfMatch(1, "Anime3", "Action", 3);
+        assertThat(actual).isEqualTo(4);
+        verify(animeMapper, never()).findById(1);
+        verify(eventPublisher).publishEvent(new AnimeChangedEvent(AnimeChangedEvent.Type.UPDATED, List.of(new Anime(1, "Anime3", "Action"))));
+    }
+
+    @Test
+    public void versionが一致しないときにPreconditionFailedExceptionをthrowすること() {
+        doReturn(0).when(animeMapper).updateAnimeIfVersion(new Anime(1, "Anime3", "Action"));
+        assertThatThrownBy(() -> animeService.updateAnimeIfMatch(1, "Anime3", "Action", 3))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("resource has been modified");
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
     @Test
     public void アニメが削除できること() {
-        doReturn(Optional.of(new Anime(1, "Anime1", "Action"))).when(animeMapper).findById(1);
+        doReturn(1).when(animeMapper).deleteAnime(1);
         animeService.deleteAnime(1);
-        verify(animeMapper).deleteAnime(1);
+        verify(animeMapper, never()).findById(1);
+        verify(eventPublisher).publishEvent(new AnimeChangedEvent(AnimeChangedEvent.Type.DELETED, List.of(new Anime(1, null, null))));
     }
 
     @Test
     public void 削除対象のアニメが存在しないときに例外をthrowすること() {
-        doReturn(Optional.empty()).when(animeMapper).findById(1);
+        doReturn(0).when(animeMapper).deleteAnime(1);
         assertThatThrownBy(() -> animeService.deleteAnime(1))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessage("resource not found");
     }
 
+    @Test
+    public void 同時に来た全件取得はDBへの問い合わせが1回にまとまること() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return List.of(new Anime(1, "鬼滅の刃", "ダークファンタジー"));
+        }).when(animeMapper).findAll();
+
+        List<List<Anime>> results = herd(animeService::getAllAnime, release);
+
+        assertThat(results).allSatisfy(result -> assertThat(result).containsExactly(new Anime(1, "鬼滅の刃", "ダークファンタジー")));
+        verify(animeMapper, times(1)).findAll();
+    }
+
+    @Test
+    public void 同時に来た同じidの取得はDBへの問い合わせが1回にまとまること() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return Optional.of(new Anime(1, "鬼滅の刃", "ダークファンタジー"));
+        }).when(animeMapper).findById(1);
+
+        List<Anime> results = herd(() -> animeService.getAnime(1), release);
+
+        assertThat(results).containsOnly(new Anime(1, "鬼滅の刃", "ダークファンタジー"));
+        verify(animeMapper, times(1)).findById(1);
+    }
+
+    /**
+     * 50件の呼び出しを同時に始め、全員が呼び出した後でDBの応答を返す。
+     */
+    private <T> List<T> herd(Callable<T> call, CountDownLatch release) throws Exception {
+        int callers = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            CountDownLatch ready = new CountDownLatch(callers);
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    return call.call();
+                }));
+            }
+            ready.await();
+            Thread.sleep(100);
+            release.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,227 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Anime;
+import com.example.demo.exception.ServiceOverloadedException;
+import com.example.demo.mapper.AnimeMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnimeWriteBatcherTest {
+
+    private final AnimeMapper animeMapper = mock(AnimeMapper.class);
+
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private AnimeWriteBatcher animeWriteBatcher;
+
+    private AnimeWriteBatcher batcher(int maxBatchSize) {
+        return batcher(maxBatchSize, 1024);
+    }
+
+    @SuppressWarnings("unchecked")
+    private AnimeWriteBatcher batcher(int maxBatchSize, int maxQueued) {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        // 件数で必ず実行されるよう、時間の窓は十分に長くする
+        animeWriteBatcher = new AnimeWriteBatcher(animeMapper, transactionTemplate, true, maxBatchSize, maxQueued, Duration.ofSeconds(5));
+        return animeWriteBatcher;
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        if (animeWriteBatcher != null) {
+            animeWriteBatcher.destroy();
+        }
+    }
+
+    @Test
+    void 同時の登録が1つの複数行INSERTにまとまりそれぞれに採番されたidが返ること() throws Exception {
+        AnimeWriteBatcher batcher = batcher(3);
+        AtomicInteger nextId = new AtomicInteger(10);
+        doAnswer(invocation -> {
+            List<Anime> animeList = invocation.getArgument(0);
+            animeList.forEach(anime -> setId(anime, nextId.getAndIncrement()));
+            return null;
+        }).when(animeMapper).createAnimeBatch(anyList());
+
+        List<Integer> ids = all(
+                () -> batcher.create(new Anime("Anime1", "Action")),
+                () -> batcher.create(new Anime("Anime2", "Action")),
+                () -> batcher.create(new Anime("Anime3", "Action")));
+
+        assertThat(ids).containsExactlyInAnyOrder(10, 11, 12);
+        verify(animeMapper, times(1)).createAnimeBatch(anyList());
+    }
+
+    @Test
+    void 採番済みのidを持つ登録はidを指定した複数行INSERTにまとまること() throws Exception {
+        AnimeWriteBatcher batcher = batcher(2);
+
+        List<Integer> ids = all(
+                () -> batcher.create(new Anime(101, "Anime1", "Action")),
+                () -> batcher.create(new Anime(102, "Anime2", "Action")));
+
+        assertThat(ids).containsExactly(101, 102);
+        verify(animeMapper).createAnimeBatchWithIds(anyList());
+        verify(animeMapper, times(0)).createAnimeBatch(anyList());
+    }
+
+    @Test
+    void 同時の更新がまとまり存在しないidの呼び出しだけがfalseを受け取ること() throws Exception {
+        AnimeWriteBatcher batcher = batcher(2);
+        when(animeMapper.findExistingIdsForUpdate(List.of(1, 2))).thenReturn(List.of(1));
+
+        List<Boolean> results = all(
+                () -> batcher.update(new Anime(1, "Anime3", "Action")),
+                () -> batcher.update(new Anime(2, "Anime4", "Action")));
+
+        assertThat(results).containsExactlyInAnyOrder(true, false);
+        verify(animeMapper).updateAnimeBatch(List.of(new Anime(1, "Anime3", "Action")));
+    }
+
+    @Test
+    void 同じidへの更新は来た順に別の文で実行されること() throws Exception {
+        AnimeWriteBatcher batcher = batcher(2);
+        when(animeMapper.findExistingIdsForUpdate(List.of(1))).thenReturn(List.of(1));
+
+        List<Boolean> results = all(
+                () -> batcher.update(new Anime(1, "Anime3", "Action")),
+                () -> batcher.update(new Anime(1, "Anime4", "Action")));
+
+        assertThat(results).containsExactly(true, true);
+        verify(animeMapper, times(2)).updateAnimeBatch(anyList());
+        var order = inOrder(animeMapper);
+        order.verify(animeMapper).updateAnimeBatch(List.of(new Anime(1, "Anime3", "Action")));
+        order.verify(animeMapper).updateAnimeBatch(List.of(new Anime(1, "Anime4", "Action")));
+    }
+
+    @Test
+    void まとめた実行に失敗した場合は1件ずつ実行し直すこと() throws Exception {
+        AnimeWriteBatcher batcher = batcher(2);
+        AtomicInteger nextId = new AtomicInteger(1);
+        doAnswer(invocation -> {
+            List<Anime> animeList = invocation.getArgument(0);
+            if (animeList.size() > 1) {
+                throw new IllegalStateException("deadlock");
+            }
+            setId(animeList.get(0), nextId.getAndIncrement());
+            return null;
+        }).when(animeMapper).createAnimeBatch(anyList());
+
+        List<Integer> ids = all(
+                () -> batcher.create(new Anime("Anime1", "Action")),
+                () -> batcher.create(new Anime("Anime2", "Action")));
+
+        assertThat(ids).containsExactlyInAnyOrder(1, 2);
+        verify(animeMapper, times(3)).createAnimeBatch(anyList());
+    }
+
+    @Test
+    void ロールバックされたまとまりで設定されたidを持ち込まずに1件ずつ実行し直すこと() throws Exception {
+        AnimeWriteBatcher batcher = batcher(2);
+        AtomicInteger nextId = new AtomicInteger(1);
+        List<Integer> retriedIds = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            List<Anime> animeList = invocation.getArgument(0);
+            animeList.forEach(anime -> {
+                if (animeList.size() == 1) {
+                    retriedIds.add(anime.getId());
+                }
+                setId(anime, nextId.getAndIncrement());
+            });
+            if (animeList.size() > 1) {
+                throw new IllegalStateException("deadlock");
+            }
+            return null;
+        }).when(animeMapper).createAnimeBatch(anyList());
+
+        List<Integer> ids = all(
+                () -> batcher.create(new Anime("Anime1", "Action")),
+                () -> batcher.create(new Anime("Anime2", "Action")));
+
+        assertThat(retriedIds).containsExactly(null, null);
+        assertThat(ids).containsExactlyInAnyOrder(3, 4);
+        verify(animeMapper, never()).createAnimeBatchWithIds(anyList());
+    }
+
+    @Test
+    void 待ち行列があふれた書き込みは待ち行列に入れずに例外をthrowすること() throws Exception {
+        AnimeWriteBatcher batcher = batcher(1, 1);
+        CountDownLatch executing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            executing.countDown();
+            release.await();
+            return null;
+        }).when(animeMapper).createAnimeBatchWithIds(anyList());
+
+        Future<Integer> first = executor.submit(() -> batcher.create(new Anime(101, "Anime1", "Action")));
+        executing.await();
+        Future<Integer> second = executor.submit(() -> batcher.create(new Anime(102, "Anime2", "Action")));
+        Thread.sleep(50);
+
+        assertThatThrownBy(() -> batcher.create(new Anime(103, "Anime3", "Action")))
+                .isInstanceOf(ServiceOverloadedException.class)
+                .hasMessage("too many writes waiting for a group commit");
+        release.countDown();
+        assertThat(first.get()).isEqualTo(101);
+        assertThat(second.get()).isEqualTo(102);
+        verify(animeMapper, times(2)).createAnimeBatchWithIds(anyList());
+    }
+
+    /**
+     * 呼び出しを1つずつ順に投入し、すべての結果を投入した順に返す。
+     */
+    @SafeVarargs
+    private <T> List<T> all(Callable<T>... calls) throws Exception {
+        List<Future<T>> futures = new ArrayList<>();
+        for (Callable<T> call : calls) {
+            futures.add(executor.submit(call));
+            // 同じidへの更新の順序を確かめるため、前の呼び出しが待ち行列に入るのを待つ
+            Thread.sleep(50);
+        }
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    private static void setId(Anime anime, int id) {
+        try {
+            var field = Anime.class.getDeclaredField("id");
+            field.setAccessible(true);
+            field.set(anime, id);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
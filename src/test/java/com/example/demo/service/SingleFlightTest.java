@@ -0,0 +1,120 @@
+package com.example.demo.service;
+
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 50;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void 同時に来た同じキーの呼び出しは1回だけ実行され全員が同じ結果を受け取ること() throws Exception {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>(Duration.ofSeconds(5));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = herd(() -> singleFlight.execute(1, () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "鬼滅の刃";
+        }), release);
+
+        for (Future<String> result : results) {
+            assertThat(result.get()).isEqualTo("鬼滅の刃");
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(singleFlight.size()).isZero();
+    }
+
+    @Test
+    void 実行中の例外は待っていた呼び出しにも投げられ次の呼び出しは改めて実行されること() throws Exception {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>(Duration.ofSeconds(5));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = herd(() -> singleFlight.execute(1, () -> {
+            loads.incrementAndGet();
+            await(release);
+            throw new ResourceNotFoundException("resource not found");
+        }), release);
+
+        for (Future<String> result : results) {
+            assertThatThrownBy(result::get)
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(ResourceNotFoundException.class);
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(singleFlight.size()).isZero();
+        assertThat(singleFlight.execute(1, () -> "SPY×FAMILY")).isEqualTo("SPY×FAMILY");
+    }
+
+    @Test
+    void 待ち時間を過ぎた呼び出しは503の例外になること() throws Exception {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>(Duration.ofMillis(50));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlight.execute(1, () -> {
+            started.countDown();
+            await(release);
+            return "鬼滅の刃";
+        }));
+        started.await();
+
+        assertThatThrownBy(() -> singleFlight.execute(1, () -> "呼ばれない"))
+                .isInstanceOf(ServiceOverloadedException.class);
+
+        release.countDown();
+        assertThat(leader.get()).isEqualTo("鬼滅の刃");
+        assertThat(singleFlight.size()).isZero();
+    }
+
+    /**
+     * 全員が呼び出しを始めてから、最初の呼び出しの実行を終わらせる。
+     */
+    private <T> List<Future<T>> herd(Supplier<T> call, CountDownLatch release) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(CALLERS);
+        List<Future<T>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> {
+                ready.countDown();
+                return call.get();
+            }));
+        }
+        ready.await();
+        Thread.sleep(100);
+        release.countDown();
+        return results;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo.startup;
+
+import com.example.demo.controller.AnimeController;
+import com.example.demo.service.AnimeChangeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("fast-start")
+class FastStartApplicationTest {
+
+    @Autowired
+    ConfigurableListableBeanFactory beanFactory;
+
+    @Autowired
+    Environment environment;
+
+    @Test
+    void 最初のリクエストで使うBeanとバックグラウンドの処理が起動時に作られること() {
+        assertThat(beanFactory.containsSingleton("animeController")).isTrue();
+        assertThat(beanFactory.containsSingleton("animeChangeCompactor")).isTrue();
+    }
+
+    @Test
+    void 遅延したBeanも最初に使われた時に作られること() {
+        assertThat(beanFactory.getBean(AnimeChangeService.class).latestSeq()).isNotNegative();
+        assertThat(beanFactory.getBean(AnimeController.class)).isNotNull();
+    }
+
+    @Test
+    void startupエンドポイントはfast_startプロファイルでだけ公開されること() {
+        assertThat(environment.getProperty("management.endpoints.web.exposure.include")).contains("startup");
+    }
+}
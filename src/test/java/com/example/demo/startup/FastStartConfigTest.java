@@ -0,0 +1,28 @@
+package com.example.demo.startup;
+
+import com.example.demo.changes.AnimeChangeCompactor;
+import com.example.demo.controller.AnimeController;
+import com.example.demo.diagnostics.StatementFindingsEndpoint;
+import com.example.demo.warmup.AnimeHotIdRecorder;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FastStartConfigTest {
+
+    private final LazyInitializationExcludeFilter filter = FastStartConfig.hotPathBeans();
+
+    @Test
+    void 最初のリクエストで使うBeanとバックグラウンドの処理は起動時に作られること() {
+        assertThat(filter.isExcluded("animeController", new RootBeanDefinition(AnimeController.class), AnimeController.class)).isTrue();
+        assertThat(filter.isExcluded("animeChangeCompactor", new RootBeanDefinition(AnimeChangeCompactor.class), AnimeChangeCompactor.class)).isTrue();
+        assertThat(filter.isExcluded("animeHotIdRecorder", new RootBeanDefinition(AnimeHotIdRecorder.class), AnimeHotIdRecorder.class)).isTrue();
+    }
+
+    @Test
+    void 管理用のエンドポイントは最初に使われるまで作られないこと() {
+        assertThat(filter.isExcluded("statementFindingsEndpoint", new RootBeanDefinition(StatementFindingsEndpoint.class), StatementFindingsEndpoint.class)).isFalse();
+    }
+}
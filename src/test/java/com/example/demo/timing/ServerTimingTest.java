@@ -0,0 +1,93 @@
+package com.example.demo.timing;
+
+import com.example.demo.cache.AnimeListSnapshot;
+import com.example.demo.changes.AnimeChangeStream;
+import com.example.demo.entity.Anime;
+import com.example.demo.idempotency.IdempotentRequests;
+import com.example.demo.service.AnimeBatchService;
+import com.example.demo.service.AnimeChangeService;
+import com.example.demo.service.AnimeService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(properties = "anime.server-timing.enabled=true")
+@AutoConfigureMockMvc
+class ServerTimingTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ServerTimingFilter serverTimingFilter;
+
+    @MockBean
+    AnimeService animeService;
+
+    @MockBean
+    AnimeBatchService animeBatchService;
+
+    @MockBean
+    AnimeListSnapshot animeListSnapshot;
+
+    @MockBean
+    AnimeChangeService animeChangeService;
+
+    @MockBean
+    AnimeChangeStream animeChangeStream;
+
+    @MockBean
+    IdempotentRequests idempotentRequests;
+
+    @Test
+    void 有効な時はServerTimingヘッダーにフェーズごとの時間が付くこと() throws Exception {
+        Mockito.when(animeService.getAnime(1)).thenReturn(new Anime(1, "鬼滅の刃", "ダークファンタジー"));
+
+        mockMvc.perform(get("/api/anime/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Server-Timing",
+                        matchesPattern("bind;dur=\\d+\\.\\d{3}, service;dur=\\d+\\.\\d{3}, db;dur=\\d+\\.\\d{3};desc=\"0 statements\"")));
+    }
+
+    @Test
+    void 実行中に無効にするとServerTimingヘッダーが付かないこと() throws Exception {
+        Mockito.when(animeService.getAnime(1)).thenReturn(new Anime(1, "鬼滅の刃", "ダークファンタジー"));
+
+        serverTimingFilter.setEnabled(false);
+        try {
+            mockMvc.perform(get("/api/anime/1").accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist("Server-Timing"));
+        } finally {
+            serverTimingFilter.setEnabled(true);
+        }
+    }
+
+    @Test
+    void サービスの時間からDBの時間を除いて集計されること() {
+        RequestTiming timing = RequestTiming.begin();
+        try {
+            timing.markHandlerStart();
+            timing.enterService();
+            RequestTiming.recordStatement(1_000_000);
+            RequestTiming.recordStatement(2_000_000);
+            timing.exitService();
+
+            assertThat(timing.headerValue()).endsWith("db;dur=3.000;desc=\"2 statements\"");
+        } finally {
+            timing.end();
+        }
+        RequestTiming.recordStatement(1_000_000);
+        assertThat(RequestTiming.current()).isNull();
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.demo.warmup;
+
+import com.example.demo.cache.AnimeListSnapshot;
+import com.example.demo.datasource.ReplicaRoutingDataSource;
+import com.example.demo.entity.Anime;
+import com.example.demo.mapper.AnimeHotIdMapper;
+import com.example.demo.mapper.AnimeMapper;
+import com.example.demo.service.AnimeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnimeWarmUpTest {
+
+    private final DataSource dataSource = mock(DataSource.class);
+
+    private final Connection connection = mock(Connection.class);
+
+    private final AnimeService animeService = mock(AnimeService.class);
+
+    private final AnimeMapper animeMapper = mock(AnimeMapper.class);
+
+    private final AnimeHotIdMapper animeHotIdMapper = mock(AnimeHotIdMapper.class);
+
+    private final AnimeListSnapshot animeListSnapshot = mock(AnimeListSnapshot.class);
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private final AnimeWarmUp animeWarmUp = new AnimeWarmUp(dataSource, animeService, animeMapper, animeHotIdMapper,
+            animeListSnapshot, eventPublisher, new ObjectMapper(), 100, 10, 3, 0.1, Duration.ofSeconds(5), Duration.ofDays(1));
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(animeService.getAnime(1)).thenReturn(new Anime(1, "Anime1", "Action"));
+        when(animeService.getAnime(2)).thenReturn(new Anime(2, "Anime2", "Action"));
+        when(animeMapper.findById(anyInt())).thenReturn(Optional.of(new Anime(1, "Anime1", "Action")));
+    }
+
+    @Test
+    void 接続プールを埋め記録された頻度の高いidでキャッシュを埋めてから取得を繰り返すこと() throws Exception {
+        when(animeHotIdMapper.findHotIds(anyInt(), anyLong())).thenReturn(List.of(2, 1));
+
+        animeWarmUp.run(null);
+
+        verify(eventPublisher).publishEvent(argThat((AvailabilityChangeEvent<?> event) -> event.getState() == ReadinessState.REFUSING_TRAFFIC));
+        verify(connection, times(10)).close();
+        verify(animeService).getAnimeList(List.of(2, 1));
+        verify(animeListSnapshot).current();
+        verify(animeMapper, atLeastOnce()).findById(2);
+        verify(animeService, atLeastOnce()).getAnime(1);
+    }
+
+    @Test
+    void レプリカを設定した場合はプライマリとレプリカのプールから直接接続を借りること() throws Exception {
+        HikariDataSource primary = mock(HikariDataSource.class);
+        HikariDataSource replica = mock(HikariDataSource.class);
+        when(primary.isWrapperFor(HikariDataSource.class)).thenReturn(true);
+        when(primary.unwrap(HikariDataSource.class)).thenReturn(primary);
+        when(primary.getMaximumPoolSize()).thenReturn(3);
+        when(primary.getConnection()).thenReturn(connection);
+        when(replica.isWrapperFor(HikariDataSource.class)).thenReturn(true);
+        when(replica.unwrap(HikariDataSource.class)).thenReturn(replica);
+        when(replica.getMaximumPoolSize()).thenReturn(2);
+        when(replica.getConnection()).thenReturn(connection);
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(replica), Duration.ofHours(1));
+        // 接続の既定値を調べに行かないよう、afterPropertiesSet を呼ばずに包む
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy();
+        proxy.setTargetDataSource(routing);
+        AnimeWarmUp warmUp = new AnimeWarmUp(proxy, animeService, animeMapper,
+                animeHotIdMapper, animeListSnapshot, eventPublisher, new ObjectMapper(), 100, 10, 3, 0.1,
+                Duration.ofSeconds(5), Duration.ofDays(1));
+        try {
+            assertThat(warmUp.fillConnectionPool()).isEqualTo(5);
+        } finally {
+            routing.destroy();
+        }
+
+        verify(primary, times(3)).getConnection();
+        verify(replica, times(2)).getConnection();
+        verify(connection, times(5)).close();
+    }
+
+    @Test
+    void 頻度の記録がない場合は先頭からのidを使うこと() {
+        when(animeHotIdMapper.findHotIds(anyInt(), anyLong())).thenReturn(List.of());
+        when(animeMapper.findPage(0, 100)).thenReturn(List.of(new Anime(1, "Anime1", "Action"), new Anime(2, "Anime2", "Action")));
+
+        assertThat(animeWarmUp.hotIds()).containsExactly(1, 2);
+    }
+
+    @Test
+    void レイテンシが安定しなくても期限を過ぎたら終えること() {
+        int rounds = animeWarmUp.runUntilStable(List.of(1), System.nanoTime());
+
+        assertThat(rounds).isZero();
+    }
+
+    @Test
+    void 前のラウンドとの差が許容範囲か計測の揺れの範囲なら安定とみなすこと() {
+        assertThat(AnimeWarmUp.isStable(1_000_000, 1_080_000, 0.1)).isTrue();
+        assertThat(AnimeWarmUp.isStable(1_000_000, 1_200_000, 0.1)).isFalse();
+        assertThat(AnimeWarmUp.isStable(10_000, 25_000, 0.1)).isTrue();
+    }
+}